@@ -0,0 +1,162 @@
+package com.panduit.graph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+
+/**
+ * Linear time algorithms for directed acyclic graphs.
+ *
+ * The caller is responsible for holding a lock that keeps the adjacency
+ * maps from being modified while these run.
+ */
+final class AcyclicPaths {
+
+    private AcyclicPaths() {
+    }
+
+    /**
+     * Vertices in topological order, with the position of each
+     *
+     * @param <Node>
+     */
+    static final class Order<Node> {
+        final List<Node> nodes;
+        final Map<Node, Integer> position;
+
+        private Order(List<Node> nodes, Map<Node, Integer> position) {
+            this.nodes = nodes;
+            this.position = position;
+        }
+    }
+
+    /**
+     * Orders the vertices so that every edge points from an earlier to a later vertex.
+     * This is Kahn's algorithm, using the size of each incoming map as the in-degree.
+     * @link https://en.wikipedia.org/wiki/Topological_sorting#Kahn's_algorithm
+     *
+     * @param outgoing adjacency map of the graph
+     * @param incoming reverse adjacency map of the graph
+     * @return vertices in topological order, or empty if the graph has a cycle
+     */
+    static <Node> Optional<Order<Node>> topologicalOrder(Map<Node, Map<Node, Edge>> outgoing, Map<Node, Map<Node, Edge>> incoming) {
+        final Map<Node, Integer> inDegree = new HashMap<>();
+        final Deque<Node> ready = new ArrayDeque<>();
+        for (final Map.Entry<Node, Map<Node, Edge>> vertex : incoming.entrySet()) {
+            final int degree = vertex.getValue().size();
+            if (degree == 0) {
+                ready.add(vertex.getKey());
+            }
+            else {
+                inDegree.put(vertex.getKey(), degree);
+            }
+        }
+
+        final List<Node> order = new ArrayList<>(outgoing.size());
+        final Map<Node, Integer> position = new HashMap<>();
+        while (!ready.isEmpty()) {
+            final Node u = ready.remove();
+            position.put(u, order.size());
+            order.add(u);
+            for (final Node v : outgoing.get(u).keySet()) {
+                final int degree = inDegree.get(v) - 1;
+                if (degree == 0) {
+                    inDegree.remove(v);
+                    ready.add(v);
+                }
+                else {
+                    inDegree.put(v, degree);
+                }
+            }
+        }
+
+        // Vertices on a cycle never run out of incoming edges
+        if (order.size() < outgoing.size()) {
+            return Optional.empty();
+        }
+        return Optional.of(new Order<>(Collections.unmodifiableList(order), position));
+    }
+
+    /**
+     * Finds the shortest or longest path between two vertices by relaxing edges in
+     * topological order. Every edge is looked at most once and negative weights are allowed.
+     * Only the part of the order between src and dest is walked, and the walk ends early
+     * once no vertex reached from src is left before dest.
+     *
+     * @param outgoing adjacency map of the graph
+     * @param order vertices of the graph in topological order
+     * @param src starting vertex
+     * @param dest ending vertex
+     * @param longest true to find the longest path, false for the shortest
+     * @param filter edges the path may use
+     * @return the best paths found from src, with the vertices whose edges were relaxed
+     * counted as settled. Nothing is reached if src is not in the graph.
+     */
+    static <Node> ShortestPaths.Tree<Node> findPath(Map<Node, Map<Node, Edge>> outgoing, Order<Node> order,
+                                                    Node src, Node dest, boolean longest, EdgeFilter<Node> filter) {
+        return findPath(outgoing, order, src, dest, longest, filter, null);
+    }
+
+    /**
+     * @param budget stops the search when it runs out, or null for no limit. Every vertex
+     * of the order walked is spent, reached from src or not.
+     */
+    static <Node> ShortestPaths.Tree<Node> findPath(Map<Node, Map<Node, Edge>> outgoing, Order<Node> order,
+                                                    Node src, Node dest, boolean longest, EdgeFilter<Node> filter,
+                                                    Budget budget) {
+        final ShortestPaths.Tree<Node> tree = new ShortestPaths.Tree<>();
+        final Map<Node, Node> prevMap = tree.prevMap;
+        final Map<Node, Double> distance = tree.distance;
+
+        // Vertices before src in the order cannot be on a path from src,
+        // and vertices after dest cannot lead back to it
+        final Integer start = order.position.get(src);
+        if (start == null) {
+            return tree;
+        }
+        final Integer destPosition = order.position.get(dest);
+        final int end = destPosition == null ? order.nodes.size() : destPosition;
+        prevMap.put(src, null);
+        distance.put(src, 0.0);
+
+        // Vertices reached but not yet relaxed, up to dest
+        int frontier = 1;
+        for (int i = start; i < end && frontier > 0; ++i) {
+            if (budget != null && !budget.spend()) {
+                break;
+            }
+            final Node u = order.nodes.get(i);
+            final Double base = distance.get(u);
+            if (base == null) {
+                // Not reachable from src
+                continue;
+            }
+            --frontier;
+            ++tree.settled;
+
+            for (final Map.Entry<Node, Edge> neighbor : outgoing.get(u).entrySet()) {
+                final Node v = neighbor.getKey();
+                if (!filter.accept(u, v, neighbor.getValue())) {
+                    continue;
+                }
+
+                final double altDistance = base + neighbor.getValue().getWeight();
+                final Double current = distance.get(v);
+                if (current == null && order.position.get(v) < end) {
+                    ++frontier;
+                }
+                if (current == null || (longest ? altDistance > current : altDistance < current)) {
+                    distance.put(v, altDistance);
+                    prevMap.put(v, u);
+                }
+            }
+        }
+        return tree;
+    }
+}
@@ -0,0 +1,294 @@
+package com.panduit.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+
+/**
+ * Runs queries on a graph without blocking the caller, for services that answer many
+ * requests at once. Every query returns a CompletableFuture.
+ *
+ * Queries run on an executor that, by default, starts a virtual thread per query where the
+ * JVM has them, and a fixed pool of one thread per turn otherwise. Only a set number of queries
+ * compute at once; the rest wait in a queue, and are handed to the executor as turns free up,
+ * so no thread is held by a waiting query. Beyond a limit of waiting queries, new ones are
+ * rejected with a RejectedExecutionException instead of queueing without bound.
+ *
+ * A query that is the same as one still waiting for its turn shares that one's result
+ * instead of computing it again. Queries that have started are not joined, so a query
+ * always sees changes made to the graph before it was asked. Results shared this way are
+ * unmodifiable.
+ *
+ * @param <Node>
+ */
+public final class AsyncGraph<Node> implements AutoCloseable {
+    private static final int DEFAULT_MAX_WAITING = 10000;
+
+    private final Graph<Node> graph;
+    private final Executor executor;
+    private final boolean ownsExecutor;
+
+    // Turns to compute, and room for queries waiting for one
+    private final Semaphore running;
+    private final int maxRunning;
+    private final int maxWaiting;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    // Queries waiting for a turn, in the order they were asked
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    // Queries waiting for a turn, by what they ask
+    private final Map<List<Object>, CompletableFuture<Object>> waitingQueries = new ConcurrentHashMap<>();
+
+    /**
+     * Runs as many queries at once as there are processors, on virtual threads if the JVM has them
+     *
+     * @param graph graph to query
+     */
+    public AsyncGraph(Graph<Node> graph) {
+        this(graph, defaultExecutor(Runtime.getRuntime().availableProcessors()), true,
+                Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_WAITING);
+    }
+
+    /**
+     * @param graph graph to query
+     * @param executor runs the queries. It is not shut down by close.
+     * @param maxRunning number of queries computed at once
+     * @param maxWaiting number of queries that may wait for a turn before new ones are rejected
+     */
+    public AsyncGraph(Graph<Node> graph, Executor executor, int maxRunning, int maxWaiting) {
+        this(graph, executor, false, maxRunning, maxWaiting);
+    }
+
+    private AsyncGraph(Graph<Node> graph, Executor executor, boolean ownsExecutor, int maxRunning, int maxWaiting) {
+        if (maxRunning < 1 || maxWaiting < 0) {
+            throw new IllegalArgumentException("Need maxRunning >= 1 and maxWaiting >= 0");
+        }
+        this.graph = graph;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.running = new Semaphore(maxRunning);
+        this.maxRunning = maxRunning;
+        this.maxWaiting = maxWaiting;
+    }
+
+    /**
+     * A virtual thread per task on JVMs that have them. Looked up by reflection, since
+     * the code is built for Java 8. Otherwise one thread per turn, which is all queries
+     * ever need since only those holding a turn are handed to the executor.
+     */
+    private static ExecutorService defaultExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(threads, runnable -> {
+                final Thread thread = new Thread(runnable, "async-graph");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public Graph<Node> getGraph() {
+        return graph;
+    }
+
+    public CompletableFuture<List<Node>> findShortestPath(Node src, Node dest) {
+        return shared(Arrays.asList("findShortestPath", src, dest),
+                () -> Collections.unmodifiableList(graph.findShortestPath(src, dest)));
+    }
+
+    /**
+     * Not shared with other queries, since predicates cannot be compared
+     */
+    public CompletableFuture<List<Node>> findShortestPath(Node src, Node dest, Predicate<Edge> edgePredicate) {
+        return submit(g -> g.findShortestPath(src, dest, edgePredicate));
+    }
+
+    public CompletableFuture<Boolean> isConnected(Node u, Node v) {
+        return shared(Arrays.asList("isConnected", u, v), () -> graph.isConnected(u, v));
+    }
+
+    public CompletableFuture<Boolean> isReachable(Node u, Node v) {
+        return shared(Arrays.asList("isReachable", u, v), () -> graph.isReachable(u, v));
+    }
+
+    /**
+     * Finds the shortest path between every pair, as separate queries run side by side
+     *
+     * @param pairs source and destination of each path
+     * @return the paths, in the order of the pairs. Fails if any query fails or is rejected.
+     */
+    public CompletableFuture<List<List<Node>>> findShortestPaths(Collection<? extends Map.Entry<Node, Node>> pairs) {
+        final List<CompletableFuture<List<Node>>> queries = new ArrayList<>(pairs.size());
+        for (final Map.Entry<Node, Node> pair : pairs) {
+            queries.add(findShortestPath(pair.getKey(), pair.getValue()));
+        }
+        return all(queries);
+    }
+
+    /**
+     * Checks whether every pair is connected, as separate queries run side by side
+     *
+     * @param pairs vertices to check
+     * @return whether each pair is connected, in the order of the pairs
+     */
+    public CompletableFuture<List<Boolean>> areConnected(Collection<? extends Map.Entry<Node, Node>> pairs) {
+        final List<CompletableFuture<Boolean>> queries = new ArrayList<>(pairs.size());
+        for (final Map.Entry<Node, Node> pair : pairs) {
+            queries.add(isConnected(pair.getKey(), pair.getValue()));
+        }
+        return all(queries);
+    }
+
+    /**
+     * Runs any query, under the same limits as the others. It is never shared.
+     *
+     * @param query reads the graph
+     * @return what the query returns
+     */
+    public <T> CompletableFuture<T> submit(Function<? super Graph<Node>, T> query) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        if (!admit(result)) {
+            return result;
+        }
+        enqueue(result, () -> result.complete(query.apply(graph)));
+        return result;
+    }
+
+    /**
+     * @return number of queries waiting for a turn
+     */
+    public int getWaitingCount() {
+        return waiting.get();
+    }
+
+    /**
+     * Shuts down the executor if this made it, once the queries already asked have run
+     */
+    @Override
+    public void close() {
+        closed = true;
+        shutdownIfIdle();
+    }
+
+    private void shutdownIfIdle() {
+        if (closed && ownsExecutor && queue.isEmpty() && running.availablePermits() == maxRunning) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> shared(List<Object> key, Supplier<T> query) {
+        final CompletableFuture<Object> created = new CompletableFuture<>();
+        final CompletableFuture<Object> existing = waitingQueries.putIfAbsent(key, created);
+        if (existing != null) {
+            // A copy, so a caller cancelling its future does not cancel the others
+            return (CompletableFuture<T>) existing.thenApply(Function.identity());
+        }
+
+        // Also covers queries that are rejected or fail before their turn
+        created.whenComplete((result, error) -> waitingQueries.remove(key, created));
+        if (!admit(created)) {
+            return (CompletableFuture<T>) created;
+        }
+        enqueue(created, () -> {
+            // From now on the result may miss changes, so later queries compute their own
+            waitingQueries.remove(key, created);
+            created.complete(query.get());
+        });
+        return (CompletableFuture<T>) created.thenApply(Function.identity());
+    }
+
+    /**
+     * Counts a query as waiting, or fails it if too many are
+     */
+    private boolean admit(CompletableFuture<?> result) {
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            result.completeExceptionally(new RejectedExecutionException(
+                    "Too many graph queries waiting (" + maxWaiting + ")"));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Queues an admitted query until it gets a turn
+     */
+    private void enqueue(CompletableFuture<?> result, Runnable task) {
+        queue.add(() -> execute(result, task));
+        dispatch();
+    }
+
+    /**
+     * Hands waiting queries to the executor while there are turns for them. Called whenever
+     * a query is queued or a turn is released, so none is left waiting with a turn free.
+     */
+    private void dispatch() {
+        while (!queue.isEmpty() && running.tryAcquire()) {
+            final Runnable next = queue.poll();
+            if (next == null) {
+                running.release();
+                continue;
+            }
+            waiting.decrementAndGet();
+            next.run();
+        }
+        shutdownIfIdle();
+    }
+
+    /**
+     * Runs a query that holds a turn, and gives the turn back when it is done
+     */
+    private void execute(CompletableFuture<?> result, Runnable task) {
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                }
+                catch (RuntimeException | Error e) {
+                    result.completeExceptionally(e);
+                }
+                finally {
+                    running.release();
+                    dispatch();
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            running.release();
+            result.completeExceptionally(e);
+        }
+    }
+
+    private static <T> CompletableFuture<List<T>> all(List<CompletableFuture<T>> queries) {
+        return CompletableFuture.allOf(queries.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> {
+                    final List<T> results = new ArrayList<>(queries.size());
+                    for (final CompletableFuture<T> query : queries) {
+                        results.add(query.join());
+                    }
+                    return results;
+                });
+    }
+}
@@ -0,0 +1,135 @@
+package com.panduit.graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+/**
+ * Level-synchronous, direction-optimizing breadth first search.
+ *
+ * Each level is expanded either top-down (follow the outgoing edges of the
+ * frontier) or bottom-up (every unvisited vertex checks whether one of its
+ * incoming neighbors is in the frontier), whichever is expected to touch
+ * fewer edges. Large levels are expanded in parallel on the common fork-join pool.
+ * @link https://parlab.eecs.berkeley.edu/sites/all/parlab/files/main.pdf
+ *
+ * The caller is responsible for holding a lock that keeps the adjacency
+ * maps from being modified for the duration of the search.
+ *
+ * @param <Node>
+ */
+final class BreadthFirstSearch<Node> {
+
+    // Switch to bottom-up once the frontier's edges outnumber the
+    // unexplored edges divided by ALPHA. Switch back to top-down once
+    // the frontier shrinks below the number of vertices divided by BETA.
+    private static final int ALPHA = 14;
+    private static final int BETA = 24;
+
+    // Below this many vertices, the fork-join overhead outweighs the gain
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    private final Map<Node, Map<Node, Edge>> outgoing;
+    private final Map<Node, Map<Node, Edge>> incoming;
+    private final long edgeCount;
+
+    BreadthFirstSearch(Map<Node, Map<Node, Edge>> outgoing, Map<Node, Map<Node, Edge>> incoming, long edgeCount) {
+        this.outgoing = outgoing;
+        this.incoming = incoming;
+        this.edgeCount = edgeCount;
+    }
+
+    /**
+     * Runs the search from 'src', handing every level to the visitor as soon as it is discovered.
+     *
+     * @param src starting vertex, which forms level 0
+     * @param maxDepth number of hops to expand
+     * @param visitor receives each level and its depth, on the calling thread
+     */
+    void run(Node src, int maxDepth, BiConsumer<Set<Node>, Integer> visitor) {
+        if (src == null || maxDepth < 0 || !outgoing.containsKey(src)) {
+            return;
+        }
+
+        final Set<Node> visited = new HashSet<>();
+        Set<Node> frontier = new HashSet<>();
+        frontier.add(src);
+        visited.add(src);
+        visitor.accept(frontier, 0);
+
+        // Edges not yet checked by a top-down step
+        long unexploredEdges = edgeCount - outgoing.get(src).size();
+        boolean bottomUp = false;
+
+        for (int depth = 1; depth <= maxDepth && !frontier.isEmpty(); ++depth) {
+            final long frontierEdges = outDegree(frontier);
+            if (!bottomUp && frontierEdges > unexploredEdges / ALPHA) {
+                bottomUp = true;
+            }
+            else if (bottomUp && frontier.size() < outgoing.size() / BETA) {
+                bottomUp = false;
+            }
+
+            final Set<Node> next = bottomUp ? stepBottomUp(frontier, visited) : stepTopDown(frontier, visited);
+            visited.addAll(next);
+            unexploredEdges -= outDegree(next);
+
+            if (!next.isEmpty()) {
+                visitor.accept(next, depth);
+            }
+            frontier = next;
+        }
+    }
+
+    private Set<Node> stepTopDown(Set<Node> frontier, Set<Node> visited) {
+        // Only reads happen in parallel; 'visited' is updated once the level is complete
+        return stream(frontier)
+                .flatMap(u -> outgoing.get(u).keySet().stream())
+                .filter(v -> !visited.contains(v))
+                .collect(Collectors.toSet());
+    }
+
+    private Set<Node> stepBottomUp(Set<Node> frontier, Set<Node> visited) {
+        return stream(outgoing.keySet())
+                .filter(v -> !visited.contains(v))
+                .filter(v -> hasParentIn(v, frontier))
+                .collect(Collectors.toSet());
+    }
+
+    private boolean hasParentIn(Node v, Set<Node> frontier) {
+        for (final Node parent : incoming.get(v).keySet()) {
+            if (frontier.contains(parent)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long outDegree(Set<Node> nodes) {
+        long degree = 0;
+        for (final Node node : nodes) {
+            degree += outgoing.get(node).size();
+        }
+        return degree;
+    }
+
+    private static <T> Stream<T> stream(Collection<T> nodes) {
+        return nodes.size() >= PARALLEL_THRESHOLD ? nodes.parallelStream() : nodes.stream();
+    }
+
+    /**
+     * Collects the levels of the search into a list, where the i-th entry holds the vertices i hops away
+     */
+    List<Set<Node>> levels(Node src, int maxDepth) {
+        final List<Set<Node>> levels = new ArrayList<>();
+        run(src, maxDepth, (level, depth) -> levels.add(level));
+        return levels;
+    }
+}
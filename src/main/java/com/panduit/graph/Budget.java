@@ -0,0 +1,100 @@
+package com.panduit.graph;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+
+/**
+ * Limits of one run of a query, checked by the traversal loops. Counting a vertex is a
+ * compare; the clock and the cancellation token are only looked at every CHECK_INTERVAL vertices.
+ */
+final class Budget {
+    private static final int CHECK_INTERVAL = 256;
+
+    // How long to wait for a lock between looks at the cancellation token
+    private static final long LOCK_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final long deadline;
+    private final boolean hasDeadline;
+    private final long maxSettled;
+    private final CancellationToken cancellation;
+
+    private long settled = 0;
+    private QueryResult.Status stopped = null;
+
+    Budget(long deadline, boolean hasDeadline, long maxSettled, CancellationToken cancellation) {
+        this.deadline = deadline;
+        this.hasDeadline = hasDeadline;
+        this.maxSettled = maxSettled;
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * Counts one settled vertex
+     *
+     * @return false if the query must stop
+     */
+    boolean spend() {
+        if (++settled > maxSettled) {
+            --settled;
+            stopped = QueryResult.Status.BUDGET_EXHAUSTED;
+            return false;
+        }
+        return settled % CHECK_INTERVAL != 1 || !expired();
+    }
+
+    /**
+     * Takes a lock, waiting no longer than the deadline and giving up if cancelled
+     *
+     * @return false if the lock was not taken and the query must stop
+     */
+    boolean lock(Lock lock) {
+        if (!hasDeadline && cancellation == null) {
+            lock.lock();
+            return true;
+        }
+        try {
+            while (!expired()) {
+                final long wait = hasDeadline ? Math.min(deadline - System.nanoTime(), LOCK_POLL_NANOS) : LOCK_POLL_NANOS;
+                if (lock.tryLock(Math.max(wait, 0), TimeUnit.NANOSECONDS)) {
+                    return true;
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped = QueryResult.Status.CANCELLED;
+        }
+        return false;
+    }
+
+    private boolean expired() {
+        if (cancellation != null && cancellation.isCancelled()) {
+            stopped = QueryResult.Status.CANCELLED;
+        }
+        else if (hasDeadline && System.nanoTime() - deadline >= 0) {
+            stopped = QueryResult.Status.TIMED_OUT;
+        }
+        return stopped != null;
+    }
+
+    long settled() {
+        return settled;
+    }
+
+    /**
+     * @return true if nothing can stop the query early
+     */
+    boolean isUnlimited() {
+        return maxSettled == Long.MAX_VALUE && !hasDeadline && cancellation == null;
+    }
+
+    /**
+     * @param value the answer, if the query did not stop early
+     */
+    <T> QueryResult<T> result(T value) {
+        return stopped == null
+                ? new QueryResult<>(QueryResult.Status.COMPLETE, value, settled)
+                : new QueryResult<>(stopped, null, settled);
+    }
+}
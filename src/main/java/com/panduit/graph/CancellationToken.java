@@ -0,0 +1,18 @@
+package com.panduit.graph;
+
+
+/**
+ * Lets one thread stop a query running on another. Queries given the token through
+ * QueryOptions check it as they go and give up soon after it is cancelled.
+ */
+public final class CancellationToken {
+    private volatile boolean cancelled = false;
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
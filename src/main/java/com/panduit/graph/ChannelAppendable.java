@@ -0,0 +1,103 @@
+package com.panduit.graph;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Appendable that encodes text as UTF-8 into a fixed size buffer and writes the buffer to a
+ * channel whenever it fills up. Call close once done, which ends the text and writes what is
+ * left; the channel is not closed.
+ */
+final class ChannelAppendable implements Appendable, Flushable, Closeable {
+    private static final int CHUNK = 1 << 16;
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer chars = CharBuffer.allocate(CHUNK / 4);
+    private final ByteBuffer bytes = ByteBuffer.allocate(CHUNK);
+
+    ChannelAppendable(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+        if (!chars.hasRemaining()) {
+            encode();
+        }
+        chars.put(c);
+        return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence text) throws IOException {
+        return append(text, 0, text.length());
+    }
+
+    @Override
+    public Appendable append(CharSequence text, int start, int end) throws IOException {
+        for (int i = start; i < end; ++i) {
+            append(text.charAt(i));
+        }
+        return this;
+    }
+
+    /**
+     * Moves the buffered characters into the byte buffer, writing it out when it fills up.
+     * Half of a surrogate pair is kept back until the other half arrives.
+     */
+    private void encode() throws IOException {
+        chars.flip();
+        while (encoder.encode(chars, bytes, false) == CoderResult.OVERFLOW) {
+            write();
+        }
+        chars.compact();
+    }
+
+    private void write() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    /**
+     * Writes out everything encoded so far. Half of a surrogate pair at the end stays
+     * buffered, since more text may follow.
+     */
+    @Override
+    public void flush() throws IOException {
+        encode();
+        write();
+    }
+
+    /**
+     * Ends the text: a trailing half of a surrogate pair is written as a replacement
+     * character, and whatever the encoder holds is written out.
+     */
+    @Override
+    public void close() throws IOException {
+        chars.flip();
+        while (encoder.encode(chars, bytes, true) == CoderResult.OVERFLOW) {
+            write();
+        }
+        while (encoder.flush(bytes) == CoderResult.OVERFLOW) {
+            write();
+        }
+        chars.clear();
+        encoder.reset();
+        write();
+    }
+}
@@ -0,0 +1,542 @@
+package com.panduit.graph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * One direction of a CompressedGraph's adjacency, read through Map views so the regular
+ * algorithms run on it unchanged.
+ *
+ * Vertex ids index the arrays directly. Each vertex's block starts with its degree, followed
+ * by its neighbors in ascending order as varints: the first as a zigzag encoded difference
+ * from the vertex itself, the rest as the gap from the previous neighbor. When edges carry
+ * more than one distinct label, each neighbor is followed by the varint index of its label in
+ * a shared dictionary, and likewise for weights when there are few distinct ones. Otherwise
+ * weights are kept in a column by position, as floats if that loses nothing. Edges are made
+ * as they are read, unless every edge has the same label and weight. A vertex with no block
+ * is not in the graph.
+ *
+ * Every SKIP neighbors there is a skip pointer holding the neighbor before it and where in the
+ * block decoding can resume, so a lookup decodes at most SKIP neighbors after the pointers.
+ */
+final class CompressedAdjacency {
+    static final int SKIP = 16;
+
+    // Block of vertex x is data[offsets[x]] up to data[offsets[x + 1]]
+    private final int[] offsets;
+    private final byte[] data;
+
+    // Skip pointers of vertex x are skipStart[x] up to skipStart[x + 1]
+    private final int[] skipStart;
+    private final int[] skipPrevious;
+    private final int[] skipOffset;
+
+    private final String[] labels;
+    private final double[] weightDictionary;
+
+    // Weights by position when there is no weight dictionary: the weights of vertex x
+    // start at columnStart[x], in the order of its neighbors
+    private final int[] columnStart;
+    private final float[] floatColumn;
+    private final double[] doubleColumn;
+
+    // The one edge every neighbor has, if there is only one
+    private final Edge uniform;
+    private final int nodeCount;
+
+    private CompressedAdjacency(int[] offsets, byte[] data, int[] skipStart, int[] skipPrevious, int[] skipOffset,
+                                Attributes attributes, int[] columnStart, float[] floatColumn, double[] doubleColumn,
+                                int nodeCount) {
+        this.offsets = offsets;
+        this.data = data;
+        this.skipStart = skipStart;
+        this.skipPrevious = skipPrevious;
+        this.skipOffset = skipOffset;
+        this.labels = attributes.labels;
+        this.weightDictionary = attributes.weightDictionary;
+        this.columnStart = columnStart;
+        this.floatColumn = floatColumn;
+        this.doubleColumn = doubleColumn;
+        this.uniform = labels.length == 1 && weightDictionary != null && weightDictionary.length == 1
+                ? new Edge(labels[0], weightDictionary[0])
+                : null;
+        this.nodeCount = nodeCount;
+    }
+
+    /**
+     * Labels and weights of a graph's edges while both directions of its adjacency are encoded.
+     * Only the dictionaries are kept afterwards.
+     */
+    static final class Attributes {
+        // More distinct weights than this go in a column. Indexes below it take at most two bytes.
+        static final int MAX_WEIGHT_DICTIONARY = 1 << 14;
+
+        final String[] labels;
+        final int[] labelOf;
+
+        // Distinct weights, or null if the weights go in a column
+        final double[] weightDictionary;
+        final int[] weightOf;
+        final double[] weights;
+        final boolean floats;
+
+        private Attributes(String[] labels, int[] labelOf, double[] weightDictionary, int[] weightOf,
+                           double[] weights, boolean floats) {
+            this.labels = labels;
+            this.labelOf = labelOf;
+            this.weightDictionary = weightDictionary;
+            this.weightOf = weightOf;
+            this.weights = weights;
+            this.floats = floats;
+        }
+
+        /**
+         * @param edges label and weight of each edge
+         * @param weights weight of each edge
+         */
+        static Attributes of(Edge[] edges, double[] weights) {
+            final Map<String, Integer> labelIds = new HashMap<>();
+            final List<String> labels = new ArrayList<>();
+            final int[] labelOf = new int[weights.length];
+            Map<Double, Integer> weightIds = new HashMap<>();
+            final int[] weightOf = new int[weights.length];
+            boolean floats = true;
+            for (int e = 0; e < weights.length; ++e) {
+                // Unlabeled edges read back as "", the way DirectedGraph.write stores them
+                final String edgeLabel = edges[e].getLabel() == null ? "" : edges[e].getLabel();
+                labelOf[e] = labelIds.computeIfAbsent(edgeLabel, label -> {
+                    labels.add(label);
+                    return labels.size() - 1;
+                });
+                floats &= Double.compare((float) weights[e], weights[e]) == 0;
+                if (weightIds != null) {
+                    final Integer id = weightIds.putIfAbsent(weights[e], weightIds.size());
+                    weightOf[e] = id == null ? weightIds.size() - 1 : id;
+                    if (weightIds.size() > MAX_WEIGHT_DICTIONARY) {
+                        weightIds = null;
+                    }
+                }
+            }
+            if (labels.isEmpty()) {
+                labels.add("");
+            }
+
+            if (weightIds == null) {
+                return new Attributes(labels.toArray(new String[labels.size()]), labelOf, null, null, weights, floats);
+            }
+            final double[] weightDictionary = new double[Math.max(1, weightIds.size())];
+            for (final Map.Entry<Double, Integer> entry : weightIds.entrySet()) {
+                weightDictionary[entry.getValue()] = entry.getKey();
+            }
+            return new Attributes(labels.toArray(new String[labels.size()]), labelOf, weightDictionary, weightOf,
+                    null, floats);
+        }
+
+        /**
+         * @return bytes taken by the label and weight dictionaries
+         */
+        long encodedBytes() {
+            long bytes = 4L * labels.length;
+            for (final String label : labels) {
+                bytes += 2L * label.length();
+            }
+            return bytes + (weightDictionary == null ? 0 : 8L * weightDictionary.length);
+        }
+    }
+
+    /**
+     * @param present present[x] is true if vertex x is in the graph
+     * @param keys vertex each edge is listed under
+     * @param neighbors vertex at the other end of each edge
+     * @param attributes labels and weights of the edges
+     */
+    static CompressedAdjacency encode(boolean[] present, int[] keys, int[] neighbors, Attributes attributes) {
+        final int idLimit = present.length;
+
+        // Group the edges by the vertex they are listed under
+        final int[] start = new int[idLimit + 1];
+        for (final int key : keys) {
+            ++start[key + 1];
+        }
+        for (int x = 0; x < idLimit; ++x) {
+            start[x + 1] += start[x];
+        }
+        final long[] sorted = new long[keys.length];
+        final int[] fill = Arrays.copyOf(start, idLimit);
+        for (int e = 0; e < keys.length; ++e) {
+            sorted[fill[keys[e]]++] = (long) neighbors[e] << 32 | e;
+        }
+
+        final boolean withLabels = attributes.labels.length > 1;
+        final boolean withWeights = attributes.weightDictionary != null && attributes.weightDictionary.length > 1;
+        final boolean floats = attributes.weightDictionary == null && attributes.floats;
+        final boolean doubles = attributes.weightDictionary == null && !attributes.floats;
+        final float[] floatColumn = floats ? new float[keys.length] : null;
+        final double[] doubleColumn = doubles ? new double[keys.length] : null;
+        final ByteSink sink = new ByteSink(keys.length * 2 + idLimit);
+        final int[] offsets = new int[idLimit + 1];
+        final int[] skipStart = new int[idLimit + 1];
+        final IntList skipPrevious = new IntList();
+        final IntList skipOffset = new IntList();
+        int nodeCount = 0;
+
+        for (int x = 0; x < idLimit; ++x) {
+            offsets[x] = sink.size;
+            skipStart[x] = skipPrevious.size;
+            if (!present[x]) {
+                continue;
+            }
+            ++nodeCount;
+
+            // Neighbors in ascending order
+            Arrays.sort(sorted, start[x], start[x + 1]);
+            sink.writeVarint(start[x + 1] - start[x]);
+            int previous = x;
+            for (int k = start[x]; k < start[x + 1]; ++k) {
+                final int neighbor = (int) (sorted[k] >>> 32);
+                if (k == start[x]) {
+                    final int difference = neighbor - x;
+                    sink.writeVarint((difference << 1) ^ (difference >> 31));
+                }
+                else {
+                    if ((k - start[x]) % SKIP == 0) {
+                        skipPrevious.add(previous);
+                        skipOffset.add(sink.size);
+                    }
+                    sink.writeVarint(neighbor - previous);
+                }
+                final int e = (int) sorted[k];
+                if (withLabels) {
+                    sink.writeVarint(attributes.labelOf[e]);
+                }
+                if (withWeights) {
+                    sink.writeVarint(attributes.weightOf[e]);
+                }
+                if (floats) {
+                    floatColumn[k] = (float) attributes.weights[e];
+                }
+                else if (doubles) {
+                    doubleColumn[k] = attributes.weights[e];
+                }
+                previous = neighbor;
+            }
+        }
+        offsets[idLimit] = sink.size;
+        skipStart[idLimit] = skipPrevious.size;
+
+        return new CompressedAdjacency(offsets, Arrays.copyOf(sink.bytes, sink.size), skipStart,
+                skipPrevious.toArray(), skipOffset.toArray(), attributes, floats || doubles ? start : null,
+                floatColumn, doubleColumn, nodeCount);
+    }
+
+    /**
+     * @return bytes taken by the encoded neighbors, offsets, skip pointers and weight column,
+     * not counting the dictionaries shared with the other direction
+     */
+    long encodedBytes() {
+        long bytes = data.length + 4L * (offsets.length + skipStart.length + skipPrevious.length + skipOffset.length);
+        if (columnStart != null) {
+            bytes += 4L * columnStart.length;
+        }
+        if (floatColumn != null) {
+            bytes += 4L * floatColumn.length;
+        }
+        if (doubleColumn != null) {
+            bytes += 8L * doubleColumn.length;
+        }
+        return bytes;
+    }
+
+    private boolean hasNode(int x) {
+        return x >= 0 && x < offsets.length - 1 && offsets[x] < offsets[x + 1];
+    }
+
+    /**
+     * Reads varints from the data one after another
+     */
+    private final class Cursor {
+        int position;
+
+        Cursor(int position) {
+            this.position = position;
+        }
+
+        int readVarint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                final byte b = data[position++];
+                value |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+
+    private int degree(int x) {
+        return new Cursor(offsets[x]).readVarint();
+    }
+
+    /**
+     * Finds the edge to a neighbor, starting from the last skip pointer before it
+     *
+     * @return the edge, or null if there is none
+     */
+    private Edge find(int x, int target) {
+        final Cursor cursor;
+        int remaining;
+        int previous;
+        int index;
+
+        int skip = skipStart[x];
+        while (skip + 1 < skipStart[x + 1] && skipPrevious[skip + 1] < target) {
+            ++skip;
+        }
+        if (skip < skipStart[x + 1] && skipPrevious[skip] < target) {
+            cursor = new Cursor(skipOffset[skip]);
+            previous = skipPrevious[skip];
+            index = (skip - skipStart[x] + 1) * SKIP;
+            remaining = Math.min(SKIP, degree(x) - index);
+        }
+        else {
+            cursor = new Cursor(offsets[x]);
+            remaining = Math.min(SKIP, cursor.readVarint());
+            if (remaining == 0) {
+                return null;
+            }
+            final int difference = cursor.readVarint();
+            previous = x + ((difference >>> 1) ^ -(difference & 1));
+            if (previous >= target) {
+                return previous == target ? readEdge(cursor, x, 0) : null;
+            }
+            skipEdge(cursor);
+            index = 1;
+            --remaining;
+        }
+
+        for (; remaining > 0; --remaining, ++index) {
+            previous += cursor.readVarint();
+            if (previous >= target) {
+                return previous == target ? readEdge(cursor, x, index) : null;
+            }
+            skipEdge(cursor);
+        }
+        return null;
+    }
+
+    /**
+     * Reads the label and weight that follow a neighbor
+     *
+     * @param x vertex whose block is read
+     * @param index position of the neighbor among the vertex's neighbors
+     */
+    private Edge readEdge(Cursor cursor, int x, int index) {
+        if (uniform != null) {
+            return uniform;
+        }
+        final String label = labels[labels.length > 1 ? cursor.readVarint() : 0];
+        final double weight;
+        if (floatColumn != null) {
+            weight = floatColumn[columnStart[x] + index];
+        }
+        else if (doubleColumn != null) {
+            weight = doubleColumn[columnStart[x] + index];
+        }
+        else {
+            weight = weightDictionary[weightDictionary.length > 1 ? cursor.readVarint() : 0];
+        }
+        return new Edge(label, weight);
+    }
+
+    /**
+     * Moves past the label and weight that follow a neighbor
+     */
+    private void skipEdge(Cursor cursor) {
+        if (labels.length > 1) {
+            cursor.readVarint();
+        }
+        if (weightDictionary != null && weightDictionary.length > 1) {
+            cursor.readVarint();
+        }
+    }
+
+    /**
+     * @return every vertex mapped to its neighbors, decoded as they are looked up
+     */
+    Map<Integer, Map<Integer, Edge>> asMap() {
+        return new AbstractMap<Integer, Map<Integer, Edge>>() {
+            @Override
+            public boolean containsKey(Object key) {
+                return key instanceof Integer && hasNode((Integer) key);
+            }
+
+            @Override
+            public Map<Integer, Edge> get(Object key) {
+                return containsKey(key) ? new Neighbors((Integer) key) : null;
+            }
+
+            @Override
+            public int size() {
+                return nodeCount;
+            }
+
+            @Override
+            public Set<Entry<Integer, Map<Integer, Edge>>> entrySet() {
+                return new AbstractSet<Entry<Integer, Map<Integer, Edge>>>() {
+                    @Override
+                    public int size() {
+                        return nodeCount;
+                    }
+
+                    @Override
+                    public Iterator<Entry<Integer, Map<Integer, Edge>>> iterator() {
+                        return new Iterator<Entry<Integer, Map<Integer, Edge>>>() {
+                            private int next = advance(0);
+
+                            private int advance(int from) {
+                                int x = from;
+                                while (x < offsets.length - 1 && !hasNode(x)) {
+                                    ++x;
+                                }
+                                return x;
+                            }
+
+                            @Override
+                            public boolean hasNext() {
+                                return next < offsets.length - 1;
+                            }
+
+                            @Override
+                            public Entry<Integer, Map<Integer, Edge>> next() {
+                                if (!hasNext()) {
+                                    throw new NoSuchElementException();
+                                }
+                                final int x = next;
+                                next = advance(x + 1);
+                                return new SimpleImmutableEntry<>(x, new Neighbors(x));
+                            }
+                        };
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Neighbors of one vertex, decoded on every iteration
+     */
+    private final class Neighbors extends AbstractMap<Integer, Edge> {
+        private final int node;
+
+        Neighbors(int node) {
+            this.node = node;
+        }
+
+        @Override
+        public int size() {
+            return degree(node);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size() == 0;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Edge get(Object key) {
+            return key instanceof Integer ? find(node, (Integer) key) : null;
+        }
+
+        @Override
+        public Set<Entry<Integer, Edge>> entrySet() {
+            return new AbstractSet<Entry<Integer, Edge>>() {
+                @Override
+                public int size() {
+                    return degree(node);
+                }
+
+                @Override
+                public Iterator<Entry<Integer, Edge>> iterator() {
+                    final Cursor cursor = new Cursor(offsets[node]);
+                    final int degree = cursor.readVarint();
+                    return new Iterator<Entry<Integer, Edge>>() {
+                        private int read = 0;
+                        private int previous = node;
+
+                        @Override
+                        public boolean hasNext() {
+                            return read < degree;
+                        }
+
+                        @Override
+                        public Entry<Integer, Edge> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            final int gap = cursor.readVarint();
+                            previous += read == 0 ? (gap >>> 1) ^ -(gap & 1) : gap;
+                            return new SimpleImmutableEntry<>(previous, readEdge(cursor, node, read++));
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    /**
+     * Growable byte array for writing varints
+     */
+    private static final class ByteSink {
+        byte[] bytes;
+        int size = 0;
+
+        ByteSink(int capacity) {
+            bytes = new byte[Math.max(capacity, 16)];
+        }
+
+        void writeVarint(int value) {
+            if (size + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length + (bytes.length >> 1), size + 5));
+            }
+            int remaining = value;
+            while ((remaining & ~0x7f) != 0) {
+                bytes[size++] = (byte) ((remaining & 0x7f) | 0x80);
+                remaining >>>= 7;
+            }
+            bytes[size++] = (byte) remaining;
+        }
+    }
+
+    /**
+     * Growable int array
+     */
+    private static final class IntList {
+        int[] values = new int[16];
+        int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
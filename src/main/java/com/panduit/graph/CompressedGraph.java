@@ -0,0 +1,245 @@
+package com.panduit.graph;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+
+/**
+ * Read-only graph that keeps its edges delta and varint encoded, for graphs too large to
+ * hold as maps of maps.
+ *
+ * Vertex ids must not be negative and are used as array indexes, so they should be close to
+ * 0..n-1. Graphs with ids numbered so neighbors are close together take the least space;
+ * a snapshot reordered with a NodeOrdering gives such ids for any graph. Labels are stored
+ * once per distinct label, and weights the same way unless there are too many distinct ones
+ * to index in two bytes, in which case they get a column of their own.
+ *
+ * Neighbors are decoded on the fly as the algorithms iterate over them. Looking up an edge
+ * follows skip pointers and decodes at most a few neighbors, without a binary search.
+ */
+public final class CompressedGraph implements Graph<Integer> {
+    private final CompressedAdjacency outgoing;
+    private final CompressedAdjacency incoming;
+    private final long dictionaryBytes;
+
+    // Runs the regular algorithms over Map views of the encoded adjacency
+    private final DirectedGraph<Integer> graph;
+
+    private CompressedGraph(CompressedAdjacency outgoing, CompressedAdjacency incoming,
+                            long dictionaryBytes, long edgeCount) {
+        this.outgoing = outgoing;
+        this.incoming = incoming;
+        this.dictionaryBytes = dictionaryBytes;
+        this.graph = new DirectedGraph<>(outgoing.asMap(), incoming.asMap(), edgeCount);
+    }
+
+    /**
+     * Encodes a copy of a graph, keeping its vertex ids
+     *
+     * @param source graph with no negative vertex ids
+     * @return compressed copy of the graph
+     * @throws IllegalArgumentException if a vertex id is negative
+     */
+    public static CompressedGraph of(Graph<Integer> source) {
+        final CsrGraph<Integer> csr = source.snapshot();
+        final int[] ids = new int[csr.getNodeCount()];
+        for (int u = 0; u < ids.length; ++u) {
+            ids[u] = csr.getNode(u);
+            if (ids[u] < 0) {
+                throw new IllegalArgumentException("Vertex ids must not be negative: " + ids[u]);
+            }
+        }
+        return encode(csr, ids);
+    }
+
+    /**
+     * Encodes a snapshot, using its dense ids as the vertex ids. Reorder the snapshot first
+     * to put neighbors close together; csr.getNode maps the ids back to the original vertices.
+     *
+     * @param csr snapshot of any graph
+     * @return compressed copy of the snapshot, with vertices 0..n-1
+     */
+    public static CompressedGraph of(CsrGraph<?> csr) {
+        final int[] ids = new int[csr.getNodeCount()];
+        for (int u = 0; u < ids.length; ++u) {
+            ids[u] = u;
+        }
+        return encode(csr, ids);
+    }
+
+    /**
+     * @param csr snapshot to encode
+     * @param ids vertex id to give each of the snapshot's dense ids
+     */
+    private static CompressedGraph encode(CsrGraph<?> csr, int[] ids) {
+        final int n = csr.getNodeCount();
+        final int edgeCount = csr.getEdgeCount();
+
+        int idLimit = 0;
+        for (final int id : ids) {
+            idLimit = Math.max(idLimit, id + 1);
+        }
+        final boolean[] present = new boolean[idLimit];
+        for (final int id : ids) {
+            present[id] = true;
+        }
+
+        final int[] from = new int[edgeCount];
+        final int[] to = new int[edgeCount];
+        for (int u = 0; u < n; ++u) {
+            for (int e = csr.outOffsets[u]; e < csr.outOffsets[u + 1]; ++e) {
+                from[e] = ids[u];
+                to[e] = ids[csr.outTargets[e]];
+            }
+        }
+
+        final CompressedAdjacency.Attributes attributes = CompressedAdjacency.Attributes.of(csr.outEdges, csr.outWeights);
+        return new CompressedGraph(
+                CompressedAdjacency.encode(present, from, to, attributes),
+                CompressedAdjacency.encode(present, to, from, attributes),
+                attributes.encodedBytes(), edgeCount);
+    }
+
+    /**
+     * @return bytes taken by the encoded edges of both directions, their weight columns and
+     * the label and weight dictionaries
+     */
+    public long getEncodedBytes() {
+        return outgoing.encodedBytes() + incoming.encodedBytes() + dictionaryBytes;
+    }
+
+    public boolean addNode(Integer node) {
+        throw new UnsupportedOperationException("Compressed graphs are read-only");
+    }
+
+    public void removeNode(Integer node) {
+        throw new UnsupportedOperationException("Compressed graphs are read-only");
+    }
+
+    public boolean addEdge(Integer src, Integer dest, String label, double weight) {
+        throw new UnsupportedOperationException("Compressed graphs are read-only");
+    }
+
+    public void removeEdge(Integer src, Integer dest) {
+        throw new UnsupportedOperationException("Compressed graphs are read-only");
+    }
+
+    public boolean containsNode(Integer node) {
+        return graph.containsNode(node);
+    }
+
+    public boolean containsEdge(Integer u, Integer v) {
+        return graph.containsEdge(u, v);
+    }
+
+    public Optional<Edge> getEdge(Integer u, Integer v) {
+        return graph.getEdge(u, v);
+    }
+
+    public boolean isConnected(Integer u, Integer v) {
+        return graph.isConnected(u, v);
+    }
+
+    public boolean isConnected(Integer u, Integer v, Predicate<Edge> edgePredicate) {
+        return graph.isConnected(u, v, edgePredicate);
+    }
+
+    public QueryResult<Boolean> isConnected(Integer u, Integer v, QueryOptions options) {
+        return graph.isConnected(u, v, options);
+    }
+
+    public boolean isReachable(Integer u, Integer v) {
+        return graph.isReachable(u, v);
+    }
+
+    public List<Integer> findShortestPath(Integer src, Integer dest) {
+        return graph.findShortestPath(src, dest);
+    }
+
+    public List<Integer> findShortestPath(Integer src, Integer dest, Predicate<Edge> edgePredicate) {
+        return graph.findShortestPath(src, dest, edgePredicate);
+    }
+
+    public QueryResult<List<Integer>> findShortestPath(Integer src, Integer dest, QueryOptions options) {
+        return graph.findShortestPath(src, dest, options);
+    }
+
+    public List<Integer> findLongestPath(Integer src, Integer dest) {
+        return graph.findLongestPath(src, dest);
+    }
+
+    public Stream<List<Integer>> findKShortestPaths(Integer src, Integer dest, int k) {
+        return graph.findKShortestPaths(src, dest, k);
+    }
+
+    public Optional<List<Integer>> topologicalOrder() {
+        return graph.topologicalOrder();
+    }
+
+    public List<Set<Integer>> bfs(Integer src, int maxDepth) {
+        return graph.bfs(src, maxDepth);
+    }
+
+    public void bfs(Integer src, int maxDepth, BiConsumer<Integer, Integer> visitor) {
+        graph.bfs(src, maxDepth, visitor);
+    }
+
+    public StronglyConnectedComponents<Integer> getStronglyConnectedComponents() {
+        return graph.getStronglyConnectedComponents();
+    }
+
+    public Set<Integer> getNodes() {
+        return graph.getNodes();
+    }
+
+    public Map<Integer, Edge> getOutgoingEdges(Integer node) {
+        return graph.getOutgoingEdges(node);
+    }
+
+    public Map<Integer, Edge> getIncomingEdges(Integer node) {
+        return graph.getIncomingEdges(node);
+    }
+
+    public CsrGraph<Integer> snapshot() {
+        return graph.snapshot();
+    }
+
+    public Graph<Integer> reverse() {
+        return graph.reverse();
+    }
+
+    public Graph<Integer> inducedSubgraph(Set<Integer> nodes) {
+        return graph.inducedSubgraph(nodes);
+    }
+
+    public Graph<Integer> undirected() {
+        return graph.undirected();
+    }
+
+    public void printNodes() {
+        graph.printNodes();
+    }
+
+    public void printEdges() {
+        graph.printEdges();
+    }
+
+    @Override
+    public String toString() {
+        return graph.toString();
+    }
+
+    public String printDotFormat() {
+        return graph.printDotFormat();
+    }
+
+    public void export(GraphFormat format, Appendable out) throws IOException {
+        graph.export(format, out);
+    }
+}
@@ -0,0 +1,270 @@
+package com.panduit.graph;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Immutable, array based snapshot of a graph in compressed sparse row (CSR) layout.
+ *
+ * Every vertex gets a dense id in 0..n-1. The outgoing edges of vertex u are stored in
+ * positions outOffsets[u] up to, but not including, outOffsets[u + 1] of the edge arrays,
+ * sorted by the id of the vertex they point to. Incoming edges are laid out the same way.
+ *
+ * Algorithms that run many passes over the whole graph use this instead of the
+ * adjacency maps, to avoid hashing and boxing on every edge.
+ *
+ * @param <Node>
+ */
+public final class CsrGraph<Node> {
+    private final Object[] nodes;
+    private final Map<Node, Integer> ids;
+
+    final int[] outOffsets;
+    final int[] outTargets;
+    final double[] outWeights;
+    final Edge[] outEdges;
+
+    final int[] inOffsets;
+    final int[] inSources;
+    final double[] inWeights;
+
+    private CsrGraph(Object[] nodes, Map<Node, Integer> ids,
+                     int[] outOffsets, int[] outTargets, double[] outWeights, Edge[] outEdges,
+                     int[] inOffsets, int[] inSources, double[] inWeights) {
+        this.nodes = nodes;
+        this.ids = ids;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.outWeights = outWeights;
+        this.outEdges = outEdges;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+        this.inWeights = inWeights;
+    }
+
+    /**
+     * Builds a snapshot from adjacency maps. The caller must keep the map
+     * from being modified while this runs.
+     *
+     * @param outgoing adjacency map of the graph
+     * @return the snapshot
+     */
+    static <Node> CsrGraph<Node> of(Map<Node, Map<Node, Edge>> outgoing) {
+        final int n = outgoing.size();
+        final Object[] nodes = new Object[n];
+        final Map<Node, Integer> ids = new HashMap<>(n * 2);
+        int edgeCount = 0;
+        for (final Map.Entry<Node, Map<Node, Edge>> vertex : outgoing.entrySet()) {
+            nodes[ids.size()] = vertex.getKey();
+            ids.put(vertex.getKey(), ids.size());
+            edgeCount += vertex.getValue().size();
+        }
+
+        final int[] outOffsets = new int[n + 1];
+        final int[] outTargets = new int[edgeCount];
+        final double[] outWeights = new double[edgeCount];
+        final Edge[] outEdges = new Edge[edgeCount];
+        int position = 0;
+        for (int u = 0; u < n; ++u) {
+            outOffsets[u] = position;
+            @SuppressWarnings("unchecked")
+            final Map<Node, Edge> neighbors = outgoing.get((Node) nodes[u]);
+
+            // Sort the neighbors by id through a packed (id, insertion index) key
+            final long[] order = new long[neighbors.size()];
+            final Edge[] edges = new Edge[neighbors.size()];
+            int i = 0;
+            for (final Map.Entry<Node, Edge> neighbor : neighbors.entrySet()) {
+                order[i] = ((long) ids.get(neighbor.getKey()) << 32) | i;
+                edges[i] = neighbor.getValue();
+                ++i;
+            }
+            Arrays.sort(order);
+            for (final long key : order) {
+                final Edge edge = edges[(int) key];
+                outTargets[position] = (int) (key >>> 32);
+                outWeights[position] = edge.getWeight();
+                outEdges[position] = edge;
+                ++position;
+            }
+        }
+        outOffsets[n] = position;
+
+        return withIncoming(nodes, ids, outOffsets, outTargets, outWeights, outEdges);
+    }
+
+    /**
+     * Builds the incoming arrays by transposing the outgoing ones. Sources come out
+     * sorted because vertices are visited in id order.
+     */
+    static <Node> CsrGraph<Node> withIncoming(Object[] nodes, Map<Node, Integer> ids,
+                                             int[] outOffsets, int[] outTargets, double[] outWeights, Edge[] outEdges) {
+        final int n = nodes.length;
+        final int[] inOffsets = new int[n + 1];
+        for (final int target : outTargets) {
+            ++inOffsets[target + 1];
+        }
+        for (int v = 0; v < n; ++v) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+
+        final int[] inSources = new int[outTargets.length];
+        final double[] inWeights = new double[outTargets.length];
+        final int[] fill = Arrays.copyOf(inOffsets, n);
+        for (int u = 0; u < n; ++u) {
+            for (int e = outOffsets[u]; e < outOffsets[u + 1]; ++e) {
+                final int position = fill[outTargets[e]]++;
+                inSources[position] = u;
+                inWeights[position] = outWeights[e];
+            }
+        }
+        return new CsrGraph<>(nodes, ids, outOffsets, outTargets, outWeights, outEdges, inOffsets, inSources, inWeights);
+    }
+
+    /**
+     * Renumbers the vertices so that vertices visited together sit together in the arrays.
+     * Ids are assigned in hash order otherwise, which scatters every traversal across memory.
+     * getNode and getId map between the new ids and the vertices as before.
+     *
+     * @param ordering how to pick the new ids
+     * @return copy of the snapshot with the new ids
+     */
+    public CsrGraph<Node> reorder(NodeOrdering ordering) {
+        final int[] order = ordering.order(this);
+        final int n = nodes.length;
+        final int[] newIds = new int[n];
+        for (int id = 0; id < n; ++id) {
+            newIds[order[id]] = id;
+        }
+
+        final Object[] reordered = new Object[n];
+        final Map<Node, Integer> reorderedIds = new HashMap<>(n * 2);
+        for (int id = 0; id < n; ++id) {
+            reordered[id] = nodes[order[id]];
+            reorderedIds.put(getNode(order[id]), id);
+        }
+
+        final int[] offsets = new int[n + 1];
+        final int[] targets = new int[outTargets.length];
+        final double[] weights = new double[outTargets.length];
+        final Edge[] edges = new Edge[outTargets.length];
+        int position = 0;
+        for (int u = 0; u < n; ++u) {
+            offsets[u] = position;
+            final int old = order[u];
+
+            // Neighbors stay sorted by id, now the new id
+            final int first = outOffsets[old];
+            final long[] sorted = new long[outOffsets[old + 1] - first];
+            for (int i = 0; i < sorted.length; ++i) {
+                sorted[i] = ((long) newIds[outTargets[first + i]] << 32) | (first + i);
+            }
+            Arrays.sort(sorted);
+            for (final long key : sorted) {
+                final int e = (int) key;
+                targets[position] = (int) (key >>> 32);
+                weights[position] = outWeights[e];
+                edges[position] = outEdges[e];
+                ++position;
+            }
+        }
+        offsets[n] = position;
+
+        return withIncoming(reordered, reorderedIds, offsets, targets, weights, edges);
+    }
+
+    /**
+     * Writes the snapshot out edge by edge. No lock is held, so the graph the snapshot was
+     * taken from stays free to change while a large export is written.
+     *
+     * @param format text format to write
+     * @param out where to write
+     * @throws IOException if out throws
+     */
+    public void export(GraphFormat format, Appendable out) throws IOException {
+        format.begin(out);
+        for (int u = 0; u < nodes.length; ++u) {
+            format.node(out, nodes[u]);
+            if (getOutDegree(u) == 0 && getInDegree(u) == 0) {
+                format.isolatedNode(out, nodes[u]);
+            }
+        }
+        for (int u = 0; u < nodes.length; ++u) {
+            for (int e = outOffsets[u]; e < outOffsets[u + 1]; ++e) {
+                format.edge(out, nodes[u], nodes[outTargets[e]], outEdges[e]);
+            }
+        }
+        format.end(out);
+    }
+
+    /**
+     * Writes the snapshot to a channel through a fixed size buffer
+     *
+     * @param format text format to write
+     * @param channel where to write. It is not closed.
+     * @throws IOException if writing to the channel fails
+     */
+    public void export(GraphFormat format, WritableByteChannel channel) throws IOException {
+        final ChannelAppendable out = new ChannelAppendable(channel);
+        export(format, out);
+        out.close();
+    }
+
+    /**
+     * @return number of vertices
+     */
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    /**
+     * @return number of edges
+     */
+    public int getEdgeCount() {
+        return outTargets.length;
+    }
+
+    /**
+     * @param id dense id of a vertex
+     * @return the vertex
+     */
+    @SuppressWarnings("unchecked")
+    public Node getNode(int id) {
+        return (Node) nodes[id];
+    }
+
+    /**
+     * @param node
+     * @return dense id of the vertex, or -1 if it is not in the snapshot
+     */
+    public int getId(Node node) {
+        final Integer id = ids.get(node);
+        return id == null ? -1 : id;
+    }
+
+    public int getOutDegree(int id) {
+        return outOffsets[id + 1] - outOffsets[id];
+    }
+
+    public int getInDegree(int id) {
+        return inOffsets[id + 1] - inOffsets[id];
+    }
+
+    /**
+     * Converts per vertex values, indexed by dense id, to a map keyed by vertex
+     *
+     * @param values one value per vertex
+     * @return map from vertex to its value
+     */
+    public Map<Node, Double> toMap(double[] values) {
+        final Map<Node, Double> map = new HashMap<>(nodes.length * 2);
+        for (int id = 0; id < nodes.length; ++id) {
+            map.put(getNode(id), values[id]);
+        }
+        return map;
+    }
+}
@@ -4,21 +4,37 @@ import java.io.FileNotFoundException;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.AbstractMap;
 import java.util.ArrayList;
-import java.util.Deque;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.List;
-import java.util.LinkedList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.PriorityQueue;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.Stack;
-import org.apache.commons.collections4.MapUtils;
-import org.apache.commons.lang3.text.StrBuilder;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import com.google.common.collect.ForwardingMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import java.util.stream.StreamSupport;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 
 
 public class DirectedGraph<Node> implements Graph<Node> {
@@ -26,15 +42,78 @@ public class DirectedGraph<Node> implements Graph<Node> {
     // Keeps track of neighbor vertices being pointed to by the key vertex
     // Edge information e.g. label, weight, etc., is kept as a payload attached
     // to each destination vertex that forms an edge.
-    private final Map<Node, Map<Node, Edge>> outgoing = new HashMap<>();
+    private final Map<Node, Map<Node, Edge>> outgoing;
 
     // Keeps track of vertices pointing to the key vertex
-    private final Map<Node, Map<Node, Edge>> incoming = new HashMap<>();
+    private final Map<Node, Map<Node, Edge>> incoming;
+
+    // The graph whose maps and lock a view reads through, or null if this graph owns its maps
+    private final DirectedGraph<Node> base;
+
+    // Number of edges in the graph. Used by traversals to estimate how much work is left.
+    private long edgeCount = 0;
+
+    // Bumped on every change to the graph. Derived indexes remember the version
+    // they were computed at, so they can tell when they are out of date.
+    private long version = 0;
+
+    // Derived indexes, computed on first use
+    private volatile Cached<StronglyConnectedComponents<Node>> components;
+    private volatile Cached<ReachabilityIndex<Node>> reachability;
+    private volatile Cached<Optional<AcyclicPaths.Order<Node>>> topologicalOrder;
+
+    // Optional cache of shortest path results, keyed by (src, dest). Each path carries the
+    // version it was found at; one from an older version is found again.
+    private volatile Cache<Map.Entry<Node, Node>, Cached<List<Node>>> shortestPaths;
 
     // Try to make this thread-safe
-    private final ReentrantReadWriteLock rwlock = new ReentrantReadWriteLock();
-    private final Lock readLock = rwlock.readLock();
-    private final Lock writeLock = rwlock.writeLock();
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    // Receives timings and work counts. The no-op default skips the timestamps altogether.
+    private volatile GraphMetrics metrics = GraphMetrics.NOOP;
+
+    // Changes are only recorded once someone subscribes
+    private static final int EVENT_RING_CAPACITY = 1 << 16;
+    private GraphEventBus<Node> events;
+
+    // Shortest path trees repaired on every change, once someone asks for one
+    private List<ShortestPathTree<Node>> trees;
+
+    public DirectedGraph() {
+        this(new HashMap<>(), new HashMap<>(), 0);
+    }
+
+    /**
+     * Takes ownership of adjacency maps filled in by a bulk loader. Every vertex must be a key
+     * in both maps, and an edge must be the same Edge object in both.
+     *
+     * @param outgoing neighbors each vertex points to
+     * @param incoming neighbors pointing to each vertex
+     * @param edgeCount number of edges in the maps
+     */
+    DirectedGraph(Map<Node, Map<Node, Edge>> outgoing, Map<Node, Map<Node, Edge>> incoming, long edgeCount) {
+        this.outgoing = outgoing;
+        this.incoming = incoming;
+        this.base = null;
+        this.edgeCount = edgeCount;
+
+        final ReentrantReadWriteLock rwlock = new ReentrantReadWriteLock();
+        readLock = new MeteredLock(rwlock.readLock(), false);
+        writeLock = new MeteredLock(rwlock.writeLock(), true);
+    }
+
+    /**
+     * Creates a read-only view that runs the regular algorithms on transformed
+     * adjacency maps of another graph, under that graph's lock
+     */
+    private DirectedGraph(DirectedGraph<Node> viewOf, Map<Node, Map<Node, Edge>> outgoing, Map<Node, Map<Node, Edge>> incoming) {
+        this.outgoing = outgoing;
+        this.incoming = incoming;
+        this.base = viewOf.base == null ? viewOf : viewOf.base;
+        this.readLock = base.readLock;
+        this.writeLock = base.writeLock;
+    }
 
     /**
      * Checks for the existence of a vertex in the graph
@@ -97,7 +176,7 @@ public class DirectedGraph<Node> implements Graph<Node> {
             }
 
             final Map<Node, Edge> neighbors = outgoing.get(src);
-            return Optional.of(neighbors.get(dest));
+            return Optional.ofNullable(neighbors.get(dest));
         }
         finally {
             readLock.unlock();
@@ -114,11 +193,77 @@ public class DirectedGraph<Node> implements Graph<Node> {
      * @return true if vertices are connected in the graph
      */
     public boolean isConnected(Node u, Node v) {
+        return isConnected(u, v, EdgeFilter.all());
+    }
+
+    /**
+     * Checks if two vertices are connected through a path made only of edges
+     * that pass the predicate, regardless of the direction of the edges.
+     * The predicate is applied during the traversal; the graph is not copied.
+     *
+     * @param u
+     * @param v
+     * @param edgePredicate decides which edges, by label and weight, may be used
+     * @return true if vertices are connected using the accepted edges
+     */
+    public boolean isConnected(Node u, Node v, Predicate<Edge> edgePredicate) {
+        return isConnected(u, v, (src, dest, edge) -> edgePredicate.test(edge));
+    }
+
+    /**
+     * Checks if two vertices are connected, regardless of the direction of the edges,
+     * giving up when the options' limits are reached
+     *
+     * @param u
+     * @param v
+     * @param options timeout, budget of vertices visited and cancellation
+     * @return whether the vertices are connected, or why the search stopped first
+     */
+    public QueryResult<Boolean> isConnected(Node u, Node v, QueryOptions options) {
+        if (u == null || v == null) {
+            return new QueryResult<>(QueryResult.Status.COMPLETE, false, 0);
+        }
+
+        final long start = startTimer();
+        final Budget budget = options.start();
+        if (!budget.lock(readLock)) {
+            stopTimer(GraphMetrics.Operation.IS_CONNECTED, start);
+            return budget.result(null);
+        }
+        try {
+            return budget.result(connected(u, v, EdgeFilter.all(), budget));
+        }
+        finally {
+            readLock.unlock();
+            stopTimer(GraphMetrics.Operation.IS_CONNECTED, start);
+        }
+    }
+
+    private boolean isConnected(Node u, Node v, EdgeFilter<Node> filter) {
         if (u == null || v == null) {
             return false;
         }
 
+        final long start = startTimer();
         readLock.lock();
+        try {
+            return connected(u, v, filter, null);
+        }
+        finally {
+            readLock.unlock();
+            stopTimer(GraphMetrics.Operation.IS_CONNECTED, start);
+        }
+    }
+
+    /**
+     * Called with the read lock held
+     *
+     * @param budget stops the search when it runs out, or null for no limit
+     */
+    private boolean connected(Node u, Node v, EdgeFilter<Node> filter, Budget budget) {
+        // Keeps track of nodes that have been visited
+        final Set<Node> visited = new HashSet<>();
+
         try {
             // Nodes are not connected if one or both
             // of the nodes do not exist in the graph
@@ -128,41 +273,49 @@ public class DirectedGraph<Node> implements Graph<Node> {
 
             // There exists a loop at this node so it's
             // connected to itself
-            if (u == v && containsEdge(u, v)) {
+            final Edge loop = outgoing.get(u).get(v);
+            if (u.equals(v) && loop != null && filter.accept(u, v, loop)) {
                 return true;
             }
 
-            // Keeps track of nodes that have been visited
-            final Set<Node> visited = new HashSet<>();
             final Stack<Node> stack = new Stack<>();
 
             stack.push(u);
             while (!stack.isEmpty()) {
                 u = stack.pop();
                 if (!visited.contains(u)) {
+                    if (budget != null && !budget.spend()) {
+                        return false;
+                    }
                     visited.add(u);
-                    for (final Node outNeighbor : outgoing.get(u).keySet()) {
-                        if (outNeighbor == v) {
+                    for (final Map.Entry<Node, Edge> outNeighbor : outgoing.get(u).entrySet()) {
+                        if (!filter.accept(u, outNeighbor.getKey(), outNeighbor.getValue())) {
+                            continue;
+                        }
+                        if (outNeighbor.getKey().equals(v)) {
                             return true;
                         }
-                        stack.push(outNeighbor);
+                        stack.push(outNeighbor.getKey());
                     }
 
                     // Vertices C and A are connected even if the graph is A --> B --> C
                     // It is obvious starting from A, we can see that C is a connection.
                     // Starting from C, we should be able to find a connection to A as well.
-                    for (final Node inNeighbor : incoming.get(u).keySet()) {
-                        if (inNeighbor == v) {
+                    for (final Map.Entry<Node, Edge> inNeighbor : incoming.get(u).entrySet()) {
+                        if (!filter.accept(inNeighbor.getKey(), u, inNeighbor.getValue())) {
+                            continue;
+                        }
+                        if (inNeighbor.getKey().equals(v)) {
                             return true;
                         }
-                        stack.push(inNeighbor);
+                        stack.push(inNeighbor.getKey());
                     }
                 }
             }
             return false;
         }
         finally {
-            readLock.unlock();
+            metrics.nodesVisited(visited.size());
         }
     }
 
@@ -170,75 +323,506 @@ public class DirectedGraph<Node> implements Graph<Node> {
      * Find the shortest path between two nodes. This is a direct
      * implementation of Dijkstra's algorithm.
      * @link https://en.wikipedia.org/wiki/Dijkstra's_algorithm
+     * @implNote If the graph has no cycles, edges are relaxed in topological
+     * order instead, which takes linear time.
      *
      * @param src
      * @param dest
      * @return shortest path of nodes from src to dest
      */
     public List<Node> findShortestPath(Node src, Node dest) {
-        final Map<Node, Node> prevMap = new HashMap<>();
+        final long start = startTimer();
+        final Cache<Map.Entry<Node, Node>, Cached<List<Node>>> cache = shortestPaths;
+        if (cache == null || src == null || dest == null) {
+            try {
+                return computeShortestPath(src, dest, EdgeFilter.all());
+            }
+            finally {
+                stopTimer(GraphMetrics.Operation.FIND_SHORTEST_PATH, start);
+            }
+        }
 
+        // Hold the read lock so that no change can slip in between computing
+        // a path and caching it with the version it was computed at
         readLock.lock();
+        try {
+            final Map.Entry<Node, Node> key = new AbstractMap.SimpleImmutableEntry<>(src, dest);
+            Cached<List<Node>> path = cache.getIfPresent(key);
+            if (path == null || path.version != currentVersion()) {
+                path = new Cached<>(currentVersion(),
+                        Collections.unmodifiableList(computeShortestPath(src, dest, EdgeFilter.all())));
+                cache.put(key, path);
+            }
+            return new ArrayList<>(path.value);
+        }
+        finally {
+            readLock.unlock();
+            stopTimer(GraphMetrics.Operation.FIND_SHORTEST_PATH, start);
+        }
+    }
+
+    /**
+     * Find the shortest path between two nodes using only the edges that pass the
+     * predicate, e.g. only edges with a certain label. The predicate is applied
+     * during the search; the graph is not copied. Results are not cached.
+     *
+     * @param src
+     * @param dest
+     * @param edgePredicate decides which edges, by label and weight, may be used
+     * @return shortest path of nodes from src to dest using the accepted edges
+     */
+    public List<Node> findShortestPath(Node src, Node dest, Predicate<Edge> edgePredicate) {
+        final long start = startTimer();
+        try {
+            return computeShortestPath(src, dest, (u, v, edge) -> edgePredicate.test(edge));
+        }
+        finally {
+            stopTimer(GraphMetrics.Operation.FIND_SHORTEST_PATH, start);
+        }
+    }
+
+    /**
+     * Find the shortest path between two nodes, giving up when the options' limits are
+     * reached. Results are not cached. With limits set, an acyclic graph is only searched in
+     * topological order if the order is already cached, e.g. by topologicalOrder(); otherwise
+     * Dijkstra is used, which takes weights to be non-negative.
+     *
+     * @param src
+     * @param dest
+     * @param options timeout, budget of vertices settled and cancellation
+     * @return shortest path of nodes from src to dest, or why the search stopped first
+     */
+    public QueryResult<List<Node>> findShortestPath(Node src, Node dest, QueryOptions options) {
+        final long start = startTimer();
+        final Budget budget = options.start();
+        if (!budget.lock(readLock)) {
+            stopTimer(GraphMetrics.Operation.FIND_SHORTEST_PATH, start);
+            return budget.result(null);
+        }
+        try {
+            return budget.result(shortestPath(src, dest, EdgeFilter.all(), budget));
+        }
+        finally {
+            readLock.unlock();
+            stopTimer(GraphMetrics.Operation.FIND_SHORTEST_PATH, start);
+        }
+    }
+
+    private List<Node> computeShortestPath(Node src, Node dest, EdgeFilter<Node> filter) {
+        readLock.lock();
+        try {
+            return shortestPath(src, dest, filter, null);
+        }
+        finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Called with the read lock held
+     *
+     * @param budget stops the search when it runs out, or null for no limit
+     */
+    private List<Node> shortestPath(Node src, Node dest, EdgeFilter<Node> filter, Budget budget) {
+        long settled = 0;
         try {
             if (!containsNode(src) || !containsNode(dest)) {
                 return new ArrayList<>();
             }
 
-            // Initialize the maps with the starting node
-            final Map<Node, Double> distance = new HashMap<>();
-            distance.put(src, new Double(0));
-            prevMap.put(src, null);
+            // Sorting the graph takes no less than the search it saves, so a limited query
+            // only walks the order when it is already cached
+            final Optional<AcyclicPaths.Order<Node>> order = budget == null || budget.isUnlimited()
+                    ? acyclicOrder()
+                    : cachedAcyclicOrder();
+            if (order.isPresent()) {
+                // A topological order of the graph is also one of any part of it
+                final ShortestPaths.Tree<Node> tree = AcyclicPaths.findPath(outgoing, order.get(), src, dest, false, filter, budget);
+                settled = tree.settled;
+                return tree.pathTo(dest);
+            }
 
-            for (final Node node : outgoing.keySet()) {
-                if (node != src) {
-                    distance.put(node, Double.POSITIVE_INFINITY);
-                }
+            final ShortestPaths.Tree<Node> tree = ShortestPaths.find(outgoing, src, dest, filter, budget);
+            settled = tree.settled;
+            return tree.pathTo(dest);
+        }
+        finally {
+            metrics.nodesSettled(settled);
+        }
+    }
+
+    /**
+     * Finds up to k shortest paths between two nodes, shortest first. Paths do not
+     * visit any vertex twice. Paths are computed lazily as the stream is consumed,
+     * so taking only the first few costs only as much as those few.
+     * @implNote Yen's algorithm. Each path is computed under the read lock, and the
+     * stream fails with ConcurrentModificationException if the graph changed since it was created.
+     * @link https://en.wikipedia.org/wiki/Yen%27s_algorithm
+     *
+     * @param src
+     * @param dest
+     * @param k maximum number of paths
+     * @return stream of paths of nodes from src to dest
+     */
+    public Stream<List<Node>> findKShortestPaths(Node src, Node dest, int k) {
+        readLock.lock();
+        try {
+            if (k <= 0 || !containsNode(src) || !containsNode(dest)) {
+                return Stream.empty();
             }
 
-            final PriorityQueue<Node> pq = new PriorityQueue<>();
-            pq.add(src);
-            while (!pq.isEmpty()) {
-                final Node u = pq.remove();
+            final long expectedVersion = currentVersion();
+            final KShortestPaths<Node> paths = new KShortestPaths<>(outgoing, src, dest);
+            final Iterator<List<Node>> iterator = new Iterator<List<Node>>() {
+                private int produced = 0;
+                private List<Node> next;
 
-                // Done. Found the destination node.
-                if (u == dest) {
-                    break;
+                @Override
+                public boolean hasNext() {
+                    if (next == null && produced < k) {
+                        next = computeNext();
+                    }
+                    return next != null;
+                }
+
+                @Override
+                public List<Node> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    final List<Node> path = next;
+                    next = null;
+                    ++produced;
+                    return path;
                 }
 
-                // For every neighbor v of u
-                for (final Node v : outgoing.get(u).keySet()) {
-                    double altDistance = distance.get(u) + getEdge(u, v).get().getWeight();
+                private List<Node> computeNext() {
+                    final long start = startTimer();
+                    readLock.lock();
+                    try {
+                        if (currentVersion() != expectedVersion) {
+                            throw new ConcurrentModificationException();
+                        }
+                        final List<Node> path = paths.next();
+                        if (path == null) {
+                            // Exhausted. Stop asking.
+                            produced = k;
+                        }
+                        return path;
+                    }
+                    finally {
+                        readLock.unlock();
+                        metrics.nodesSettled(paths.takeSettled());
+                        stopTimer(GraphMetrics.Operation.FIND_K_SHORTEST_PATHS, start);
+                    }
+                }
+            };
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                    Spliterator.ORDERED | Spliterator.NONNULL), false);
+        }
+        finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Breadth first search starting at 'src', going at most 'maxDepth' hops
+     * along outgoing edges.
+     * @implNote Switches between top-down and bottom-up expansion per level,
+     * and expands large levels in parallel.
+     *
+     * @param src starting vertex
+     * @param maxDepth maximum number of hops from src. Use Integer.MAX_VALUE for no limit.
+     * @return vertices grouped by level, where the i-th set holds the vertices i hops away from src
+     */
+    public List<Set<Node>> bfs(Node src, int maxDepth) {
+        final long start = startTimer();
+        readLock.lock();
+        try {
+            return new BreadthFirstSearch<>(outgoing, incoming, edgeCount()).levels(src, maxDepth);
+        }
+        finally {
+            readLock.unlock();
+            stopTimer(GraphMetrics.Operation.BFS, start);
+        }
+    }
+
+    /**
+     * Breadth first search starting at 'src', going at most 'maxDepth' hops
+     * along outgoing edges. The visitor is called on the calling thread for every
+     * vertex reached, level by level, while the read lock is held. It must not modify the graph.
+     *
+     * @param src starting vertex
+     * @param maxDepth maximum number of hops from src. Use Integer.MAX_VALUE for no limit.
+     * @param visitor receives each vertex along with its distance in hops from src
+     */
+    public void bfs(Node src, int maxDepth, BiConsumer<Node, Integer> visitor) {
+        final long start = startTimer();
+        readLock.lock();
+        try {
+            new BreadthFirstSearch<>(outgoing, incoming, edgeCount()).run(src, maxDepth, (level, depth) -> {
+                for (final Node node : level) {
+                    visitor.accept(node, depth);
+                }
+            });
+        }
+        finally {
+            readLock.unlock();
+            stopTimer(GraphMetrics.Operation.BFS, start);
+        }
+    }
+
+    /**
+     * Finds the strongly connected components of the graph, i.e. the groups of vertices
+     * that can all reach each other along directed edges.
+     * @implNote The result is cached until the next change to the graph.
+     *
+     * @return components and the condensation DAG
+     */
+    public StronglyConnectedComponents<Node> getStronglyConnectedComponents() {
+        final long start = startTimer();
+        readLock.lock();
+        try {
+            return components();
+        }
+        finally {
+            readLock.unlock();
+            stopTimer(GraphMetrics.Operation.STRONGLY_CONNECTED_COMPONENTS, start);
+        }
+    }
+
+    /**
+     * The cached components. Called with the read lock held.
+     */
+    private StronglyConnectedComponents<Node> components() {
+        final Cached<StronglyConnectedComponents<Node>> cached = components;
+        if (cached != null && cached.version == currentVersion()) {
+            return cached.value;
+        }
+
+        // Readers may race to compute this. They produce the same result so either one can win.
+        final StronglyConnectedComponents<Node> result = StronglyConnectedComponents.compute(outgoing);
+        components = new Cached<>(currentVersion(), result);
+        return result;
+    }
+
+    /**
+     * Checks if there is a directed path from u to v, following the direction of the edges.
+     * A vertex always reaches itself.
+     * @implNote Backed by an index over the strongly connected components,
+     * built on first use and kept until the next change to the graph.
+     *
+     * @param u starting vertex
+     * @param v vertex to reach
+     * @return true if v can be reached from u
+     */
+    public boolean isReachable(Node u, Node v) {
+        if (u == null || v == null) {
+            return false;
+        }
+
+        final long start = startTimer();
+        readLock.lock();
+        try {
+            Cached<ReachabilityIndex<Node>> cached = reachability;
+            if (cached == null || cached.version != currentVersion()) {
+                cached = new Cached<>(currentVersion(), ReachabilityIndex.build(outgoing, components()));
+                reachability = cached;
+            }
+            return cached.value.isReachable(u, v);
+        }
+        finally {
+            readLock.unlock();
+            stopTimer(GraphMetrics.Operation.IS_REACHABLE, start);
+        }
+    }
+
+    /**
+     * Caches the results of findShortestPath, evicting the least recently used
+     * (src, dest) pairs beyond the given size. Paths cached before the graph last changed
+     * are not used, and are replaced as they are asked for again.
+     * Replaces any cache enabled earlier, along with its statistics.
+     *
+     * @param maximumSize maximum number of paths to keep
+     */
+    public void enableShortestPathCache(int maximumSize) {
+        shortestPaths = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Stops caching the results of findShortestPath
+     */
+    public void disableShortestPathCache() {
+        shortestPaths = null;
+    }
+
+    /**
+     * @return hit, miss and eviction counts of the shortest path cache. A path found to be
+     * out of date counts as a hit. All zeros if the cache is not enabled.
+     */
+    public CacheStats getShortestPathCacheStats() {
+        final Cache<Map.Entry<Node, Node>, Cached<List<Node>>> cache = shortestPaths;
+        return cache == null ? new CacheStats(0, 0, 0, 0, 0, 0) : cache.stats();
+    }
+
+    /**
+     * Sends timings, lock contention and work counts to the given listener.
+     * Use GraphMetrics.NOOP, the default, to stop recording.
+     *
+     * @param metrics listener to record to
+     */
+    public void setMetrics(GraphMetrics metrics) {
+        this.metrics = metrics == null ? GraphMetrics.NOOP : metrics;
+    }
+
+    public GraphMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Follows the changes made to the graph from now on. Each subscription gets its own
+     * thread, which hands the listener batches of events in the order the changes were made.
+     * Writers only store each event in a ring buffer, so a listener never runs under the
+     * graph's lock. If a listener falls a whole ring behind, writers wait for it to catch up,
+     * so a listener must not wait on anything that needs the graph's lock.
+     *
+     * @param listener receives the events
+     * @return subscription to close when the events are no longer needed
+     */
+    public GraphEventBus<Node>.Subscription subscribe(GraphListener<Node> listener) {
+        checkWritable();
+        writeLock.lock();
+        try {
+            if (events == null) {
+                events = new GraphEventBus<>(EVENT_RING_CAPACITY);
+            }
+            return events.subscribe(listener);
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
 
-                    // Shorter distance found. Add to the path.
-                    if (altDistance < distance.get(v)) {
-                        distance.put(v, altDistance);
-                        prevMap.put(v, u);
-                        pq.add(v);
+    /**
+     * Keeps the shortest paths from a source up to date as the graph changes, so they can be
+     * read without searching. Each change repairs only the part of the tree it affects,
+     * which adds to the cost of every change until the tree is closed. While a tree is
+     * tracked, addEdge rejects weights that are negative or NaN.
+     *
+     * @param source vertex the paths start from. It need not be in the graph yet.
+     * @return tree of shortest paths from source, to close when no longer needed
+     * @throws IllegalArgumentException if the graph has an edge weighted negative or NaN
+     */
+    public ShortestPathTree<Node> trackShortestPaths(Node source) {
+        checkWritable();
+        if (source == null) {
+            throw new IllegalArgumentException("Need a source");
+        }
+        writeLock.lock();
+        try {
+            for (final Map<Node, Edge> neighbors : outgoing.values()) {
+                for (final Edge edge : neighbors.values()) {
+                    if (!(edge.getWeight() >= 0)) {
+                        throw new IllegalArgumentException("Shortest paths are not tracked with negative weights");
                     }
                 }
             }
+            final ShortestPathTree<Node> tree = new ShortestPathTree<>(this, source, outgoing, incoming, readLock);
+            if (trees == null) {
+                trees = new ArrayList<>();
+            }
+            trees.add(tree);
+            return tree;
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    void untrackShortestPaths(ShortestPathTree<Node> tree) {
+        writeLock.lock();
+        try {
+            if (trees != null) {
+                trees.remove(tree);
+            }
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Find the longest path between two nodes. This is only well defined
+     * when the graph has no cycles.
+     * @implNote Relaxes edges in topological order, which takes linear time.
+     *
+     * @param src
+     * @param dest
+     * @return longest path of nodes from src to dest, or an empty path if
+     * there is none or the graph has a cycle
+     */
+    public List<Node> findLongestPath(Node src, Node dest) {
+        final long start = startTimer();
+        readLock.lock();
+        try {
+            if (!containsNode(src) || !containsNode(dest)) {
+                return new ArrayList<>();
+            }
+
+            final Optional<AcyclicPaths.Order<Node>> order = acyclicOrder();
+            if (!order.isPresent()) {
+                return new ArrayList<>();
+            }
+            final ShortestPaths.Tree<Node> tree = AcyclicPaths.findPath(outgoing, order.get(), src, dest, true, EdgeFilter.all());
+            metrics.nodesSettled(tree.settled);
+            return tree.pathTo(dest);
         }
         finally {
             readLock.unlock();
+            stopTimer(GraphMetrics.Operation.FIND_LONGEST_PATH, start);
         }
-        return buildShortestPath(prevMap, dest);
     }
 
-    private List<Node> buildShortestPath(Map<Node, Node> prevMap, Node dest) {
-        if (MapUtils.isEmpty(prevMap)) {
-            return new ArrayList<>();
+    /**
+     * Orders the vertices so that every edge points from an earlier vertex to a later one.
+     * @implNote Kahn's algorithm. The result, including whether the graph has a cycle,
+     * is cached until the next change to the graph.
+     *
+     * @return vertices in topological order, or empty if the graph has a cycle
+     */
+    public Optional<List<Node>> topologicalOrder() {
+        final long start = startTimer();
+        readLock.lock();
+        try {
+            return acyclicOrder().map(order -> order.nodes);
+        }
+        finally {
+            readLock.unlock();
+            stopTimer(GraphMetrics.Operation.TOPOLOGICAL_ORDER, start);
         }
+    }
 
-        // Construct the shortest path in reverse, starting
-        // with the destination node and working its way back
-        // to the starting node using the previous map (prevMap).
-        // Use a deque to reverse the order of the nodes.
-        final Deque<Node> deque = new LinkedList<>();
-        while (prevMap.containsKey(dest)) {
-            deque.addFirst(dest);
-            dest = prevMap.get(dest);
+    /**
+     * The cached topological order, with the position of each vertex. Called with the read lock held.
+     */
+    private Optional<AcyclicPaths.Order<Node>> acyclicOrder() {
+        Cached<Optional<AcyclicPaths.Order<Node>>> cached = topologicalOrder;
+        if (cached == null || cached.version != currentVersion()) {
+            cached = new Cached<>(currentVersion(), AcyclicPaths.topologicalOrder(outgoing, incoming));
+            topologicalOrder = cached;
         }
-        return new ArrayList<>(deque);
+        return cached.value;
+    }
+
+    /**
+     * The topological order if it is cached and current, without computing it. Called with the read lock held.
+     */
+    private Optional<AcyclicPaths.Order<Node>> cachedAcyclicOrder() {
+        final Cached<Optional<AcyclicPaths.Order<Node>>> cached = topologicalOrder;
+        return cached != null && cached.version == currentVersion() ? cached.value : Optional.empty();
     }
 
     /**
@@ -248,53 +832,83 @@ public class DirectedGraph<Node> implements Graph<Node> {
      * @return true if vertex was added successfully to graph, false otherwise
      */
     public boolean addNode(Node node) {
+        checkWritable();
         if (node == null) {
             return false;
         }
 
+        final long start = startTimer();
         writeLock.lock();
         try {
-            if (outgoing.containsKey(node)) {
-                return false;
-            }
-
-            // Add the node to the graph but it has no connections
-            outgoing.put(node, new HashMap<>());
-            incoming.put(node, new HashMap<>());
-            return true;
+            return insertNode(node);
         }
         finally {
             writeLock.unlock();
+            stopTimer(GraphMetrics.Operation.ADD_NODE, start);
         }
     }
 
+    /**
+     * Called with the write lock held, so that only the outermost public call is timed
+     */
+    private boolean insertNode(Node node) {
+        if (outgoing.containsKey(node)) {
+            return false;
+        }
+
+        // Add the node to the graph but it has no connections
+        outgoing.put(node, new HashMap<>());
+        incoming.put(node, new HashMap<>());
+        changed();
+        if (trees != null) {
+            for (final ShortestPathTree<Node> tree : trees) {
+                tree.nodeAdded(node);
+            }
+        }
+        publish(GraphEvent.Type.ADD_NODE, node, null, null);
+        return true;
+    }
+
     /**
      * Remove a vertex from the graph
      *
      * @param node to remove from the graph
      */
     public void removeNode(Node node) {
+        checkWritable();
         if (node == null) {
             return;
         }
 
+        final long start = startTimer();
         writeLock.lock();
         try {
             if (!outgoing.containsKey(node)) {
                 return;
             }
 
-            // Remove the edges that connect the neighbors to this node
-            // It's important to iterate using a copy of incoming edges
+            // Remove the edges that connect the neighbors to this node, in both directions.
+            // It's important to iterate using a copy of the edges
             // since we're removing edges while iterating.
-            final Map<Node, Edge> neighbors = getIncomingEdges(node);
-            for (final Node neighbor : neighbors.keySet()) {
-                removeEdge(neighbor, node);
+            for (final Node neighbor : new ArrayList<>(incoming.get(node).keySet())) {
+                deleteEdge(neighbor, node);
+            }
+            for (final Node neighbor : new ArrayList<>(outgoing.get(node).keySet())) {
+                deleteEdge(node, neighbor);
             }
             outgoing.remove(node);
+            incoming.remove(node);
+            changed();
+            if (trees != null) {
+                for (final ShortestPathTree<Node> tree : trees) {
+                    tree.nodeRemoved(node);
+                }
+            }
+            publish(GraphEvent.Type.REMOVE_NODE, node, null, null);
         }
         finally {
             writeLock.unlock();
+            stopTimer(GraphMetrics.Operation.REMOVE_NODE, start);
         }
     }
 
@@ -306,35 +920,46 @@ public class DirectedGraph<Node> implements Graph<Node> {
      * @param dest the ending node that completes the edge
      * @param weight value given to this edge
      * @return true if an edge was established between two vertices, false otherwise.
+     * @throws IllegalArgumentException if weight is negative or NaN while shortest paths are tracked
      */
     public boolean addEdge(Node src, Node dest, String label, double weight) {
+        checkWritable();
         if (src == null || dest == null) {
             return false;
         }
 
+        final long start = startTimer();
         writeLock.lock();
         try {
-            // Vertices need to be in the graph for an edge to exist between them
-            if (!outgoing.containsKey(src)) {
-                addNode(src);
-            }
-            if (!outgoing.containsKey(dest)) {
-                addNode(dest);
+            // The trees are only repaired correctly for weights that are not negative
+            if (trees != null && !trees.isEmpty() && !(weight >= 0)) {
+                throw new IllegalArgumentException("Weight must not be negative while shortest paths are tracked: " + weight);
             }
 
+            // Vertices need to be in the graph for an edge to exist between them
+            insertNode(src);
+            insertNode(dest);
+
             // This is the edge information
             final Edge edge = new Edge(label, weight);
 
-            // Keep track of the edge
-            outgoing.get(src).put(dest, edge);
+            // Keep track of the edge. Overwriting an existing edge does not add to the count.
+            final Edge replaced = outgoing.get(src).put(dest, edge);
+            if (replaced == null) {
+                ++edgeCount;
+            }
 
             // Also keep track of the vertex that is pointing to the 'src' vertex.
             // This is so we can easily tell what vertices directly point to a certain vertex.
             incoming.get(dest).put(src, edge);
+            changed();
+            edgeChanged(src, dest, replaced, edge);
+            publish(GraphEvent.Type.ADD_EDGE, src, dest, edge);
             return true;
         }
         finally {
             writeLock.unlock();
+            stopTimer(GraphMetrics.Operation.ADD_EDGE, start);
         }
     }
 
@@ -345,21 +970,37 @@ public class DirectedGraph<Node> implements Graph<Node> {
      * @param dest ending vertex of edge
      */
     public void removeEdge(Node src, Node dest) {
+        checkWritable();
         if (src == null || dest == null) {
             return;
         }
 
+        final long start = startTimer();
         writeLock.lock();
         try {
-            // Vertices need to be in the graph for an edge to exist between them
-            if (!outgoing.containsKey(src) || !outgoing.containsKey(dest)) {
-                return;
-            }
-            outgoing.get(src).remove(dest);
-            incoming.get(dest).remove(src);
+            deleteEdge(src, dest);
         }
         finally {
             writeLock.unlock();
+            stopTimer(GraphMetrics.Operation.REMOVE_EDGE, start);
+        }
+    }
+
+    /**
+     * Called with the write lock held
+     */
+    private void deleteEdge(Node src, Node dest) {
+        // Vertices need to be in the graph for an edge to exist between them
+        if (!outgoing.containsKey(src) || !outgoing.containsKey(dest)) {
+            return;
+        }
+        incoming.get(dest).remove(src);
+        final Edge removed = outgoing.get(src).remove(dest);
+        if (removed != null) {
+            --edgeCount;
+            changed();
+            edgeChanged(src, dest, removed, null);
+            publish(GraphEvent.Type.REMOVE_EDGE, src, dest, null);
         }
     }
 
@@ -385,12 +1026,16 @@ public class DirectedGraph<Node> implements Graph<Node> {
      * @return a copy of the set of vertices
      */
     public Map<Node, Edge> getOutgoingEdges(Node node) {
+        final long start = startTimer();
         readLock.lock();
         try {
-            return new HashMap<>(outgoing.get(node));
+            final Map<Node, Edge> edges = new HashMap<>(outgoing.get(node));
+            metrics.edgesCopied(edges.size());
+            return edges;
         }
         finally {
             readLock.unlock();
+            stopTimer(GraphMetrics.Operation.GET_OUTGOING_EDGES, start);
         }
     }
 
@@ -401,12 +1046,102 @@ public class DirectedGraph<Node> implements Graph<Node> {
      * @return a copy of the set of vertices
      */
     public Map<Node, Edge> getIncomingEdges(Node node) {
+        final long start = startTimer();
         readLock.lock();
         try {
-            return new HashMap<>(incoming.get(node));
+            final Map<Node, Edge> edges = new HashMap<>(incoming.get(node));
+            metrics.edgesCopied(edges.size());
+            return edges;
         }
         finally {
             readLock.unlock();
+            stopTimer(GraphMetrics.Operation.GET_INCOMING_EDGES, start);
+        }
+    }
+
+    /**
+     * View of the graph with every edge pointing the other way. Nothing is copied:
+     * the view reads this graph's incoming maps as its outgoing maps and vice versa.
+     *
+     * @return read-only view that reflects later changes to this graph
+     */
+    public Graph<Node> reverse() {
+        return new DirectedGraph<>(this, incoming, outgoing);
+    }
+
+    /**
+     * View of the graph restricted to the given vertices and the edges between them.
+     * Nothing is copied up front: vertices and edges are filtered as they are looked up.
+     *
+     * @param nodes vertices to keep. The set is copied, since the view caches results
+     *              until this graph changes.
+     * @return read-only view that reflects later changes to this graph
+     */
+    public Graph<Node> inducedSubgraph(Set<Node> nodes) {
+        final Set<Node> kept = ImmutableSet.copyOf(nodes);
+        return new DirectedGraph<>(this, restrict(outgoing, kept), restrict(incoming, kept));
+    }
+
+    private Map<Node, Map<Node, Edge>> restrict(Map<Node, Map<Node, Edge>> adjacency, Set<Node> nodes) {
+        final Map<Node, Map<Node, Edge>> filtered =
+                Maps.transformValues(Maps.filterKeys(adjacency, nodes::contains), neighbors -> Maps.filterKeys(neighbors, nodes::contains));
+        return new ForwardingMap<Node, Map<Node, Edge>>() {
+            // A filtered map counts its keys on every call. Traversals ask often, so
+            // count once per version of the graph.
+            private volatile Cached<Integer> size;
+
+            @Override
+            protected Map<Node, Map<Node, Edge>> delegate() {
+                return filtered;
+            }
+
+            @Override
+            public int size() {
+                Cached<Integer> cached = size;
+                if (cached == null || cached.version != currentVersion()) {
+                    int count = 0;
+                    for (final Node node : nodes) {
+                        if (adjacency.containsKey(node)) {
+                            ++count;
+                        }
+                    }
+                    cached = new Cached<>(currentVersion(), count);
+                    size = cached;
+                }
+                return cached.value;
+            }
+        };
+    }
+
+    /**
+     * View of the graph where every edge can be followed in both directions. Each vertex's
+     * neighbors are the union of its outgoing and incoming neighbors, merged as they are looked up.
+     * Where edges exist in both directions, the outgoing one is reported.
+     *
+     * @return read-only view that reflects later changes to this graph
+     */
+    public Graph<Node> undirected() {
+        final Map<Node, Map<Node, Edge>> neighbors = Maps.transformEntries(outgoing, (node, out) -> {
+            final Map<Node, Edge> in = incoming.get(node);
+            return Maps.asMap(Sets.union(out.keySet(), in.keySet()), v -> out.containsKey(v) ? out.get(v) : in.get(v));
+        });
+        return new DirectedGraph<>(this, neighbors, neighbors);
+    }
+
+    /**
+     * Copies the graph into an array based snapshot for analytics
+     *
+     * @return immutable snapshot of the current vertices and edges
+     */
+    public CsrGraph<Node> snapshot() {
+        final long start = startTimer();
+        readLock.lock();
+        try {
+            return CsrGraph.of(outgoing);
+        }
+        finally {
+            readLock.unlock();
+            stopTimer(GraphMetrics.Operation.SNAPSHOT, start);
         }
     }
 
@@ -451,28 +1186,48 @@ public class DirectedGraph<Node> implements Graph<Node> {
 
     /**
      * Gives a string in DOT format which in turn can be written to a file and viewed using GraphViz
-     * or other DOT file viewers
+     * or other DOT file viewers. Large graphs are better written with export, which streams.
      */
     public String printDotFormat() {
-        final StrBuilder sb = new StrBuilder();
-        sb.appendln("digraph G {");
-        sb.appendln("rankdir=LR;");
-        sb.appendln("node [shape = circle];");
+        final StringBuilder sb = new StringBuilder();
+        try {
+            export(GraphFormat.DOT, sb);
+        }
+        catch (IOException e) {
+            // A StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the graph out edge by edge, holding the read lock until done. To keep writers
+     * from waiting on a slow destination, export a snapshot() instead.
+     *
+     * @param format text format to write
+     * @param out where to write
+     * @throws IOException if out throws
+     */
+    public void export(GraphFormat format, Appendable out) throws IOException {
         readLock.lock();
         try {
-            for (Map.Entry<Node, Map<Node, Edge>> vertex : outgoing.entrySet()) {
-                for (Map.Entry<Node, Edge> v : vertex.getValue().entrySet()) {
-                    final String s = String.format("%s -> %s [ label = \"%s (weight = %.1f)\"];",
-                            vertex.getKey(), v.getKey(), v.getValue().getLabel(), v.getValue().getWeight());
-                    sb.appendln(s);
+            format.begin(out);
+            for (final Map.Entry<Node, Map<Node, Edge>> vertex : outgoing.entrySet()) {
+                format.node(out, vertex.getKey());
+                if (vertex.getValue().isEmpty() && incoming.get(vertex.getKey()).isEmpty()) {
+                    format.isolatedNode(out, vertex.getKey());
                 }
             }
+            for (final Map.Entry<Node, Map<Node, Edge>> vertex : outgoing.entrySet()) {
+                for (final Map.Entry<Node, Edge> v : vertex.getValue().entrySet()) {
+                    format.edge(out, vertex.getKey(), v.getKey(), v.getValue());
+                }
+            }
+            format.end(out);
         }
         finally {
             readLock.unlock();
         }
-        sb.appendln("}");
-        return sb.toString();
     }
 
     /**
@@ -496,12 +1251,13 @@ public class DirectedGraph<Node> implements Graph<Node> {
                 edgeBuilder.setFrom(u);
                 edgeBuilder.setTo(v.getKey());
                 edgeBuilder.setWeight(v.getValue().getWeight());
-                edgeBuilder.setLabel(v.getValue().getLabel());
+                edgeBuilder.setLabel(v.getValue().getLabel() == null ? "" : v.getValue().getLabel());
                 graphBuilder.addEdge(edgeBuilder.build());
             }
         }
-        FileOutputStream output = new FileOutputStream(file);
-        graphBuilder.build().writeTo(output);
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            graphBuilder.build().writeTo(output);
+        }
     }
 
     /**
@@ -517,10 +1273,157 @@ public class DirectedGraph<Node> implements Graph<Node> {
      */
     public static Graph<Integer> read(final String file) throws FileNotFoundException, IOException {
         Graph<Integer> graph = new DirectedGraph<>();
-        GraphProtos.Graph g = GraphProtos.Graph.parseFrom(new FileInputStream(file));
+        final GraphProtos.Graph g;
+        try (FileInputStream input = new FileInputStream(file)) {
+            g = GraphProtos.Graph.parseFrom(input);
+        }
         for (GraphProtos.Edge edge : g.getEdgeList()) {
             graph.addEdge(edge.getFrom(), edge.getTo(), edge.getLabel(), edge.getWeight());
         }
         return graph;
     }
+
+    /**
+     * Called with the write lock held after every change to the graph
+     */
+    private void changed() {
+        ++version;
+    }
+
+    /**
+     * Repairs the tracked shortest path trees. Called with the write lock held.
+     */
+    private void edgeChanged(Node src, Node dest, Edge before, Edge after) {
+        if (trees != null) {
+            for (final ShortestPathTree<Node> tree : trees) {
+                tree.edgeChanged(src, dest, before, after);
+            }
+        }
+    }
+
+    /**
+     * Records a change for subscribers. Called with the write lock held.
+     */
+    private void publish(GraphEvent.Type type, Node src, Node dest, Edge edge) {
+        if (events != null) {
+            events.publish(type, src, dest, edge);
+        }
+    }
+
+    /**
+     * Views are read-only. Changes go through the graph they were created from.
+     */
+    private void checkWritable() {
+        if (base != null) {
+            throw new UnsupportedOperationException("Graph views are read-only");
+        }
+    }
+
+    /**
+     * @return version of the graph that owns the maps. Only call with the lock held.
+     */
+    private long currentVersion() {
+        return base == null ? version : base.version;
+    }
+
+    /**
+     * @return number of edges, estimated from the underlying graph for views. An undirected
+     * view lists each edge from both ends. Only call with the lock held.
+     */
+    private long edgeCount() {
+        if (base == null) {
+            return edgeCount;
+        }
+        return outgoing == incoming ? 2 * base.edgeCount : base.edgeCount;
+    }
+
+    /**
+     * @return current time for measuring an operation, or 0 if nothing is recording
+     */
+    private long startTimer() {
+        return metrics == GraphMetrics.NOOP ? 0 : System.nanoTime();
+    }
+
+    private void stopTimer(GraphMetrics.Operation operation, long start) {
+        if (start != 0) {
+            metrics.operationCompleted(operation, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * A derived value along with the graph version it was computed at
+     */
+    private static final class Cached<T> {
+        private final long version;
+        private final T value;
+
+        private Cached(long version, T value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Reports how long threads wait for a lock when another thread holds it.
+     * Uncontended acquisitions take the lock right away and are not timed.
+     */
+    private final class MeteredLock implements Lock {
+        private final Lock lock;
+        private final boolean write;
+
+        private MeteredLock(Lock lock, boolean write) {
+            this.lock = lock;
+            this.write = write;
+        }
+
+        @Override
+        public void lock() {
+            final GraphMetrics recorder = metrics;
+            if (recorder == GraphMetrics.NOOP) {
+                lock.lock();
+                return;
+            }
+            // Unlike tryLock(), this waits its turn behind queued writers
+            try {
+                if (lock.tryLock(0, TimeUnit.NANOSECONDS)) {
+                    return;
+                }
+            }
+            catch (InterruptedException e) {
+                // lock() is not interruptible. Keep the flag and take the lock untimed.
+                Thread.currentThread().interrupt();
+                lock.lock();
+                return;
+            }
+
+            final long start = System.nanoTime();
+            lock.lock();
+            recorder.lockContended(write, System.nanoTime() - start);
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            lock.lockInterruptibly();
+        }
+
+        @Override
+        public boolean tryLock() {
+            return lock.tryLock();
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            return lock.tryLock(time, unit);
+        }
+
+        @Override
+        public void unlock() {
+            lock.unlock();
+        }
+
+        @Override
+        public Condition newCondition() {
+            return lock.newCondition();
+        }
+    }
 }
@@ -9,7 +9,7 @@ package com.panduit.graph;
  * @param <Node>
  */
 public class DirectedGraphBuilder<Node> {
-    private Graph graph = new DirectedGraph();
+    private DirectedGraph graph = new DirectedGraph();
 
     public DirectedGraphBuilder addNode(Node node) {
         graph.addNode(node);
@@ -21,6 +21,11 @@ public class DirectedGraphBuilder<Node> {
         return this;
     }
 
+    public DirectedGraphBuilder withShortestPathCache(int maximumSize) {
+        graph.enableShortestPathCache(maximumSize);
+        return this;
+    }
+
     public Graph build() {
         return graph;
     }
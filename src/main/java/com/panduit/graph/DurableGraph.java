@@ -0,0 +1,434 @@
+package com.panduit.graph;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+
+/**
+ * Graph that keeps every change on disk without rewriting the whole graph.
+ *
+ * Each change is appended to a write-ahead log before it is applied in memory, and is on
+ * disk before the mutator returns. Concurrent writers share fsyncs (group commit). A change
+ * the log refuses is not applied. Queries can see a change while its fsync is still running;
+ * if that fsync fails, the mutator throws and the log refuses every later change.
+ *
+ * Now and then the whole graph is written out as a checkpoint and the log segments it
+ * covers are deleted. Checkpoints are not incremental: each is an O(V + E) snapshot, taken
+ * in memory while holding off writers, then written to disk while writers carry on.
+ * Opening the directory again loads the last checkpoint and replays the log after it.
+ *
+ * Queries go straight to an in-memory DirectedGraph.
+ */
+public class DurableGraph implements Graph<Integer>, Closeable {
+    private static final String CHECKPOINT = "checkpoint.data";
+    private static final String CHECKPOINT_TMP = "checkpoint.data.tmp";
+
+    private final Path directory;
+    private final DirectedGraph<Integer> graph;
+    private final WriteAheadLog log;
+
+    // Keeps the order of records in the log the same as the order changes were applied.
+    // Writers only hold it to append and apply, not while waiting on the disk.
+    private final Lock mutationLock = new ReentrantLock();
+
+    // One checkpoint at a time
+    private final Object checkpointLock = new Object();
+
+    private final ScheduledExecutorService checkpointer;
+
+    private DurableGraph(Path directory, DirectedGraph<Integer> graph, long checkpointIntervalMillis) throws IOException {
+        this.directory = directory;
+        this.graph = graph;
+        this.log = new WriteAheadLog(directory);
+
+        if (checkpointIntervalMillis > 0) {
+            checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "graph-checkpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+            checkpointer.scheduleWithFixedDelay(() -> {
+                try {
+                    checkpoint();
+                }
+                catch (IOException e) {
+                    // The log still has everything. Try again next time.
+                }
+            }, checkpointIntervalMillis, checkpointIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        else {
+            checkpointer = null;
+        }
+    }
+
+    /**
+     * Opens the graph kept in a directory, creating it if needed. Checkpoints are only
+     * taken when checkpoint() is called.
+     *
+     * @param directory holds the checkpoint and the log segments
+     * @return the recovered graph
+     * @throws IOException
+     */
+    public static DurableGraph open(Path directory) throws IOException {
+        return open(directory, 0);
+    }
+
+    /**
+     * Opens the graph kept in a directory, creating it if needed
+     *
+     * @param directory holds the checkpoint and the log segments
+     * @param checkpointIntervalMillis time between background checkpoints, or 0 for none
+     * @return the recovered graph
+     * @throws IOException
+     */
+    public static DurableGraph open(Path directory, long checkpointIntervalMillis) throws IOException {
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(CHECKPOINT_TMP));
+
+        final DirectedGraph<Integer> graph = new DirectedGraph<>();
+        final WriteAheadLog.RecordHandler apply = (type, record) -> apply(graph, type, record);
+
+        // The checkpoint starts with the first segment that is not already in it
+        final long[] firstSegment = {0};
+        final Path checkpoint = directory.resolve(CHECKPOINT);
+        if (Files.exists(checkpoint)) {
+            WriteAheadLog.replay(checkpoint, (type, record) -> {
+                if (type == WriteAheadLog.SEGMENT) {
+                    firstSegment[0] = record.getFrom();
+                }
+                else {
+                    apply(graph, type, record);
+                }
+            });
+        }
+
+        for (final long segment : WriteAheadLog.segments(directory)) {
+            if (segment >= firstSegment[0]) {
+                WriteAheadLog.replay(WriteAheadLog.segmentPath(directory, segment), apply);
+            }
+        }
+        return new DurableGraph(directory, graph, checkpointIntervalMillis);
+    }
+
+    private static void apply(DirectedGraph<Integer> graph, int type, GraphProtos.Edge record) {
+        switch (type) {
+            case WriteAheadLog.ADD_NODE:
+                graph.addNode(record.getFrom());
+                break;
+            case WriteAheadLog.REMOVE_NODE:
+                graph.removeNode(record.getFrom());
+                break;
+            case WriteAheadLog.ADD_EDGE:
+                graph.addEdge(record.getFrom(), record.getTo(), record.getLabel(), record.getWeight());
+                break;
+            case WriteAheadLog.REMOVE_EDGE:
+                graph.removeEdge(record.getFrom(), record.getTo());
+                break;
+            default:
+                // Written by a newer version. Skip it.
+                break;
+        }
+    }
+
+    /**
+     * Writes the whole graph to a new checkpoint and deletes the log segments it replaces.
+     * Writers are only held up while the log is rotated and the snapshot is taken, not
+     * while the checkpoint is written.
+     *
+     * @throws IOException
+     */
+    public void checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            final long segment;
+            final CsrGraph<Integer> snapshot;
+            mutationLock.lock();
+            try {
+                // Everything after the snapshot goes to the new segment
+                segment = log.rotate();
+                snapshot = graph.snapshot();
+            }
+            finally {
+                mutationLock.unlock();
+            }
+
+            final Path tmp = directory.resolve(CHECKPOINT_TMP);
+            try (FileOutputStream file = new FileOutputStream(tmp.toFile())) {
+                final OutputStream out = new BufferedOutputStream(file, 1 << 16);
+                writeRecord(out, WriteAheadLog.SEGMENT, GraphProtos.Edge.newBuilder().setFrom((int) segment).build());
+                for (int u = 0; u < snapshot.getNodeCount(); ++u) {
+                    writeRecord(out, WriteAheadLog.ADD_NODE, GraphProtos.Edge.newBuilder().setFrom(snapshot.getNode(u)).build());
+                }
+                for (int u = 0; u < snapshot.getNodeCount(); ++u) {
+                    for (int e = snapshot.outOffsets[u]; e < snapshot.outOffsets[u + 1]; ++e) {
+                        final Edge edge = snapshot.outEdges[e];
+                        writeRecord(out, WriteAheadLog.ADD_EDGE,
+                                record(snapshot.getNode(u), snapshot.getNode(snapshot.outTargets[e]), edge.getLabel(), edge.getWeight()));
+                    }
+                }
+                out.flush();
+                file.getChannel().force(false);
+            }
+
+            // Readers see either the old checkpoint or the new one, never half of one.
+            // The rename must be on disk before the segments it replaces are deleted.
+            Files.move(tmp, directory.resolve(CHECKPOINT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            WriteAheadLog.syncDirectory(directory);
+            log.deleteBefore(segment);
+        }
+    }
+
+    private static void writeRecord(OutputStream out, int type, GraphProtos.Edge record) throws IOException {
+        out.write(type);
+        record.writeDelimitedTo(out);
+    }
+
+    private static GraphProtos.Edge record(int src, int dest, String label, double weight) {
+        return GraphProtos.Edge.newBuilder()
+                .setFrom(src)
+                .setTo(dest)
+                .setLabel(label == null ? "" : label)
+                .setWeight(weight)
+                .build();
+    }
+
+    /**
+     * Stops background checkpoints and closes the log. Every change that returned is
+     * already on disk.
+     */
+    @Override
+    public void close() throws IOException {
+        if (checkpointer != null) {
+            checkpointer.shutdown();
+            try {
+                checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.close();
+    }
+
+    /**
+     * Waits until a record is on disk. Called without holding the mutation lock,
+     * so other writers can join the same fsync.
+     */
+    private void awaitDurable(long record) {
+        if (record == 0) {
+            return;
+        }
+        try {
+            log.awaitDurable(record);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long append(int type, GraphProtos.Edge record) {
+        try {
+            return log.append(type, record);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public boolean addNode(Integer node) {
+        long record = 0;
+        mutationLock.lock();
+        try {
+            if (node == null || graph.containsNode(node)) {
+                return false;
+            }
+            record = append(WriteAheadLog.ADD_NODE, GraphProtos.Edge.newBuilder().setFrom(node).build());
+            graph.addNode(node);
+        }
+        finally {
+            mutationLock.unlock();
+            awaitDurable(record);
+        }
+        return true;
+    }
+
+    public void removeNode(Integer node) {
+        long record = 0;
+        mutationLock.lock();
+        try {
+            if (!graph.containsNode(node)) {
+                return;
+            }
+            record = append(WriteAheadLog.REMOVE_NODE, GraphProtos.Edge.newBuilder().setFrom(node).build());
+            graph.removeNode(node);
+        }
+        finally {
+            mutationLock.unlock();
+            awaitDurable(record);
+        }
+    }
+
+    public boolean addEdge(Integer src, Integer dest, String label, double weight) {
+        long record = 0;
+        mutationLock.lock();
+        try {
+            if (src == null || dest == null) {
+                return false;
+            }
+            record = append(WriteAheadLog.ADD_EDGE, record(src, dest, label, weight));
+            graph.addEdge(src, dest, label, weight);
+        }
+        finally {
+            mutationLock.unlock();
+            awaitDurable(record);
+        }
+        return true;
+    }
+
+    public void removeEdge(Integer src, Integer dest) {
+        long record = 0;
+        mutationLock.lock();
+        try {
+            if (!graph.containsEdge(src, dest)) {
+                return;
+            }
+            record = append(WriteAheadLog.REMOVE_EDGE, record(src, dest, null, 0));
+            graph.removeEdge(src, dest);
+        }
+        finally {
+            mutationLock.unlock();
+            awaitDurable(record);
+        }
+    }
+
+    public boolean containsNode(Integer node) {
+        return graph.containsNode(node);
+    }
+
+    public boolean containsEdge(Integer u, Integer v) {
+        return graph.containsEdge(u, v);
+    }
+
+    public Optional<Edge> getEdge(Integer u, Integer v) {
+        return graph.getEdge(u, v);
+    }
+
+    public boolean isConnected(Integer u, Integer v) {
+        return graph.isConnected(u, v);
+    }
+
+    public boolean isConnected(Integer u, Integer v, Predicate<Edge> edgePredicate) {
+        return graph.isConnected(u, v, edgePredicate);
+    }
+
+    public QueryResult<Boolean> isConnected(Integer u, Integer v, QueryOptions options) {
+        return graph.isConnected(u, v, options);
+    }
+
+    public boolean isReachable(Integer u, Integer v) {
+        return graph.isReachable(u, v);
+    }
+
+    public List<Integer> findShortestPath(Integer src, Integer dest) {
+        return graph.findShortestPath(src, dest);
+    }
+
+    public List<Integer> findShortestPath(Integer src, Integer dest, Predicate<Edge> edgePredicate) {
+        return graph.findShortestPath(src, dest, edgePredicate);
+    }
+
+    public QueryResult<List<Integer>> findShortestPath(Integer src, Integer dest, QueryOptions options) {
+        return graph.findShortestPath(src, dest, options);
+    }
+
+    public List<Integer> findLongestPath(Integer src, Integer dest) {
+        return graph.findLongestPath(src, dest);
+    }
+
+    public Stream<List<Integer>> findKShortestPaths(Integer src, Integer dest, int k) {
+        return graph.findKShortestPaths(src, dest, k);
+    }
+
+    public Optional<List<Integer>> topologicalOrder() {
+        return graph.topologicalOrder();
+    }
+
+    public List<Set<Integer>> bfs(Integer src, int maxDepth) {
+        return graph.bfs(src, maxDepth);
+    }
+
+    public void bfs(Integer src, int maxDepth, BiConsumer<Integer, Integer> visitor) {
+        graph.bfs(src, maxDepth, visitor);
+    }
+
+    public StronglyConnectedComponents<Integer> getStronglyConnectedComponents() {
+        return graph.getStronglyConnectedComponents();
+    }
+
+    public Set<Integer> getNodes() {
+        return graph.getNodes();
+    }
+
+    public Map<Integer, Edge> getOutgoingEdges(Integer node) {
+        return graph.getOutgoingEdges(node);
+    }
+
+    public Map<Integer, Edge> getIncomingEdges(Integer node) {
+        return graph.getIncomingEdges(node);
+    }
+
+    public CsrGraph<Integer> snapshot() {
+        return graph.snapshot();
+    }
+
+    public Graph<Integer> reverse() {
+        return graph.reverse();
+    }
+
+    public Graph<Integer> inducedSubgraph(Set<Integer> nodes) {
+        return graph.inducedSubgraph(nodes);
+    }
+
+    public Graph<Integer> undirected() {
+        return graph.undirected();
+    }
+
+    public void printNodes() {
+        graph.printNodes();
+    }
+
+    public void printEdges() {
+        graph.printEdges();
+    }
+
+    @Override
+    public String toString() {
+        return graph.toString();
+    }
+
+    public String printDotFormat() {
+        return graph.printDotFormat();
+    }
+
+    public void export(GraphFormat format, Appendable out) throws IOException {
+        graph.export(format, out);
+    }
+}
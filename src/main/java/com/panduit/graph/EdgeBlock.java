@@ -0,0 +1,45 @@
+package com.panduit.graph;
+
+import java.util.Arrays;
+
+
+/**
+ * Edges and isolated vertices parsed by one loader thread, kept in arrays until the graph is built
+ */
+final class EdgeBlock {
+    int[] from;
+    int[] to;
+    Edge[] edges;
+    int size = 0;
+
+    // Vertices listed on their own. They may also have edges.
+    int[] nodes = new int[0];
+    int nodeCount = 0;
+
+    EdgeBlock(int capacity) {
+        final int initial = Math.max(capacity, 16);
+        from = new int[initial];
+        to = new int[initial];
+        edges = new Edge[initial];
+    }
+
+    void add(int src, int dest, Edge edge) {
+        if (size == from.length) {
+            final int grown = size + (size >> 1);
+            from = Arrays.copyOf(from, grown);
+            to = Arrays.copyOf(to, grown);
+            edges = Arrays.copyOf(edges, grown);
+        }
+        from[size] = src;
+        to[size] = dest;
+        edges[size] = edge;
+        ++size;
+    }
+
+    void addNode(int node) {
+        if (nodeCount == nodes.length) {
+            nodes = Arrays.copyOf(nodes, Math.max(16, nodeCount * 2));
+        }
+        nodes[nodeCount++] = node;
+    }
+}
@@ -0,0 +1,26 @@
+package com.panduit.graph;
+
+
+/**
+ * Decides which edges a traversal may use, without copying the graph
+ *
+ * @param <Node>
+ */
+@FunctionalInterface
+interface EdgeFilter<Node> {
+
+    /**
+     * @param src vertex the edge starts at
+     * @param dest vertex the edge ends at
+     * @param edge edge information
+     * @return true if the traversal may follow this edge
+     */
+    boolean accept(Node src, Node dest, Edge edge);
+
+    /**
+     * @return a filter that lets every edge through
+     */
+    static <Node> EdgeFilter<Node> all() {
+        return (src, dest, edge) -> true;
+    }
+}
@@ -1,9 +1,14 @@
 package com.panduit.graph;
 
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 
 public interface Graph<Node> {
@@ -19,14 +24,46 @@ public interface Graph<Node> {
     boolean containsEdge(Node u, Node v);
     Optional<Edge> getEdge(Node u, Node v);
     boolean isConnected(Node u, Node v);
+    boolean isConnected(Node u, Node v, Predicate<Edge> edgePredicate);
+    QueryResult<Boolean> isConnected(Node u, Node v, QueryOptions options);
+    boolean isReachable(Node u, Node v);
     List<Node> findShortestPath(Node src, Node dest);
+    List<Node> findShortestPath(Node src, Node dest, Predicate<Edge> edgePredicate);
+    QueryResult<List<Node>> findShortestPath(Node src, Node dest, QueryOptions options);
+    List<Node> findLongestPath(Node src, Node dest);
+    Stream<List<Node>> findKShortestPaths(Node src, Node dest, int k);
+    Optional<List<Node>> topologicalOrder();
+    List<Set<Node>> bfs(Node src, int maxDepth);
+    void bfs(Node src, int maxDepth, BiConsumer<Node, Integer> visitor);
+    StronglyConnectedComponents<Node> getStronglyConnectedComponents();
 
     Set<Node> getNodes();
     Map<Node, Edge> getOutgoingEdges(Node node);
     Map<Node, Edge> getIncomingEdges(Node node);
+    CsrGraph<Node> snapshot();
+
+    // Views
+    Graph<Node> reverse();
+    Graph<Node> inducedSubgraph(Set<Node> nodes);
+    Graph<Node> undirected();
 
     // Informational
     void printNodes();
     void printEdges();
     String printDotFormat();
+    void export(GraphFormat format, Appendable out) throws IOException;
+
+    default void export(GraphFormat format, WritableByteChannel channel) throws IOException {
+        final ChannelAppendable out = new ChannelAppendable(channel);
+        export(format, out);
+        out.close();
+    }
+
+    default void writeDot(Appendable out) throws IOException {
+        export(GraphFormat.DOT, out);
+    }
+
+    default void writeDot(WritableByteChannel channel) throws IOException {
+        export(GraphFormat.DOT, channel);
+    }
 }
@@ -0,0 +1,489 @@
+package com.panduit.graph;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+
+/**
+ * Centrality measures and other per vertex analytics computed on a CSR snapshot of a graph.
+ *
+ * Results are arrays indexed by the dense ids of the snapshot.
+ * Use {@link CsrGraph#toMap(double[])} to key them by vertex instead.
+ * Per vertex work is spread over the common fork-join pool.
+ */
+public final class GraphAnalytics {
+
+    public static final double DEFAULT_DAMPING = 0.85;
+    public static final double DEFAULT_TOLERANCE = 1e-9;
+    public static final int DEFAULT_MAX_ITERATIONS = 100;
+
+    private GraphAnalytics() {
+    }
+
+    /**
+     * PageRank with the default damping factor, tolerance and iteration cap
+     *
+     * @param graph snapshot to rank
+     * @return rank of every vertex. The ranks add up to 1.
+     */
+    public static <Node> double[] pageRank(CsrGraph<Node> graph) {
+        return pageRank(graph, DEFAULT_DAMPING, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+    }
+
+    /**
+     * PageRank by power iteration. Edge weights are ignored. Rank held by vertices with
+     * no outgoing edges is spread over all vertices.
+     * @link https://en.wikipedia.org/wiki/PageRank
+     *
+     * @param graph snapshot to rank
+     * @param damping probability of following an edge rather than jumping to a random vertex
+     * @param tolerance stop once the ranks change by less than this in total (L1 norm)
+     * @param maxIterations stop after this many iterations regardless
+     * @return rank of every vertex. The ranks add up to 1.
+     */
+    public static <Node> double[] pageRank(CsrGraph<Node> graph, double damping, double tolerance, int maxIterations) {
+        final int n = graph.getNodeCount();
+        final double[] teleport = new double[n];
+        Arrays.fill(teleport, 1.0 / n);
+        return powerIteration(graph, teleport, damping, tolerance, maxIterations);
+    }
+
+    /**
+     * Personalized PageRank. Random jumps land on the given vertices only,
+     * in proportion to their weights.
+     *
+     * @param graph snapshot to rank
+     * @param personalization vertices to jump to and their relative weights
+     * @param damping probability of following an edge rather than jumping
+     * @param tolerance stop once the ranks change by less than this in total (L1 norm)
+     * @param maxIterations stop after this many iterations regardless
+     * @return rank of every vertex, or all zeros if no vertex in the personalization is in the graph
+     */
+    public static <Node> double[] personalizedPageRank(CsrGraph<Node> graph, Map<Node, Double> personalization,
+                                                       double damping, double tolerance, int maxIterations) {
+        final double[] teleport = new double[graph.getNodeCount()];
+        double total = 0;
+        for (final Map.Entry<Node, Double> entry : personalization.entrySet()) {
+            final int id = graph.getId(entry.getKey());
+            if (id >= 0) {
+                teleport[id] += entry.getValue();
+                total += entry.getValue();
+            }
+        }
+        if (total <= 0) {
+            return teleport;
+        }
+        for (int id = 0; id < teleport.length; ++id) {
+            teleport[id] /= total;
+        }
+        return powerIteration(graph, teleport, damping, tolerance, maxIterations);
+    }
+
+    private static <Node> double[] powerIteration(CsrGraph<Node> graph, double[] teleport,
+                                                  double damping, double tolerance, int maxIterations) {
+        final int n = graph.getNodeCount();
+        final int[] inOffsets = graph.inOffsets;
+        final int[] inSources = graph.inSources;
+
+        final double[] outDegree = new double[n];
+        for (int u = 0; u < n; ++u) {
+            outDegree[u] = graph.getOutDegree(u);
+        }
+
+        double[] rank = Arrays.copyOf(teleport, n);
+        double[] next = new double[n];
+        for (int iteration = 0; iteration < maxIterations; ++iteration) {
+            final double[] current = rank;
+
+            // Rank of vertices with no outgoing edges
+            double dangling = 0;
+            for (int u = 0; u < n; ++u) {
+                if (outDegree[u] == 0) {
+                    dangling += current[u];
+                }
+            }
+            final double leaked = dangling;
+
+            // Pull from incoming edges. Each vertex is written by exactly one task.
+            final double[] target = next;
+            IntStream.range(0, n).parallel().forEach(v -> {
+                double sum = 0;
+                for (int e = inOffsets[v]; e < inOffsets[v + 1]; ++e) {
+                    final int u = inSources[e];
+                    sum += current[u] / outDegree[u];
+                }
+                target[v] = (1 - damping) * teleport[v] + damping * (sum + leaked * teleport[v]);
+            });
+
+            final double change = IntStream.range(0, n).parallel()
+                    .mapToDouble(v -> Math.abs(target[v] - current[v]))
+                    .sum();
+            next = rank;
+            rank = target;
+            if (change < tolerance) {
+                break;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Fraction of the other vertices that point to each vertex
+     *
+     * @param graph snapshot to measure
+     * @return in-degree of every vertex divided by n - 1
+     */
+    public static <Node> double[] inDegreeCentrality(CsrGraph<Node> graph) {
+        final int n = graph.getNodeCount();
+        final double scale = n > 1 ? 1.0 / (n - 1) : 1.0;
+        final double[] centrality = new double[n];
+        for (int v = 0; v < n; ++v) {
+            centrality[v] = graph.getInDegree(v) * scale;
+        }
+        return centrality;
+    }
+
+    /**
+     * Fraction of the other vertices that each vertex points to
+     *
+     * @param graph snapshot to measure
+     * @return out-degree of every vertex divided by n - 1
+     */
+    public static <Node> double[] outDegreeCentrality(CsrGraph<Node> graph) {
+        final int n = graph.getNodeCount();
+        final double scale = n > 1 ? 1.0 / (n - 1) : 1.0;
+        final double[] centrality = new double[n];
+        for (int v = 0; v < n; ++v) {
+            centrality[v] = graph.getOutDegree(v) * scale;
+        }
+        return centrality;
+    }
+
+    /**
+     * Betweenness centrality: for every vertex, the number of shortest paths between other
+     * vertices that go through it. Paths are weighted by edge weight. When there are several
+     * shortest paths between two vertices, each gets an equal share. Values are not normalized.
+     * @implNote Brandes' algorithm, running one Dijkstra per source vertex in parallel.
+     * Takes O(VE + V^2 log V) time. Each worker of the common fork-join pool keeps one set of
+     * O(V + E) arrays and takes sources one at a time until none are left.
+     * @link https://doi.org/10.1080/0022250X.2001.9990249
+     *
+     * @param graph snapshot to measure
+     * @return betweenness of every vertex
+     */
+    public static <Node> double[] betweennessCentrality(CsrGraph<Node> graph) {
+        final int n = graph.getNodeCount();
+        final AtomicInteger nextSource = new AtomicInteger();
+        final int workers = Math.max(1, Math.min(n, ForkJoinPool.getCommonPoolParallelism()));
+        return IntStream.range(0, workers).parallel()
+                .mapToObj(worker -> {
+                    final Brandes brandes = new Brandes(graph);
+                    for (int source = nextSource.getAndIncrement(); source < n; source = nextSource.getAndIncrement()) {
+                        brandes.accumulate(source);
+                    }
+                    return brandes;
+                })
+                .reduce((a, b) -> {
+                    a.combine(b);
+                    return a;
+                })
+                .map(brandes -> brandes.centrality)
+                .orElseGet(() -> new double[n]);
+    }
+
+    /**
+     * Number of triangles each vertex is in, taking edges as undirected. Two vertices joined
+     * both ways are joined once, and self loops are ignored.
+     * @implNote Each edge is oriented from the endpoint of lower degree to the higher one, so
+     * every vertex has few neighbors above it, and each triangle is found once, at its lowest
+     * vertex, by merging the sorted neighbor arrays of the two ends of an edge. Vertices are
+     * spread over the common fork-join pool and share one array of atomic counts; the lowest
+     * vertex is credited once per task. Takes O(E^1.5) time and O(V) space.
+     *
+     * @param graph snapshot to count
+     * @return triangles through every vertex
+     */
+    public static <Node> long[] triangleCounts(CsrGraph<Node> graph) {
+        final int n = graph.getNodeCount();
+        final Neighbors higher = Neighbors.undirected(graph).oriented();
+        final AtomicLongArray counts = new AtomicLongArray(n);
+        IntStream.range(0, n).parallel().forEach(u -> {
+            long found = 0;
+            for (int i = higher.offsets[u]; i < higher.offsets[u + 1]; ++i) {
+                final int v = higher.targets[i];
+                int a = higher.offsets[u];
+                int b = higher.offsets[v];
+                while (a < higher.offsets[u + 1] && b < higher.offsets[v + 1]) {
+                    final int x = higher.targets[a];
+                    final int y = higher.targets[b];
+                    if (x == y) {
+                        ++found;
+                        counts.incrementAndGet(v);
+                        counts.incrementAndGet(x);
+                    }
+                    a += x <= y ? 1 : 0;
+                    b += y <= x ? 1 : 0;
+                }
+            }
+            if (found > 0) {
+                counts.addAndGet(u, found);
+            }
+        });
+
+        final long[] triangles = new long[n];
+        Arrays.setAll(triangles, counts::get);
+        return triangles;
+    }
+
+    /**
+     * Number of triangles in the graph, taking edges as undirected
+     *
+     * @param graph snapshot to count
+     * @return triangles in the graph
+     */
+    public static <Node> long triangleCount(CsrGraph<Node> graph) {
+        final Neighbors higher = Neighbors.undirected(graph).oriented();
+        return IntStream.range(0, graph.getNodeCount()).parallel()
+                .mapToLong(u -> {
+                    long count = 0;
+                    for (int i = higher.offsets[u]; i < higher.offsets[u + 1]; ++i) {
+                        count += higher.intersect(u, higher.targets[i]);
+                    }
+                    return count;
+                })
+                .sum();
+    }
+
+    /**
+     * Local clustering coefficient: the fraction of pairs of a vertex's neighbors that are
+     * neighbors of each other, taking edges as undirected
+     * @link https://en.wikipedia.org/wiki/Clustering_coefficient
+     *
+     * @param graph snapshot to measure
+     * @return coefficient of every vertex, 0 for vertices with fewer than two neighbors
+     */
+    public static <Node> double[] clusteringCoefficients(CsrGraph<Node> graph) {
+        final long[] triangles = triangleCounts(graph);
+        final Neighbors neighbors = Neighbors.undirected(graph);
+        final double[] coefficients = new double[triangles.length];
+        for (int v = 0; v < coefficients.length; ++v) {
+            final long degree = neighbors.offsets[v + 1] - neighbors.offsets[v];
+            if (degree > 1) {
+                coefficients[v] = 2.0 * triangles[v] / (degree * (degree - 1));
+            }
+        }
+        return coefficients;
+    }
+
+    /**
+     * Neighbor lists sorted by id, in CSR layout
+     */
+    private static final class Neighbors {
+        private final int[] offsets;
+        private final int[] targets;
+
+        private Neighbors(int[] offsets, int[] targets) {
+            this.offsets = offsets;
+            this.targets = targets;
+        }
+
+        /**
+         * Merges the outgoing and incoming neighbors of every vertex, without duplicates or self loops
+         */
+        static Neighbors undirected(CsrGraph<?> graph) {
+            final int n = graph.getNodeCount();
+            final int[] offsets = new int[n + 1];
+            IntStream.range(0, n).parallel().forEach(u -> offsets[u + 1] = merge(graph, u, null, 0));
+            for (int u = 0; u < n; ++u) {
+                offsets[u + 1] += offsets[u];
+            }
+            final int[] targets = new int[offsets[n]];
+            IntStream.range(0, n).parallel().forEach(u -> merge(graph, u, targets, offsets[u]));
+            return new Neighbors(offsets, targets);
+        }
+
+        /**
+         * Merges two sorted neighbor arrays of u, writing them out unless into is null
+         *
+         * @return number of neighbors
+         */
+        private static int merge(CsrGraph<?> graph, int u, int[] into, int at) {
+            int a = graph.outOffsets[u];
+            int b = graph.inOffsets[u];
+            final int outEnd = graph.outOffsets[u + 1];
+            final int inEnd = graph.inOffsets[u + 1];
+            int count = 0;
+            while (a < outEnd || b < inEnd) {
+                final int x = a < outEnd ? graph.outTargets[a] : Integer.MAX_VALUE;
+                final int y = b < inEnd ? graph.inSources[b] : Integer.MAX_VALUE;
+                final int v = Math.min(x, y);
+                if (x == v) {
+                    ++a;
+                }
+                if (y == v) {
+                    ++b;
+                }
+                if (v != u) {
+                    if (into != null) {
+                        into[at + count] = v;
+                    }
+                    ++count;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Keeps the neighbors of higher degree, with ties going to the higher id
+         */
+        Neighbors oriented() {
+            final int n = offsets.length - 1;
+            final int[] higherOffsets = new int[n + 1];
+            IntStream.range(0, n).parallel().forEach(u -> {
+                int count = 0;
+                for (int i = offsets[u]; i < offsets[u + 1]; ++i) {
+                    count += above(u, targets[i]) ? 1 : 0;
+                }
+                higherOffsets[u + 1] = count;
+            });
+            for (int u = 0; u < n; ++u) {
+                higherOffsets[u + 1] += higherOffsets[u];
+            }
+            final int[] higherTargets = new int[higherOffsets[n]];
+            IntStream.range(0, n).parallel().forEach(u -> {
+                int at = higherOffsets[u];
+                for (int i = offsets[u]; i < offsets[u + 1]; ++i) {
+                    if (above(u, targets[i])) {
+                        higherTargets[at++] = targets[i];
+                    }
+                }
+            });
+            return new Neighbors(higherOffsets, higherTargets);
+        }
+
+        private boolean above(int u, int v) {
+            final int du = offsets[u + 1] - offsets[u];
+            final int dv = offsets[v + 1] - offsets[v];
+            return dv > du || (dv == du && v > u);
+        }
+
+        /**
+         * @return number of neighbors u and v have in common
+         */
+        int intersect(int u, int v) {
+            int a = offsets[u];
+            int b = offsets[v];
+            final int aEnd = offsets[u + 1];
+            final int bEnd = offsets[v + 1];
+            int count = 0;
+            while (a < aEnd && b < bEnd) {
+                final int x = targets[a];
+                final int y = targets[b];
+                count += x == y ? 1 : 0;
+                a += x <= y ? 1 : 0;
+                b += y <= x ? 1 : 0;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Per task state for Brandes' algorithm, reused across the sources handled by one task
+     */
+    private static final class Brandes {
+        private final int[] outOffsets;
+        private final int[] outTargets;
+        private final double[] outWeights;
+
+        private final double[] centrality;
+        private final double[] distance;
+        private final double[] paths;
+        private final double[] dependency;
+        private final int[] settled;
+        private final boolean[] done;
+        private final IntMinHeap heap;
+
+        // Predecessors on shortest paths, as linked lists through the edge ids
+        private final int[] predecessorHead;
+        private final int[] predecessorNext;
+        private final int[] predecessorNode;
+
+        Brandes(CsrGraph<?> graph) {
+            final int n = graph.getNodeCount();
+            outOffsets = graph.outOffsets;
+            outTargets = graph.outTargets;
+            outWeights = graph.outWeights;
+            centrality = new double[n];
+            distance = new double[n];
+            paths = new double[n];
+            dependency = new double[n];
+            settled = new int[n];
+            done = new boolean[n];
+            heap = new IntMinHeap(n);
+            predecessorHead = new int[n];
+            predecessorNext = new int[graph.getEdgeCount()];
+            predecessorNode = new int[graph.getEdgeCount()];
+        }
+
+        void accumulate(int source) {
+            Arrays.fill(distance, Double.POSITIVE_INFINITY);
+            Arrays.fill(paths, 0);
+            Arrays.fill(dependency, 0);
+            Arrays.fill(predecessorHead, -1);
+            Arrays.fill(done, false);
+
+            // Dijkstra, recording the order vertices are settled in
+            int settledCount = 0;
+            distance[source] = 0;
+            paths[source] = 1;
+            heap.insertOrDecrease(source, 0);
+            while (!heap.isEmpty()) {
+                final int u = heap.poll();
+                settled[settledCount++] = u;
+                done[u] = true;
+                for (int e = outOffsets[u]; e < outOffsets[u + 1]; ++e) {
+                    final int v = outTargets[e];
+
+                    // Paths to a settled vertex are all counted already. Zero weight
+                    // cycles and self loops would otherwise add to them afterwards.
+                    if (done[v]) {
+                        continue;
+                    }
+                    final double alt = distance[u] + outWeights[e];
+                    if (alt < distance[v]) {
+                        distance[v] = alt;
+                        paths[v] = 0;
+                        predecessorHead[v] = -1;
+                        heap.insertOrDecrease(v, alt);
+                    }
+                    if (alt == distance[v]) {
+                        paths[v] += paths[u];
+                        predecessorNode[e] = u;
+                        predecessorNext[e] = predecessorHead[v];
+                        predecessorHead[v] = e;
+                    }
+                }
+            }
+
+            // Back-propagate dependencies, farthest vertex first
+            for (int i = settledCount - 1; i > 0; --i) {
+                final int w = settled[i];
+                for (int e = predecessorHead[w]; e >= 0; e = predecessorNext[e]) {
+                    final int v = predecessorNode[e];
+                    dependency[v] += paths[v] / paths[w] * (1 + dependency[w]);
+                }
+                centrality[w] += dependency[w];
+            }
+        }
+
+        void combine(Brandes other) {
+            for (int v = 0; v < centrality.length; ++v) {
+                centrality[v] += other.centrality[v];
+            }
+        }
+    }
+}
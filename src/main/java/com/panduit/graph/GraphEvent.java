@@ -0,0 +1,70 @@
+package com.panduit.graph;
+
+
+/**
+ * A single change to a graph, as delivered to a GraphListener.
+ *
+ * Sequence numbers start at 1 and increase by one per event, in the order the
+ * changes were made. Removing a vertex is reported as the removal of each of its
+ * edges followed by the removal of the vertex. Adding an edge between vertices
+ * that do not exist yet is reported as the addition of the vertices followed by the edge.
+ *
+ * @param <Node>
+ */
+public final class GraphEvent<Node> {
+
+    public enum Type {
+        ADD_NODE,
+        REMOVE_NODE,
+        ADD_EDGE,
+        REMOVE_EDGE
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final Node src;
+    private final Node dest;
+    private final Edge edge;
+
+    GraphEvent(long sequence, Type type, Node src, Node dest, Edge edge) {
+        this.sequence = sequence;
+        this.type = type;
+        this.src = src;
+        this.dest = dest;
+        this.edge = edge;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the vertex added or removed, or the starting vertex of the edge
+     */
+    public Node getSrc() {
+        return src;
+    }
+
+    /**
+     * @return the ending vertex of the edge, or null for vertex events
+     */
+    public Node getDest() {
+        return dest;
+    }
+
+    /**
+     * @return label and weight of an added edge, or null for other events
+     */
+    public Edge getEdge() {
+        return edge;
+    }
+
+    @Override
+    public String toString() {
+        return sequence + " " + type + " " + src + (dest == null ? "" : " -> " + dest);
+    }
+}
@@ -0,0 +1,184 @@
+package com.panduit.graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * Hands graph changes from the writer to subscribers through a ring buffer.
+ *
+ * There is a single producer: the thread holding the graph's write lock. It stores the event
+ * in the next slot and publishes its sequence number. Each subscription has its own thread
+ * that reads everything published past its cursor as one batch and then moves its cursor.
+ * Neither side takes a lock. The producer only waits if the ring is full, i.e. the slowest
+ * subscriber is a whole ring behind.
+ *
+ * @param <Node>
+ */
+public final class GraphEventBus<Node> {
+    private static final int MAX_BATCH = 1024;
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final GraphEvent<?>[] ring;
+    private final int mask;
+
+    // Written only by the producer, under the graph's write lock
+    private long nextSequence = 1;
+
+    // Highest sequence number whose slot has been filled
+    private final AtomicLong published = new AtomicLong(0);
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param capacity number of events that can be in flight. Rounded up to a power of two.
+     */
+    GraphEventBus(int capacity) {
+        final int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        ring = new GraphEvent<?>[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Publishes a change. Only called by the thread holding the graph's write lock.
+     * Nothing is published while no one is subscribed, so a graph that is no longer
+     * watched does not pay for its events.
+     */
+    void publish(GraphEvent.Type type, Node src, Node dest, Edge edge) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        final long sequence = nextSequence++;
+
+        // Do not overwrite an event the slowest subscriber has not read yet
+        long waited = 0;
+        while (sequence - ring.length > slowestCursor()) {
+            if (waited++ < 100) {
+                Thread.yield();
+            }
+            else {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+            }
+        }
+
+        ring[(int) (sequence & mask)] = new GraphEvent<>(sequence, type, src, dest, edge);
+        published.set(sequence);
+
+        for (final Subscription subscription : subscriptions) {
+            if (subscription.sleeping) {
+                LockSupport.unpark(subscription.thread);
+            }
+        }
+    }
+
+    private long slowestCursor() {
+        long slowest = Long.MAX_VALUE;
+        for (final Subscription subscription : subscriptions) {
+            slowest = Math.min(slowest, subscription.cursor.get());
+        }
+        return slowest;
+    }
+
+    /**
+     * Starts delivering events published from now on. Must be called with the graph's
+     * write lock held, so that no event is published while the cursor is being set.
+     */
+    Subscription subscribe(GraphListener<Node> listener) {
+        final Subscription subscription = new Subscription(listener, published.get());
+        subscriptions.add(subscription);
+        subscription.thread.start();
+        return subscription;
+    }
+
+    /**
+     * Delivery of events to one listener, on a thread of its own
+     */
+    public final class Subscription implements AutoCloseable {
+        private final GraphListener<Node> listener;
+        private final Thread thread;
+
+        // Sequence number of the last event delivered
+        private final AtomicLong cursor;
+
+        private volatile boolean running = true;
+        private volatile boolean sleeping = false;
+
+        private Subscription(GraphListener<Node> listener, long start) {
+            this.listener = listener;
+            this.cursor = new AtomicLong(start);
+            this.thread = new Thread(this::deliver, "graph-events-" + threadCount.incrementAndGet());
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * @return sequence number of the last event handed to the listener
+         */
+        public long getLastDelivered() {
+            return cursor.get();
+        }
+
+        /**
+         * Stops delivery once the events published so far have been delivered,
+         * and waits for that unless called from the listener itself.
+         */
+        @Override
+        public void close() {
+            running = false;
+            LockSupport.unpark(thread);
+            if (Thread.currentThread() != thread) {
+                try {
+                    thread.join();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void deliver() {
+            try {
+                while (true) {
+                    final long last = cursor.get();
+                    final long available = published.get();
+                    if (available == last) {
+                        if (!running) {
+                            return;
+                        }
+
+                        // Ask the producer for a wake up, then check again in case it just published
+                        sleeping = true;
+                        if (published.get() == last && running) {
+                            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(10));
+                        }
+                        sleeping = false;
+                        continue;
+                    }
+
+                    final long end = Math.min(available, last + MAX_BATCH);
+                    final List<GraphEvent<Node>> batch = new ArrayList<>((int) (end - last));
+                    for (long sequence = last + 1; sequence <= end; ++sequence) {
+                        batch.add((GraphEvent<Node>) ring[(int) (sequence & mask)]);
+                    }
+
+                    try {
+                        listener.onEvents(batch);
+                    }
+                    catch (RuntimeException e) {
+                        // A failing listener must not stall the writer. Report it and move on.
+                        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                    }
+                    cursor.set(end);
+                }
+            }
+            finally {
+                subscriptions.remove(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.panduit.graph;
+
+import java.io.IOException;
+import java.util.Locale;
+
+
+/**
+ * Text formats a graph can be exported in. Exports are written straight to an Appendable,
+ * one edge at a time, so nothing the size of the whole graph is built in memory.
+ *
+ * Numbers are formatted by hand; String.format is only used for the rare weight that
+ * lies right between two ways of rounding.
+ */
+public enum GraphFormat {
+
+    /**
+     * GraphViz DOT, the format of printDotFormat. Isolated vertices are not listed.
+     */
+    DOT {
+        @Override
+        void begin(Appendable out) throws IOException {
+            out.append("digraph G {\n");
+            out.append("rankdir=LR;\n");
+            out.append("node [shape = circle];\n");
+        }
+
+        @Override
+        void node(Appendable out, Object node) {
+        }
+
+        @Override
+        void edge(Appendable out, Object src, Object dest, Edge edge) throws IOException {
+            appendNode(out, src);
+            out.append(" -> ");
+            appendNode(out, dest);
+            out.append(" [ label = \"");
+            final String label = String.valueOf(edge.getLabel());
+            for (int i = 0; i < label.length(); ++i) {
+                final char c = label.charAt(i);
+                if (c == '"') {
+                    out.append('\\');
+                }
+                out.append(c);
+            }
+            out.append(" (weight = ");
+            appendOneDecimal(out, edge.getWeight());
+            out.append(")\"];\n");
+        }
+
+        @Override
+        void end(Appendable out) throws IOException {
+            out.append("}\n");
+        }
+    },
+
+    /**
+     * GraphML, with the label and weight of each edge as data
+     * @link http://graphml.graphdrawing.org/
+     */
+    GRAPHML {
+        @Override
+        void begin(Appendable out) throws IOException {
+            out.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            out.append("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+            out.append("  <key id=\"label\" for=\"edge\" attr.name=\"label\" attr.type=\"string\"/>\n");
+            out.append("  <key id=\"weight\" for=\"edge\" attr.name=\"weight\" attr.type=\"double\"/>\n");
+            out.append("  <graph id=\"G\" edgedefault=\"directed\">\n");
+        }
+
+        @Override
+        void node(Appendable out, Object node) throws IOException {
+            out.append("    <node id=\"");
+            appendXmlNode(out, node);
+            out.append("\"/>\n");
+        }
+
+        @Override
+        void edge(Appendable out, Object src, Object dest, Edge edge) throws IOException {
+            out.append("    <edge source=\"");
+            appendXmlNode(out, src);
+            out.append("\" target=\"");
+            appendXmlNode(out, dest);
+            out.append("\"><data key=\"label\">");
+            appendXml(out, edge.getLabel() == null ? "" : edge.getLabel());
+            out.append("</data><data key=\"weight\">");
+            appendDouble(out, edge.getWeight());
+            out.append("</data></edge>\n");
+        }
+
+        @Override
+        void end(Appendable out) throws IOException {
+            out.append("  </graph>\n");
+            out.append("</graphml>\n");
+        }
+    },
+
+    /**
+     * One edge per line: source, target, label and weight separated by tabs. Tabs, line
+     * breaks and backslashes in labels are escaped with a backslash. Isolated vertices are
+     * listed on a line of their own. GraphLoader.loadEdgeList reads it back.
+     */
+    EDGE_LIST {
+        @Override
+        void node(Appendable out, Object node) {
+        }
+
+        @Override
+        void isolatedNode(Appendable out, Object node) throws IOException {
+            appendNode(out, node);
+            out.append('\n');
+        }
+
+        @Override
+        void edge(Appendable out, Object src, Object dest, Edge edge) throws IOException {
+            appendNode(out, src);
+            out.append('\t');
+            appendNode(out, dest);
+            out.append('\t');
+            final String label = edge.getLabel() == null ? "" : edge.getLabel();
+            for (int i = 0; i < label.length(); ++i) {
+                final char c = label.charAt(i);
+                switch (c) {
+                    case '\t':
+                        out.append("\\t");
+                        break;
+                    case '\n':
+                        out.append("\\n");
+                        break;
+                    case '\r':
+                        out.append("\\r");
+                        break;
+                    case '\\':
+                        out.append("\\\\");
+                        break;
+                    default:
+                        out.append(c);
+                }
+            }
+            out.append('\t');
+            appendDouble(out, edge.getWeight());
+            out.append('\n');
+        }
+    };
+
+    void begin(Appendable out) throws IOException {
+    }
+
+    /**
+     * Called for every vertex, before any edge
+     */
+    abstract void node(Appendable out, Object node) throws IOException;
+
+    /**
+     * Called for every vertex with no edges in or out, before any edge
+     */
+    void isolatedNode(Appendable out, Object node) throws IOException {
+    }
+
+    abstract void edge(Appendable out, Object src, Object dest, Edge edge) throws IOException;
+
+    void end(Appendable out) throws IOException {
+    }
+
+    private static void appendNode(Appendable out, Object node) throws IOException {
+        if (node instanceof Integer || node instanceof Long) {
+            appendLong(out, ((Number) node).longValue());
+        }
+        else {
+            out.append(String.valueOf(node));
+        }
+    }
+
+    private static void appendXmlNode(Appendable out, Object node) throws IOException {
+        if (node instanceof Integer || node instanceof Long) {
+            appendLong(out, ((Number) node).longValue());
+        }
+        else {
+            appendXml(out, String.valueOf(node));
+        }
+    }
+
+    private static void appendXml(Appendable out, String text) throws IOException {
+        for (int i = 0; i < text.length(); ++i) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    out.append("&amp;");
+                    break;
+                case '<':
+                    out.append("&lt;");
+                    break;
+                case '>':
+                    out.append("&gt;");
+                    break;
+                case '"':
+                    out.append("&quot;");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+    }
+
+    /**
+     * Appends the digits of a number without creating a String
+     */
+    static void appendLong(Appendable out, long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            out.append(Long.toString(value));
+            return;
+        }
+        long remaining = value;
+        if (remaining < 0) {
+            out.append('-');
+            remaining = -remaining;
+        }
+        long power = 1;
+        while (power <= remaining / 10) {
+            power *= 10;
+        }
+        for (; power > 0; power /= 10) {
+            out.append((char) ('0' + remaining / power));
+            remaining %= power;
+        }
+    }
+
+    /**
+     * Appends a number the way String.format("%.1f") does
+     */
+    static void appendOneDecimal(Appendable out, double value) throws IOException {
+        final double magnitude = Math.abs(value);
+        final double scaled = magnitude * 10;
+        final double fraction = scaled - Math.floor(scaled);
+
+        // Large values, NaN, infinities, and values too close to a rounding tie to trust
+        // the multiplication above go the slow way
+        if (!(magnitude < 1e15) || Math.abs(fraction - 0.5) < 1e-6) {
+            out.append(String.format(Locale.ROOT, "%.1f", value));
+            return;
+        }
+
+        if (value < 0 || (value == 0 && 1 / value < 0)) {
+            out.append('-');
+        }
+        final long tenths = Math.round(scaled);
+        appendLong(out, tenths / 10);
+        out.append('.');
+        out.append((char) ('0' + tenths % 10));
+    }
+
+    /**
+     * Appends a number the way Double.toString does. Whole numbers, the usual case for
+     * weights, are written by hand.
+     */
+    static void appendDouble(Appendable out, double value) throws IOException {
+        if (value == Math.rint(value) && Math.abs(value) < 1e7 && !(value == 0 && 1 / value < 0)) {
+            appendLong(out, (long) value);
+            out.append(".0");
+        }
+        else {
+            out.append(Double.toString(value));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.panduit.graph;
+
+import java.util.List;
+
+
+/**
+ * Follows the changes made to a graph. See DirectedGraph.subscribe.
+ *
+ * @param <Node>
+ */
+@FunctionalInterface
+public interface GraphListener<Node> {
+
+    /**
+     * Called on the subscription's own thread, never while the graph's lock is held.
+     * Batches arrive in sequence order with no gaps.
+     *
+     * @param events changes made since the previous batch, oldest first
+     */
+    void onEvents(List<GraphEvent<Node>> events);
+}
@@ -0,0 +1,373 @@
+package com.panduit.graph;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import com.google.common.collect.Maps;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.WireFormat;
+
+
+/**
+ * Loads graphs written by DirectedGraph.write, and text edge lists, using every core.
+ *
+ * Files are cut into blocks of whole edge records, and the blocks are parsed in parallel.
+ * The adjacency maps are then built in parallel too. Vertices are split into partitions
+ * by id, and each partition is filled by one thread without locks. The partitions are
+ * merged into maps sized for the whole graph.
+ *
+ * The graph is only handed out once it is complete. A caller that swaps it in for a live
+ * graph through a volatile field or an AtomicReference publishes it atomically.
+ */
+public final class GraphLoader {
+
+    // Blocks are about this many bytes of records
+    static final int BLOCK_BYTES = 1 << 20;
+
+    // Text files are mapped in chunks of at least this many bytes
+    static final int MIN_TEXT_CHUNK = 1 << 20;
+    private static final int MAX_TEXT_CHUNK = 1 << 28;
+
+    private static final int TAG_EDGE = GraphProtos.Graph.EDGE_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+
+    private GraphLoader() {
+    }
+
+    /**
+     * Loads one file, parsing blocks of it in parallel
+     *
+     * @param file written by DirectedGraph.write
+     * @return the graph in the file
+     * @throws IOException
+     */
+    public static DirectedGraph<Integer> load(Path file) throws IOException {
+        return load(Collections.singletonList(file));
+    }
+
+    /**
+     * Loads every file in a directory as one graph. Each file is a GraphProtos.Graph holding
+     * some of the edges, e.g. one shard each. Where shards hold the same edge, the one in the
+     * file that sorts last by name wins.
+     *
+     * @param directory holds the shard files and nothing else
+     * @return the graph made of all the shards
+     * @throws IOException
+     */
+    public static DirectedGraph<Integer> loadShards(Path directory) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, Files::isRegularFile)) {
+            for (final Path entry : entries) {
+                files.add(entry);
+            }
+        }
+        Collections.sort(files);
+        return load(files);
+    }
+
+    /**
+     * Loads several files as one graph. Later files win where the same edge appears twice.
+     *
+     * @param files written by DirectedGraph.write
+     * @return the graph made of all the files
+     * @throws IOException
+     */
+    public static DirectedGraph<Integer> load(List<Path> files) throws IOException {
+        try {
+            // Read and split the files in parallel, then parse every block in parallel
+            final List<Chunk> chunks = files.parallelStream()
+                    .flatMap(file -> split(file).stream())
+                    .collect(Collectors.toList());
+            final List<EdgeBlock> blocks = chunks.parallelStream()
+                    .map(GraphLoader::parse)
+                    .collect(Collectors.toList());
+            return build(blocks);
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Loads a text file with one edge per line: source, target, and optionally a label and a
+     * weight, separated by tabs or spaces. This reads both dumps in the usual
+     * "src dst label weight" form and files written with GraphFormat.EDGE_LIST. A line with
+     * just one vertex adds it without edges, and lines starting with '#' or '%' are comments.
+     *
+     * The file is memory mapped in chunks that end at line breaks, and the chunks are parsed
+     * in parallel.
+     *
+     * @param file edge list
+     * @return the graph in the file
+     * @throws IOException if the file cannot be read or a line is not an edge
+     */
+    public static DirectedGraph<Integer> loadEdgeList(Path file) throws IOException {
+        return loadText(file, false);
+    }
+
+    /**
+     * Loads a CSV file with one edge per line, in the columns of loadEdgeList. Labels may be
+     * double quoted, to hold commas or quotes, but not line breaks. A header line is skipped.
+     *
+     * @param file CSV file
+     * @return the graph in the file
+     * @throws IOException if the file cannot be read or a line is not an edge
+     */
+    public static DirectedGraph<Integer> loadCsv(Path file) throws IOException {
+        return loadText(file, true);
+    }
+
+    private static DirectedGraph<Integer> loadText(Path file, boolean csv) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final long chunkBytes = Math.min(MAX_TEXT_CHUNK,
+                    Math.max(MIN_TEXT_CHUNK, size / Math.max(1, ForkJoinPool.getCommonPoolParallelism() * 4)));
+
+            // Cut the file after the first line break past every chunkBytes
+            final List<long[]> ranges = new ArrayList<>();
+            long start = 0;
+            while (start < size) {
+                final long end = start + chunkBytes >= size ? size : nextLine(channel, start + chunkBytes, size);
+                ranges.add(new long[] {start, end});
+                start = end;
+            }
+
+            final List<EdgeBlock> blocks = ranges.parallelStream()
+                    .map(range -> {
+                        try {
+                            final ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1] - range[0]);
+                            return TextEdgeParser.parse(mapped, range[0], csv);
+                        }
+                        catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .collect(Collectors.toList());
+            return build(blocks);
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @return the position just after the first line break at or after position, or size
+     */
+    private static long nextLine(FileChannel channel, long position, long size) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long offset = position;
+        while (offset < size) {
+            buffer.clear();
+            final int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; ++i) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    /**
+     * Bytes of a file, and the range in it to parse
+     */
+    private static final class Chunk {
+        final byte[] bytes;
+        final int offset;
+        final int length;
+
+        Chunk(byte[] bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Reads a file and finds where its blocks start. Only the record headers are read
+     * here; records are skipped over without being parsed.
+     */
+    private static List<Chunk> split(Path file) {
+        final byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        final List<Chunk> chunks = new ArrayList<>();
+        final CodedInputStream in = CodedInputStream.newInstance(bytes);
+        in.setSizeLimit(Integer.MAX_VALUE);
+        int start = 0;
+        try {
+            while (!in.isAtEnd()) {
+                if (!in.skipField(in.readTag())) {
+                    break;
+                }
+                final int position = in.getTotalBytesRead();
+                if (position - start >= BLOCK_BYTES) {
+                    chunks.add(new Chunk(bytes, start, position - start));
+                    start = position;
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(file + " is not a graph file", e);
+        }
+        if (start < bytes.length) {
+            chunks.add(new Chunk(bytes, start, bytes.length - start));
+        }
+        return chunks;
+    }
+
+    private static EdgeBlock parse(Chunk chunk) {
+        // Records are rarely smaller than 8 bytes
+        final EdgeBlock block = new EdgeBlock(chunk.length / 8);
+        final CodedInputStream in = CodedInputStream.newInstance(chunk.bytes, chunk.offset, chunk.length);
+        in.setSizeLimit(Integer.MAX_VALUE);
+        try {
+            while (!in.isAtEnd()) {
+                final int tag = in.readTag();
+                if (tag != TAG_EDGE) {
+                    in.skipField(tag);
+                    continue;
+                }
+                final GraphProtos.Edge edge = in.readMessage(GraphProtos.Edge.parser(), ExtensionRegistryLite.getEmptyRegistry());
+                block.add(edge.getFrom(), edge.getTo(), new Edge(edge.getLabel(), edge.getWeight()));
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return block;
+    }
+
+    /**
+     * Builds a graph from parsed edges. Where the same edge appears more than once, the
+     * last one wins, in block order and then in order within the block, as if they had
+     * been added one by one.
+     *
+     * @param blocks edges to put in the graph
+     * @return the new graph
+     */
+    static DirectedGraph<Integer> build(List<EdgeBlock> blocks) {
+        final int partitions = Math.max(1, ForkJoinPool.getCommonPoolParallelism() * 4);
+
+        // Group the edges of each block by the partition of their source and their target.
+        // The sort is stable, so the order within a block is kept.
+        final List<int[][]> grouped = blocks.parallelStream()
+                .map(block -> new int[][] {
+                        groupByPartition(block.from, block.size, partitions),
+                        groupByPartition(block.to, block.size, partitions)})
+                .collect(Collectors.toList());
+
+        // Every vertex belongs to one partition, and only that partition's thread touches its maps
+        final List<Partition> built = IntStream.range(0, partitions).parallel()
+                .mapToObj(p -> buildPartition(blocks, grouped, partitions, p))
+                .collect(Collectors.toList());
+
+        int nodes = 0;
+        for (final Partition partition : built) {
+            nodes += partition.outgoing.size();
+        }
+
+        // Partitions hold different vertices, so they merge without conflicts. The graph keeps
+        // plain HashMaps, like any other DirectedGraph, which answer lookups of null.
+        final Map<Integer, Map<Integer, Edge>> outgoing = Maps.newHashMapWithExpectedSize(nodes);
+        final Map<Integer, Map<Integer, Edge>> incoming = Maps.newHashMapWithExpectedSize(nodes);
+        long edgeCount = 0;
+        for (final Partition partition : built) {
+            outgoing.putAll(partition.outgoing);
+            incoming.putAll(partition.incoming);
+            for (final Map<Integer, Edge> neighbors : partition.outgoing.values()) {
+                edgeCount += neighbors.size();
+            }
+        }
+        return new DirectedGraph<>(outgoing, incoming, edgeCount);
+    }
+
+    private static int partition(int node, int partitions) {
+        return ((node * 0x9E3779B9) >>> 1) % partitions;
+    }
+
+    /**
+     * Counting sort of edge indexes by the partition of an endpoint
+     *
+     * @return the first partitions + 1 entries are where each partition starts in the
+     * rest of the array, which holds the sorted edge indexes
+     */
+    private static int[] groupByPartition(int[] endpoints, int size, int partitions) {
+        final int[] grouped = new int[partitions + 1 + size];
+        for (int i = 0; i < size; ++i) {
+            ++grouped[partition(endpoints[i], partitions) + 1];
+        }
+        grouped[0] = partitions + 1;
+        for (int p = 0; p < partitions; ++p) {
+            grouped[p + 1] += grouped[p];
+        }
+
+        final int[] fill = new int[partitions];
+        System.arraycopy(grouped, 0, fill, 0, partitions);
+        for (int i = 0; i < size; ++i) {
+            grouped[fill[partition(endpoints[i], partitions)]++] = i;
+        }
+        return grouped;
+    }
+
+    /**
+     * Adjacency maps of the vertices in one partition
+     */
+    private static final class Partition {
+        final Map<Integer, Map<Integer, Edge>> outgoing = new HashMap<>();
+        final Map<Integer, Map<Integer, Edge>> incoming = new HashMap<>();
+    }
+
+    private static Partition buildPartition(List<EdgeBlock> blocks, List<int[][]> grouped, int partitions, int p) {
+        final Partition built = new Partition();
+        final Map<Integer, Map<Integer, Edge>> outgoing = built.outgoing;
+        final Map<Integer, Map<Integer, Edge>> incoming = built.incoming;
+        for (int b = 0; b < blocks.size(); ++b) {
+            final EdgeBlock block = blocks.get(b);
+
+            final int[] bySource = grouped.get(b)[0];
+            for (int k = bySource[p]; k < bySource[p + 1]; ++k) {
+                final int e = bySource[k];
+                outgoing.computeIfAbsent(block.from[e], node -> new HashMap<>()).put(block.to[e], block.edges[e]);
+                incoming.computeIfAbsent(block.from[e], node -> new HashMap<>());
+            }
+
+            final int[] byTarget = grouped.get(b)[1];
+            for (int k = byTarget[p]; k < byTarget[p + 1]; ++k) {
+                final int e = byTarget[k];
+                incoming.computeIfAbsent(block.to[e], node -> new HashMap<>()).put(block.from[e], block.edges[e]);
+                outgoing.computeIfAbsent(block.to[e], node -> new HashMap<>());
+            }
+
+            for (int i = 0; i < block.nodeCount; ++i) {
+                if (partition(block.nodes[i], partitions) == p) {
+                    outgoing.computeIfAbsent(block.nodes[i], node -> new HashMap<>());
+                    incoming.computeIfAbsent(block.nodes[i], node -> new HashMap<>());
+                }
+            }
+        }
+        return built;
+    }
+}
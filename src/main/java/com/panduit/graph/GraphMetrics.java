@@ -0,0 +1,78 @@
+package com.panduit.graph;
+
+
+/**
+ * Receives measurements from a DirectedGraph. Every method does nothing by default,
+ * so an implementation only overrides what it is interested in.
+ *
+ * Methods are called on the thread doing the work, often while the graph's lock
+ * is held. Implementations must be thread-safe and fast, and must not call back into the graph.
+ */
+public interface GraphMetrics {
+
+    /**
+     * Does not record anything. The graph skips taking timestamps altogether when this is in use.
+     */
+    GraphMetrics NOOP = new GraphMetrics() {
+    };
+
+    enum Operation {
+        ADD_NODE,
+        REMOVE_NODE,
+        ADD_EDGE,
+        REMOVE_EDGE,
+        IS_CONNECTED,
+        IS_REACHABLE,
+        FIND_SHORTEST_PATH,
+        FIND_LONGEST_PATH,
+        FIND_K_SHORTEST_PATHS,
+        BFS,
+        TOPOLOGICAL_ORDER,
+        STRONGLY_CONNECTED_COMPONENTS,
+        GET_OUTGOING_EDGES,
+        GET_INCOMING_EDGES,
+        SNAPSHOT
+    }
+
+    /**
+     * An operation finished
+     *
+     * @param operation what was done
+     * @param nanos how long it took, including waiting for the lock
+     */
+    default void operationCompleted(Operation operation, long nanos) {
+    }
+
+    /**
+     * A thread had to wait for the lock because another thread held it
+     *
+     * @param write true for the write lock, false for the read lock
+     * @param nanos how long the thread waited
+     */
+    default void lockContended(boolean write, long nanos) {
+    }
+
+    /**
+     * A shortest or longest path search finished
+     *
+     * @param nodes number of vertices taken off the queue or relaxed
+     */
+    default void nodesSettled(long nodes) {
+    }
+
+    /**
+     * A connectivity search finished
+     *
+     * @param nodes number of vertices visited
+     */
+    default void nodesVisited(long nodes) {
+    }
+
+    /**
+     * Edges were copied out of the graph for a caller
+     *
+     * @param edges number of edges copied
+     */
+    default void edgesCopied(long edges) {
+    }
+}
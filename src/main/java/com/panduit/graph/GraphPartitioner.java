@@ -0,0 +1,270 @@
+package com.panduit.graph;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+import com.google.protobuf.CodedOutputStream;
+
+
+/**
+ * Splits a graph into shards with few edges between them, so a graph too big for one JVM
+ * can be spread over several and most traversals stay within one shard.
+ *
+ * Vertices are assigned with linear deterministic greedy (LDG) streaming: in breadth first
+ * order, each vertex goes to the shard holding most of its neighbors, weighed down by how full
+ * the shard is. No shard gets more than 10% over an even share. One pass places many vertices
+ * before their neighbors, so the stream is run again, knowing where every vertex went last
+ * time, until hardly any vertex moves.
+ * @link https://doi.org/10.1145/2339530.2339722
+ * @link https://doi.org/10.1145/2723372.2723742
+ */
+public final class GraphPartitioner {
+
+    // Directory of the boundary files, inside the shard directory
+    static final String BOUNDARY_DIRECTORY = "boundary";
+
+    private static final double SLACK = 1.1;
+    private static final int MAX_PASSES = 16;
+
+    private GraphPartitioner() {
+    }
+
+    /**
+     * @param graph graph to split
+     * @param shards number of shards
+     * @return the shard of every vertex, from 0 to shards - 1
+     */
+    public static <Node> Map<Node, Integer> partition(Graph<Node> graph, int shards) {
+        final CsrGraph<Node> csr = graph.snapshot();
+        final int[] shardOf = assign(csr, shards);
+        final Map<Node, Integer> assignment = new HashMap<>(shardOf.length * 2);
+        for (int id = 0; id < shardOf.length; ++id) {
+            assignment.put(csr.getNode(id), shardOf[id]);
+        }
+        return assignment;
+    }
+
+    /**
+     * Splits a graph and writes each shard as a file in the format of DirectedGraph.write.
+     * A shard holds the outgoing edges of its vertices, so loading every shard file with
+     * GraphLoader.loadShards gives back the whole graph, less its isolated vertices.
+     *
+     * Next to each shard, in the boundary directory, a file of the same name lists the vertices
+     * on edges between this shard and another: the targets of its edges owned by other shards,
+     * and its own vertices that edges from other shards point to. Each is written as a
+     * GraphProtos.Edge from the vertex to the number of the shard that owns it.
+     *
+     * @param graph graph to split
+     * @param shards number of shards
+     * @param directory where to write the shards. It is created if needed.
+     * @return the shard of every vertex
+     * @throws IOException
+     */
+    public static Map<Integer, Integer> writeShards(Graph<Integer> graph, int shards, Path directory) throws IOException {
+        final CsrGraph<Integer> csr = graph.snapshot();
+        final int[] shardOf = assign(csr, shards);
+        Files.createDirectories(directory.resolve(BOUNDARY_DIRECTORY));
+
+        // Group the vertices by shard
+        final int[] starts = new int[shards + 1];
+        for (final int shard : shardOf) {
+            ++starts[shard + 1];
+        }
+        for (int s = 0; s < shards; ++s) {
+            starts[s + 1] += starts[s];
+        }
+        final int[] members = new int[shardOf.length];
+        final int[] fill = Arrays.copyOf(starts, shards);
+        for (int id = 0; id < shardOf.length; ++id) {
+            members[fill[shardOf[id]]++] = id;
+        }
+
+        try {
+            IntStream.range(0, shards).parallel()
+                    .forEach(s -> writeShard(csr, shardOf, Arrays.copyOfRange(members, starts[s], starts[s + 1]), s, directory));
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        final Map<Integer, Integer> assignment = new HashMap<>(shardOf.length * 2);
+        for (int id = 0; id < shardOf.length; ++id) {
+            assignment.put(csr.getNode(id), shardOf[id]);
+        }
+        return assignment;
+    }
+
+    /**
+     * @param directory written by writeShards
+     * @param shard number of the shard
+     * @return the edges of the shard
+     * @throws IOException
+     */
+    public static DirectedGraph<Integer> loadShard(Path directory, int shard) throws IOException {
+        return GraphLoader.load(directory.resolve(shardFileName(shard)));
+    }
+
+    /**
+     * @param directory written by writeShards
+     * @param shard number of the shard
+     * @return the boundary vertices of the shard, each with the shard that owns it
+     * @throws IOException
+     */
+    public static Map<Integer, Integer> readBoundary(Path directory, int shard) throws IOException {
+        final Map<Integer, Integer> owners = new HashMap<>();
+        final GraphProtos.Graph boundary;
+        try (InputStream input = Files.newInputStream(directory.resolve(BOUNDARY_DIRECTORY).resolve(shardFileName(shard)))) {
+            boundary = GraphProtos.Graph.parseFrom(input);
+        }
+        for (final GraphProtos.Edge entry : boundary.getEdgeList()) {
+            owners.put(entry.getFrom(), entry.getTo());
+        }
+        return owners;
+    }
+
+    static String shardFileName(int shard) {
+        return String.format("shard-%05d.data", shard);
+    }
+
+    /**
+     * @param graph snapshot to split
+     * @param shards number of shards
+     * @return the shard of every vertex, by dense id
+     */
+    static int[] assign(CsrGraph<?> graph, int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Need at least one shard, got " + shards);
+        }
+        final int n = graph.getNodeCount();
+        final int[] shardOf = new int[n];
+        if (shards == 1 || n == 0) {
+            return shardOf;
+        }
+        Arrays.fill(shardOf, -1);
+
+        final long capacity = (long) Math.ceil(SLACK * n / shards);
+        final long[] sizes = new long[shards];
+        final int[] neighbors = new int[shards];
+        final int[] touched = new int[shards];
+
+        final int[] order = NodeOrdering.BFS.order(graph);
+        int moved = n;
+        for (int pass = 0; pass < MAX_PASSES && moved > n / 1000; ++pass) {
+            moved = 0;
+            for (final int v : order) {
+                if (shardOf[v] >= 0) {
+                    --sizes[shardOf[v]];
+                }
+
+                // Count the neighbors already placed in each shard
+                int touchedCount = 0;
+                for (int e = graph.outOffsets[v]; e < graph.outOffsets[v + 1]; ++e) {
+                    final int shard = shardOf[graph.outTargets[e]];
+                    if (shard >= 0 && neighbors[shard]++ == 0) {
+                        touched[touchedCount++] = shard;
+                    }
+                }
+                for (int e = graph.inOffsets[v]; e < graph.inOffsets[v + 1]; ++e) {
+                    final int shard = shardOf[graph.inSources[e]];
+                    if (shard >= 0 && neighbors[shard]++ == 0) {
+                        touched[touchedCount++] = shard;
+                    }
+                }
+
+                int best = -1;
+                double bestScore = Double.NEGATIVE_INFINITY;
+                for (int s = 0; s < shards; ++s) {
+                    if (sizes[s] >= capacity) {
+                        continue;
+                    }
+                    final double score = neighbors[s] * (1 - (double) sizes[s] / capacity);
+                    if (score > bestScore || (score == bestScore && sizes[s] < sizes[best])) {
+                        best = s;
+                        bestScore = score;
+                    }
+                }
+                for (int i = 0; i < touchedCount; ++i) {
+                    neighbors[touched[i]] = 0;
+                }
+
+                if (shardOf[v] != best) {
+                    ++moved;
+                }
+                shardOf[v] = best;
+                ++sizes[best];
+            }
+        }
+        return shardOf;
+    }
+
+    private static void writeShard(CsrGraph<Integer> graph, int[] shardOf, int[] members, int shard, Path directory) {
+        final int[] boundary = new int[members.length];
+        int[] remote = new int[16];
+        int boundaryCount = 0;
+        int remoteCount = 0;
+
+        try (OutputStream file = Files.newOutputStream(directory.resolve(shardFileName(shard)))) {
+            final CodedOutputStream out = CodedOutputStream.newInstance(file, 1 << 16);
+            for (final int u : members) {
+                for (int e = graph.outOffsets[u]; e < graph.outOffsets[u + 1]; ++e) {
+                    final int v = graph.outTargets[e];
+                    final Edge edge = graph.outEdges[e];
+                    // Same bytes as a GraphProtos.Graph holding the edges, one record at a time
+                    out.writeMessage(GraphProtos.Graph.EDGE_FIELD_NUMBER, GraphProtos.Edge.newBuilder()
+                            .setFrom(graph.getNode(u))
+                            .setTo(graph.getNode(v))
+                            .setLabel(edge.getLabel() == null ? "" : edge.getLabel())
+                            .setWeight(edge.getWeight())
+                            .build());
+                    if (shardOf[v] != shard) {
+                        if (remoteCount == remote.length) {
+                            remote = Arrays.copyOf(remote, remoteCount * 2);
+                        }
+                        remote[remoteCount++] = v;
+                    }
+                }
+                for (int e = graph.inOffsets[u]; e < graph.inOffsets[u + 1]; ++e) {
+                    if (shardOf[graph.inSources[e]] != shard) {
+                        boundary[boundaryCount++] = u;
+                        break;
+                    }
+                }
+            }
+            out.flush();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        // Remote vertices come up once per edge pointing at them
+        Arrays.sort(remote, 0, remoteCount);
+        final int[] vertices = Arrays.copyOf(boundary, boundaryCount + remoteCount);
+        int count = boundaryCount;
+        for (int i = 0; i < remoteCount; ++i) {
+            if (i == 0 || remote[i] != remote[i - 1]) {
+                vertices[count++] = remote[i];
+            }
+        }
+
+        try (OutputStream file = Files.newOutputStream(directory.resolve(BOUNDARY_DIRECTORY).resolve(shardFileName(shard)))) {
+            final CodedOutputStream out = CodedOutputStream.newInstance(file);
+            for (int i = 0; i < count; ++i) {
+                out.writeMessage(GraphProtos.Graph.EDGE_FIELD_NUMBER, GraphProtos.Edge.newBuilder()
+                        .setFrom(graph.getNode(vertices[i]))
+                        .setTo(shardOf[vertices[i]])
+                        .build());
+            }
+            out.flush();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.panduit.graph;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * One shard of a graph split by GraphPartitioner, answering the searches a ShardCoordinator
+ * sends it. Searches only follow the shard's own edges; crossing to another shard is left
+ * to the coordinator.
+ *
+ * The shard searches a snapshot of its graph, so later changes to the graph are not seen.
+ */
+public final class GraphShard {
+    private final int shard;
+    private final CsrGraph<Integer> graph;
+    private final Map<Integer, Integer> boundary;
+
+    // By dense id: vertices owned by other shards, and own vertices edges from other shards point to
+    private final boolean[] remote;
+    private final boolean[] entry;
+
+    private final ThreadLocal<Search> searches;
+
+    /**
+     * @param shard number of this shard
+     * @param graph the outgoing edges of the vertices this shard owns
+     * @param boundary vertices on edges between this shard and others, each with its shard,
+     *                 as written by GraphPartitioner.writeShards
+     */
+    public GraphShard(int shard, Graph<Integer> graph, Map<Integer, Integer> boundary) {
+        this.shard = shard;
+        this.graph = graph.snapshot();
+        this.boundary = boundary;
+
+        final int n = this.graph.getNodeCount();
+        remote = new boolean[n];
+        entry = new boolean[n];
+        for (final Map.Entry<Integer, Integer> vertex : boundary.entrySet()) {
+            final int id = this.graph.getId(vertex.getKey());
+            if (id >= 0) {
+                remote[id] = vertex.getValue() != shard;
+                entry[id] = vertex.getValue() == shard;
+            }
+        }
+        searches = ThreadLocal.withInitial(() -> new Search(n));
+    }
+
+    /**
+     * @param directory written by GraphPartitioner.writeShards
+     * @param shard number of the shard
+     * @return the shard
+     * @throws IOException
+     */
+    public static GraphShard load(Path directory, int shard) throws IOException {
+        return new GraphShard(shard, GraphPartitioner.loadShard(directory, shard), GraphPartitioner.readBoundary(directory, shard));
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    /**
+     * Answers a request from a ShardCoordinator. Safe to call from several threads at once.
+     *
+     * @param request bytes sent by the coordinator
+     * @return bytes to send back
+     * @throws IllegalArgumentException if the request is malformed
+     */
+    public byte[] handle(byte[] request) {
+        final ShardMessage in = ShardMessage.decode(request);
+        switch (in.type) {
+            case ShardMessage.OVERLAY:
+                return overlay().encode();
+            case ShardMessage.FROM:
+                return from(in.first[0], in.second[0]).encode();
+            case ShardMessage.TO:
+                return to(in.first[0]).encode();
+            case ShardMessage.PATHS:
+                return paths(in).encode();
+            default:
+                throw new IllegalArgumentException("Unknown shard request " + in.type);
+        }
+    }
+
+    private boolean owns(int node) {
+        final Integer owner = boundary.get(node);
+        return owner != null ? owner == shard : graph.getId(node) >= 0;
+    }
+
+    /**
+     * @return (entry, exit, distance) for every vertex of another shard each entry reaches
+     */
+    private ShardMessage overlay() {
+        final List<Integer> entries = new ArrayList<>();
+        for (int id = 0; id < entry.length; ++id) {
+            if (entry[id]) {
+                entries.add(id);
+            }
+        }
+
+        final List<ShardMessage> parts = new ArrayList<>();
+        entries.parallelStream()
+                .map(id -> {
+                    final Search search = searches.get();
+                    search.run(id, false, -1);
+                    final ShardMessage part = new ShardMessage(ShardMessage.RESULT);
+                    for (int i = 0; i < search.reachedCount; ++i) {
+                        final int v = search.reached[i];
+                        if (remote[v]) {
+                            part.add(graph.getNode(id), graph.getNode(v), search.distance[v]);
+                        }
+                    }
+                    return part;
+                })
+                .forEachOrdered(parts::add);
+
+        final ShardMessage out = new ShardMessage(ShardMessage.RESULT);
+        for (final ShardMessage part : parts) {
+            out.addAll(part);
+        }
+        return out;
+    }
+
+    /**
+     * @return nothing if src is not in this shard. Otherwise src as the SOURCE, the vertices
+     * of other shards it reaches as EXITs, and dest as the DESTINATION if it is reached,
+     * each with its distance.
+     */
+    private ShardMessage from(int src, int dest) {
+        final ShardMessage out = new ShardMessage(ShardMessage.RESULT);
+        if (!owns(src)) {
+            return out;
+        }
+        out.add(src, ShardMessage.SOURCE, 0);
+
+        final int id = graph.getId(src);
+        if (id < 0) {
+            if (src == dest) {
+                out.add(dest, ShardMessage.DESTINATION, 0);
+            }
+            return out;
+        }
+
+        final Search search = searches.get();
+        search.run(id, false, -1);
+        for (int i = 0; i < search.reachedCount; ++i) {
+            final int v = search.reached[i];
+            if (remote[v]) {
+                out.add(graph.getNode(v), ShardMessage.EXIT, search.distance[v]);
+            }
+            if (graph.getNode(v) == dest) {
+                out.add(dest, ShardMessage.DESTINATION, search.distance[v]);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @return nothing if dest is not in this shard. Otherwise (entry, 0, distance) for
+     * every entry that reaches dest.
+     */
+    private ShardMessage to(int dest) {
+        final ShardMessage out = new ShardMessage(ShardMessage.RESULT);
+        if (!owns(dest)) {
+            return out;
+        }
+
+        final int id = graph.getId(dest);
+        if (id < 0) {
+            // Only reached from other shards, and without edges of its own
+            out.add(dest, 0, 0);
+            return out;
+        }
+
+        final Search search = searches.get();
+        search.run(id, true, -1);
+        for (int i = 0; i < search.reachedCount; ++i) {
+            final int v = search.reached[i];
+            if (entry[v]) {
+                out.add(graph.getNode(v), 0, search.distance[v]);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @return (segment, vertex, 0) for the vertices of the shortest path of each requested
+     * (from, to) segment, in order. Segments without a path have no records.
+     */
+    private ShardMessage paths(ShardMessage in) {
+        final ShardMessage out = new ShardMessage(ShardMessage.RESULT);
+        final Search search = searches.get();
+        int[] path = new int[16];
+        for (int segment = 0; segment < in.size; ++segment) {
+            final int from = graph.getId(in.first[segment]);
+            final int to = graph.getId(in.second[segment]);
+            if (in.first[segment] == in.second[segment]) {
+                out.add(segment, in.first[segment], 0);
+                continue;
+            }
+            if (from < 0 || to < 0) {
+                continue;
+            }
+
+            search.run(from, false, to);
+            if (search.distance[to] == Double.POSITIVE_INFINITY) {
+                continue;
+            }
+            int length = 0;
+            for (int v = to; v >= 0; v = search.previous[v]) {
+                if (length == path.length) {
+                    path = Arrays.copyOf(path, length * 2);
+                }
+                path[length++] = v;
+            }
+            for (int i = length - 1; i >= 0; --i) {
+                out.add(segment, graph.getNode(path[i]), 0);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Dijkstra over the snapshot, reusing its arrays from one search to the next
+     */
+    private final class Search {
+        final double[] distance;
+        final int[] previous;
+        final IntMinHeap heap;
+
+        // Vertices given a distance by the last search
+        final int[] reached;
+        int reachedCount = 0;
+
+        Search(int n) {
+            distance = new double[n];
+            previous = new int[n];
+            heap = new IntMinHeap(n);
+            reached = new int[n];
+            Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        }
+
+        /**
+         * @param source dense id to start from
+         * @param backward follow edges against their direction
+         * @param stop dense id to stop at once settled, or -1 to search everything reachable
+         */
+        void run(int source, boolean backward, int stop) {
+            for (int i = 0; i < reachedCount; ++i) {
+                distance[reached[i]] = Double.POSITIVE_INFINITY;
+            }
+            while (!heap.isEmpty()) {
+                heap.poll();
+            }
+
+            final int[] offsets = backward ? graph.inOffsets : graph.outOffsets;
+            final int[] neighbors = backward ? graph.inSources : graph.outTargets;
+            final double[] weights = backward ? graph.inWeights : graph.outWeights;
+
+            reachedCount = 0;
+            distance[source] = 0;
+            previous[source] = -1;
+            reached[reachedCount++] = source;
+            heap.insertOrDecrease(source, 0);
+            while (!heap.isEmpty()) {
+                final int u = heap.poll();
+                if (u == stop) {
+                    break;
+                }
+                for (int e = offsets[u]; e < offsets[u + 1]; ++e) {
+                    final int v = neighbors[e];
+                    final double alt = distance[u] + weights[e];
+                    if (alt < distance[v]) {
+                        if (distance[v] == Double.POSITIVE_INFINITY) {
+                            reached[reachedCount++] = v;
+                        }
+                        distance[v] = alt;
+                        previous[v] = u;
+                        heap.insertOrDecrease(v, alt);
+                    }
+                }
+            }
+        }
+    }
+}
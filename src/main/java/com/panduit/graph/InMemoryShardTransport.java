@@ -0,0 +1,38 @@
+package com.panduit.graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * Transport to shards in the same JVM, for tests and for running a partitioned graph on one
+ * machine. Requests are answered on the calling thread.
+ */
+public final class InMemoryShardTransport implements ShardTransport {
+    private final List<GraphShard> shards;
+
+    /**
+     * @param shards indexed by shard number
+     */
+    public InMemoryShardTransport(List<GraphShard> shards) {
+        this.shards = new ArrayList<>(shards);
+    }
+
+    @Override
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    @Override
+    public CompletableFuture<byte[]> send(int shard, byte[] request) {
+        final CompletableFuture<byte[]> response = new CompletableFuture<>();
+        try {
+            response.complete(shards.get(shard).handle(request));
+        }
+        catch (RuntimeException e) {
+            response.completeExceptionally(e);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,112 @@
+package com.panduit.graph;
+
+import java.util.Arrays;
+
+
+/**
+ * Binary min-heap of dense vertex ids keyed by a double, with decrease-key.
+ * Used by the array based shortest path algorithms in place of a PriorityQueue of boxed values.
+ */
+final class IntMinHeap {
+    private final int[] heap;
+    private final double[] keys;
+
+    // Position of each id in the heap, or -1 if it is not in the heap
+    private final int[] position;
+    private int size = 0;
+
+    IntMinHeap(int capacity) {
+        heap = new int[capacity];
+        keys = new double[capacity];
+        position = new int[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int id) {
+        return position[id] >= 0;
+    }
+
+    double key(int id) {
+        return keys[id];
+    }
+
+    /**
+     * Adds the id, or lowers its key if it is already in the heap with a larger one
+     */
+    void insertOrDecrease(int id, double key) {
+        if (position[id] < 0) {
+            heap[size] = id;
+            position[id] = size;
+            keys[id] = key;
+            siftUp(size++);
+        }
+        else if (key < keys[id]) {
+            keys[id] = key;
+            siftUp(position[id]);
+        }
+    }
+
+    /**
+     * Removes the id with the smallest key
+     */
+    int poll() {
+        final int top = heap[0];
+        position[top] = -1;
+        if (--size > 0) {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Empties the heap so it can be reused
+     */
+    void clear() {
+        for (int i = 0; i < size; ++i) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int i) {
+        final int id = heap[i];
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (keys[heap[parent]] <= keys[id]) {
+                break;
+            }
+            heap[i] = heap[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = id;
+        position[id] = i;
+    }
+
+    private void siftDown(int i) {
+        final int id = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]) {
+                ++child;
+            }
+            if (keys[id] <= keys[heap[child]]) {
+                break;
+            }
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = id;
+        position[id] = i;
+    }
+}
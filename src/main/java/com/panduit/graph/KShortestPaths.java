@@ -0,0 +1,131 @@
+package com.panduit.graph;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+
+/**
+ * Yen's algorithm for the k shortest loopless paths between two vertices.
+ * @link https://en.wikipedia.org/wiki/Yen%27s_algorithm
+ *
+ * Paths are produced one at a time, so a caller that stops after the first few does not
+ * pay for the rest. Every spur path search runs on the graph itself with the edges and
+ * vertices Yen's algorithm rules out masked by an EdgeFilter, instead of on a copy.
+ *
+ * The caller is responsible for holding a lock that keeps the adjacency
+ * maps from being modified during each call to next().
+ *
+ * @param <Node>
+ */
+final class KShortestPaths<Node> {
+    private final Map<Node, Map<Node, Edge>> outgoing;
+    private final Node src;
+    private final Node dest;
+
+    // Paths handed out so far, shortest first
+    private final List<Path<Node>> accepted = new ArrayList<>();
+
+    // Paths found but not handed out yet
+    private final PriorityQueue<Path<Node>> candidates = new PriorityQueue<>();
+    private final Set<List<Node>> seen = new HashSet<>();
+
+    // Vertices settled by the searches since the last call to takeSettled()
+    private long settled = 0;
+
+    KShortestPaths(Map<Node, Map<Node, Edge>> outgoing, Node src, Node dest) {
+        this.outgoing = outgoing;
+        this.src = src;
+        this.dest = dest;
+    }
+
+    /**
+     * @return the next shortest path, or null if there are no more paths
+     */
+    List<Node> next() {
+        if (accepted.isEmpty()) {
+            final ShortestPaths.Tree<Node> tree = ShortestPaths.find(outgoing, src, dest, EdgeFilter.all());
+            settled += tree.settled;
+            if (!tree.distance.containsKey(dest)) {
+                return null;
+            }
+            return accept(new Path<>(tree.pathTo(dest), tree.distance.get(dest)));
+        }
+
+        addSpurPaths(accepted.get(accepted.size() - 1));
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        return accept(candidates.remove());
+    }
+
+    private List<Node> accept(Path<Node> path) {
+        accepted.add(path);
+        seen.add(path.nodes);
+        return new ArrayList<>(path.nodes);
+    }
+
+    /**
+     * Deviates from the last path at each of its vertices in turn
+     */
+    private void addSpurPaths(Path<Node> last) {
+        double rootCost = 0;
+        for (int i = 0; i < last.nodes.size() - 1; ++i) {
+            final Node spur = last.nodes.get(i);
+            final List<Node> root = last.nodes.subList(0, i + 1);
+
+            // Edges out of the spur vertex already taken by paths sharing this root
+            final Set<Node> takenNext = new HashSet<>();
+            for (final Path<Node> path : accepted) {
+                if (path.nodes.size() > i + 1 && path.nodes.subList(0, i + 1).equals(root)) {
+                    takenNext.add(path.nodes.get(i + 1));
+                }
+            }
+
+            // The root path's vertices, other than the spur vertex, may not be revisited
+            final Set<Node> rootNodes = new HashSet<>(last.nodes.subList(0, i));
+
+            final ShortestPaths.Tree<Node> tree = ShortestPaths.find(outgoing, spur, dest, (u, v, edge) ->
+                    !rootNodes.contains(v) && !(u.equals(spur) && takenNext.contains(v)));
+            settled += tree.settled;
+
+            if (tree.distance.containsKey(dest)) {
+                final List<Node> nodes = new ArrayList<>(last.nodes.subList(0, i));
+                nodes.addAll(tree.pathTo(dest));
+                if (seen.add(nodes)) {
+                    candidates.add(new Path<>(nodes, rootCost + tree.distance.get(dest)));
+                }
+            }
+
+            rootCost += outgoing.get(spur).get(last.nodes.get(i + 1)).getWeight();
+        }
+    }
+
+    /**
+     * @return vertices settled since the last call
+     */
+    long takeSettled() {
+        final long count = settled;
+        settled = 0;
+        return count;
+    }
+
+    private static final class Path<Node> implements Comparable<Path<Node>> {
+        private final List<Node> nodes;
+        private final double cost;
+
+        private Path(List<Node> nodes, double cost) {
+            this.nodes = nodes;
+            this.cost = cost;
+        }
+
+        @Override
+        public int compareTo(Path<Node> other) {
+            final int byCost = Double.compare(cost, other.cost);
+            return byCost != 0 ? byCost : Integer.compare(nodes.size(), other.nodes.size());
+        }
+    }
+}
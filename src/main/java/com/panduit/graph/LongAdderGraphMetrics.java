@@ -0,0 +1,161 @@
+package com.panduit.graph;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Keeps counters and latency histograms in memory, cheap enough to leave on in production.
+ *
+ * Counters are LongAdders, so threads recording at the same time do not contend on one cache line.
+ * Histograms have one bucket per power of two nanoseconds. Percentiles are reported as the
+ * upper bound of the bucket they fall in, i.e. they are accurate to within a factor of two.
+ */
+public class LongAdderGraphMetrics implements GraphMetrics {
+    private final Map<Operation, Histogram> operations = new EnumMap<>(Operation.class);
+    private final Histogram readLockWaits = new Histogram();
+    private final Histogram writeLockWaits = new Histogram();
+    private final LongAdder nodesSettled = new LongAdder();
+    private final LongAdder nodesVisited = new LongAdder();
+    private final LongAdder edgesCopied = new LongAdder();
+
+    public LongAdderGraphMetrics() {
+        for (final Operation operation : Operation.values()) {
+            operations.put(operation, new Histogram());
+        }
+    }
+
+    @Override
+    public void operationCompleted(Operation operation, long nanos) {
+        operations.get(operation).record(nanos);
+    }
+
+    @Override
+    public void lockContended(boolean write, long nanos) {
+        (write ? writeLockWaits : readLockWaits).record(nanos);
+    }
+
+    @Override
+    public void nodesSettled(long nodes) {
+        nodesSettled.add(nodes);
+    }
+
+    @Override
+    public void nodesVisited(long nodes) {
+        nodesVisited.add(nodes);
+    }
+
+    @Override
+    public void edgesCopied(long edges) {
+        edgesCopied.add(edges);
+    }
+
+    /**
+     * @param operation
+     * @return number of times the operation completed
+     */
+    public long getCount(Operation operation) {
+        return operations.get(operation).count.sum();
+    }
+
+    /**
+     * @param operation
+     * @return total time spent in the operation, in nanoseconds
+     */
+    public long getTotalNanos(Operation operation) {
+        return operations.get(operation).total.sum();
+    }
+
+    /**
+     * @param operation
+     * @param percentile between 0 and 100
+     * @return latency of the operation at the given percentile, in nanoseconds
+     */
+    public long getLatencyPercentile(Operation operation, double percentile) {
+        return operations.get(operation).percentile(percentile);
+    }
+
+    /**
+     * @param write true for the write lock, false for the read lock
+     * @return number of times a thread had to wait for the lock
+     */
+    public long getLockContentions(boolean write) {
+        return (write ? writeLockWaits : readLockWaits).count.sum();
+    }
+
+    /**
+     * @param write true for the write lock, false for the read lock
+     * @return total time threads spent waiting for the lock, in nanoseconds
+     */
+    public long getLockWaitNanos(boolean write) {
+        return (write ? writeLockWaits : readLockWaits).total.sum();
+    }
+
+    /**
+     * @param write true for the write lock, false for the read lock
+     * @param percentile between 0 and 100
+     * @return time spent waiting for the lock at the given percentile, among the waits that happened
+     */
+    public long getLockWaitPercentile(boolean write, double percentile) {
+        return (write ? writeLockWaits : readLockWaits).percentile(percentile);
+    }
+
+    public long getNodesSettled() {
+        return nodesSettled.sum();
+    }
+
+    public long getNodesVisited() {
+        return nodesVisited.sum();
+    }
+
+    public long getEdgesCopied() {
+        return edgesCopied.sum();
+    }
+
+    /**
+     * Histogram with one bucket per power of two
+     */
+    private static final class Histogram {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAdder[] buckets = new LongAdder[Long.SIZE];
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; ++i) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            final long value = Math.max(nanos, 0);
+            count.increment();
+            total.add(value);
+
+            // Bucket i holds values below 2^i
+            buckets[Long.SIZE - Long.numberOfLeadingZeros(value)].increment();
+        }
+
+        long percentile(double percentile) {
+            final long[] counts = new long[buckets.length];
+            long recorded = 0;
+            for (int i = 0; i < buckets.length; ++i) {
+                counts[i] = buckets[i].sum();
+                recorded += counts[i];
+            }
+            if (recorded == 0) {
+                return 0;
+            }
+
+            final long rank = (long) Math.ceil(recorded * Math.min(Math.max(percentile, 0), 100) / 100);
+            long seen = 0;
+            for (int i = 0; i < counts.length; ++i) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return i == 0 ? 0 : (i >= Long.SIZE - 1 ? Long.MAX_VALUE : (1L << i) - 1);
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+    }
+}
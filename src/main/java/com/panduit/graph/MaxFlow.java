@@ -0,0 +1,271 @@
+package com.panduit.graph;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Maximum flow from a source to a sink of a CSR snapshot, taking edge weights as capacities,
+ * and the minimum cut that goes with it. Weights that are negative or NaN count as no capacity.
+ *
+ * Computed with Dinic's algorithm: a breadth-first search from the source levels the residual
+ * graph, then augmenting paths that only go one level down at a time are pushed until none
+ * is left, with each vertex resuming at the edge it stopped at. The residual graph lives in
+ * primitive arrays: each vertex has its outgoing edges, carrying their capacity, followed by
+ * reverse edges for its incoming ones, which start empty.
+ * @link https://en.wikipedia.org/wiki/Dinic%27s_algorithm
+ *
+ * @param <Node>
+ */
+public final class MaxFlow<Node> {
+    private final CsrGraph<Node> graph;
+    private final double flow;
+
+    // Residual graph. The arcs of vertex u are start[u] up to start[u + 1]; the first
+    // outDegree(u) of them are its outgoing edges, in the order of the snapshot.
+    private final int[] start;
+    private final double[] residual;
+
+    // By dense id: whether the vertex is reached from the source in the final residual graph
+    private final boolean[] sourceSide;
+
+    private MaxFlow(CsrGraph<Node> graph, double flow, int[] start, double[] residual, boolean[] sourceSide) {
+        this.graph = graph;
+        this.flow = flow;
+        this.start = start;
+        this.residual = residual;
+        this.sourceSide = sourceSide;
+    }
+
+    /**
+     * @param graph snapshot whose weights are capacities, e.g. from Graph.snapshot
+     * @param source vertex the flow leaves from
+     * @param sink vertex the flow arrives at
+     * @return the maximum flow. It is zero if source or sink is not in the graph, or they are the same.
+     */
+    public static <Node> MaxFlow<Node> compute(CsrGraph<Node> graph, Node source, Node sink) {
+        final int n = graph.getNodeCount();
+        final int s = graph.getId(source);
+        final int t = graph.getId(sink);
+
+        // Lay out the residual arcs. Reverse arcs go in the order the snapshot's
+        // incoming edges are in, which is by source.
+        final int[] start = new int[n + 1];
+        for (int u = 0; u < n; ++u) {
+            start[u + 1] = start[u] + graph.getOutDegree(u) + graph.getInDegree(u);
+        }
+        final int arcs = start[n];
+        final int[] head = new int[arcs];
+        final int[] pair = new int[arcs];
+        final double[] residual = new double[arcs];
+        final int[] fill = new int[n];
+        for (int v = 0; v < n; ++v) {
+            fill[v] = start[v] + graph.getOutDegree(v);
+        }
+        for (int u = 0; u < n; ++u) {
+            for (int e = graph.outOffsets[u]; e < graph.outOffsets[u + 1]; ++e) {
+                final int v = graph.outTargets[e];
+                final int forward = start[u] + e - graph.outOffsets[u];
+                final int backward = fill[v]++;
+                head[forward] = v;
+                head[backward] = u;
+                pair[forward] = backward;
+                pair[backward] = forward;
+                final double capacity = graph.outWeights[e];
+                residual[forward] = capacity > 0 ? capacity : 0;
+            }
+        }
+
+        final boolean[] sourceSide = new boolean[n];
+        if (s < 0 || t < 0 || s == t) {
+            if (s >= 0) {
+                sourceSide[s] = true;
+            }
+            return new MaxFlow<>(graph, 0, start, residual, sourceSide);
+        }
+
+        final Dinic dinic = new Dinic(n, s, t, start, head, pair, residual);
+        double flow = 0;
+        while (dinic.level()) {
+            System.arraycopy(start, 0, dinic.current, 0, n);
+            double pushed;
+            while ((pushed = dinic.augment()) > 0) {
+                if (pushed == Double.POSITIVE_INFINITY) {
+                    // A path of unlimited capacity. There is no finite cut to find.
+                    return new MaxFlow<>(graph, pushed, start, residual, sourceSide);
+                }
+                flow += pushed;
+            }
+        }
+
+        // The vertices last leveled are the ones still reached from the source
+        for (int u = 0; u < n; ++u) {
+            sourceSide[u] = dinic.levels[u] >= 0;
+        }
+        return new MaxFlow<>(graph, flow, start, residual, sourceSide);
+    }
+
+    /**
+     * Residual graph search state, reused from one phase to the next
+     */
+    private static final class Dinic {
+        final int s;
+        final int t;
+        final int[] start;
+        final int[] head;
+        final int[] pair;
+        final double[] residual;
+
+        final int[] levels;
+        final int[] current;
+        final int[] queue;
+        final int[] path;
+
+        Dinic(int n, int s, int t, int[] start, int[] head, int[] pair, double[] residual) {
+            this.s = s;
+            this.t = t;
+            this.start = start;
+            this.head = head;
+            this.pair = pair;
+            this.residual = residual;
+            levels = new int[n];
+            current = new int[n];
+            queue = new int[n];
+            path = new int[n];
+        }
+
+        /**
+         * Breadth-first search over arcs with capacity left
+         *
+         * @return true if the sink is reached
+         */
+        boolean level() {
+            Arrays.fill(levels, -1);
+            int first = 0;
+            int last = 0;
+            levels[s] = 0;
+            queue[last++] = s;
+            while (first < last) {
+                final int u = queue[first++];
+                for (int a = start[u]; a < start[u + 1]; ++a) {
+                    final int v = head[a];
+                    if (residual[a] > 0 && levels[v] < 0) {
+                        levels[v] = levels[u] + 1;
+                        queue[last++] = v;
+                    }
+                }
+            }
+            return levels[t] >= 0;
+        }
+
+        /**
+         * Finds one path to the sink along the levels and pushes as much as it takes
+         *
+         * @return flow pushed, or 0 once the sink is cut off
+         */
+        double augment() {
+            int depth = 0;
+            int u = s;
+            while (true) {
+                if (u == t) {
+                    double bottleneck = Double.POSITIVE_INFINITY;
+                    for (int i = 0; i < depth; ++i) {
+                        bottleneck = Math.min(bottleneck, residual[path[i]]);
+                    }
+                    if (bottleneck == Double.POSITIVE_INFINITY) {
+                        return bottleneck;
+                    }
+                    for (int i = 0; i < depth; ++i) {
+                        residual[path[i]] -= bottleneck;
+                        residual[pair[path[i]]] += bottleneck;
+                    }
+                    return bottleneck;
+                }
+
+                boolean advanced = false;
+                for (; current[u] < start[u + 1]; ++current[u]) {
+                    final int a = current[u];
+                    final int v = head[a];
+                    if (residual[a] > 0 && levels[v] == levels[u] + 1) {
+                        path[depth++] = a;
+                        u = v;
+                        advanced = true;
+                        break;
+                    }
+                }
+                if (!advanced) {
+                    // Dead end: nothing more gets through u in this phase
+                    if (depth == 0) {
+                        return 0;
+                    }
+                    levels[u] = -1;
+                    u = head[pair[path[--depth]]];
+                    ++current[u];
+                }
+            }
+        }
+    }
+
+    /**
+     * @return value of the maximum flow, which is infinite if a path has no finite capacity
+     */
+    public double getFlow() {
+        return flow;
+    }
+
+    /**
+     * @param src
+     * @param dest
+     * @return flow along the edge from src to dest, or 0 if there is no such edge
+     */
+    public double getFlow(Node src, Node dest) {
+        final int u = graph.getId(src);
+        final int v = graph.getId(dest);
+        if (u < 0 || v < 0) {
+            return 0;
+        }
+        final int first = graph.outOffsets[u];
+        final int e = Arrays.binarySearch(graph.outTargets, first, graph.outOffsets[u + 1], v);
+        if (e < 0) {
+            return 0;
+        }
+        final double capacity = graph.outWeights[e] > 0 ? graph.outWeights[e] : 0;
+        return capacity - residual[start[u] + e - first];
+    }
+
+    /**
+     * @param node
+     * @return true if node is on the source's side of the minimum cut
+     */
+    public boolean isOnSourceSide(Node node) {
+        final int id = graph.getId(node);
+        return id >= 0 && sourceSide[id];
+    }
+
+    /**
+     * @return edges from the source's side of the minimum cut to the sink's side, as
+     * (src, dest) pairs. Their capacities add up to the flow. Empty if the flow is infinite.
+     */
+    public List<Map.Entry<Node, Node>> getCutEdges() {
+        if (flow == Double.POSITIVE_INFINITY) {
+            return Collections.emptyList();
+        }
+        final List<Map.Entry<Node, Node>> cut = new ArrayList<>();
+        for (int u = 0; u < sourceSide.length; ++u) {
+            if (!sourceSide[u]) {
+                continue;
+            }
+            for (int e = graph.outOffsets[u]; e < graph.outOffsets[u + 1]; ++e) {
+                final int v = graph.outTargets[e];
+                if (!sourceSide[v] && graph.outWeights[e] > 0) {
+                    cut.add(new AbstractMap.SimpleImmutableEntry<>(graph.getNode(u), graph.getNode(v)));
+                }
+            }
+        }
+        return cut;
+    }
+}
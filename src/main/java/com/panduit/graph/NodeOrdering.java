@@ -0,0 +1,137 @@
+package com.panduit.graph;
+
+import java.util.Arrays;
+
+
+/**
+ * Ways of renumbering the vertices of a snapshot so that vertices visited together have
+ * ids close together, and their edges sit close together in memory.
+ *
+ * Edges are followed in both directions when computing an ordering.
+ */
+public enum NodeOrdering {
+
+    /**
+     * Breadth first order, starting each connected component at its lowest degree vertex
+     */
+    BFS {
+        @Override
+        int[] order(CsrGraph<?> graph) {
+            return breadthFirst(graph, false);
+        }
+    },
+
+    /**
+     * Reverse Cuthill-McKee: breadth first, taking the neighbors of each vertex from lowest
+     * to highest degree, then reversed. Keeps every edge's endpoints close in id (low bandwidth).
+     * @link https://en.wikipedia.org/wiki/Cuthill%E2%80%93McKee_algorithm
+     */
+    REVERSE_CUTHILL_MCKEE {
+        @Override
+        int[] order(CsrGraph<?> graph) {
+            final int[] order = breadthFirst(graph, true);
+            for (int i = 0, j = order.length - 1; i < j; ++i, --j) {
+                final int id = order[i];
+                order[i] = order[j];
+                order[j] = id;
+            }
+            return order;
+        }
+    },
+
+    /**
+     * Highest degree first, so the most visited vertices share cache lines
+     */
+    DEGREE {
+        @Override
+        int[] order(CsrGraph<?> graph) {
+            final int[] byDegree = byDegree(graph);
+            final int[] order = new int[byDegree.length];
+            for (int i = 0; i < byDegree.length; ++i) {
+                order[i] = byDegree[byDegree.length - 1 - i];
+            }
+            return order;
+        }
+    };
+
+    /**
+     * @param graph snapshot to renumber
+     * @return the current id of the vertex that gets each new id
+     */
+    abstract int[] order(CsrGraph<?> graph);
+
+    private static int degree(CsrGraph<?> graph, int id) {
+        return graph.getOutDegree(id) + graph.getInDegree(id);
+    }
+
+    /**
+     * Counting sort of the vertices by degree, lowest first and by id among equals
+     */
+    private static int[] byDegree(CsrGraph<?> graph) {
+        final int n = graph.getNodeCount();
+        int maxDegree = 0;
+        for (int id = 0; id < n; ++id) {
+            maxDegree = Math.max(maxDegree, degree(graph, id));
+        }
+
+        final int[] start = new int[maxDegree + 2];
+        for (int id = 0; id < n; ++id) {
+            ++start[degree(graph, id) + 1];
+        }
+        for (int d = 0; d <= maxDegree; ++d) {
+            start[d + 1] += start[d];
+        }
+        final int[] sorted = new int[n];
+        for (int id = 0; id < n; ++id) {
+            sorted[start[degree(graph, id)]++] = id;
+        }
+        return sorted;
+    }
+
+    private static int[] breadthFirst(CsrGraph<?> graph, boolean neighborsByDegree) {
+        final int n = graph.getNodeCount();
+        final int[] order = new int[n];
+        final boolean[] visited = new boolean[n];
+
+        // Order works as the queue: vertices are appended when found and taken from the head
+        int tail = 0;
+        long[] neighbors = new long[16];
+        for (final int root : byDegree(graph)) {
+            if (visited[root]) {
+                continue;
+            }
+            visited[root] = true;
+            order[tail++] = root;
+
+            for (int head = tail - 1; head < tail; ++head) {
+                final int u = order[head];
+                int found = 0;
+                if (neighbors.length < degree(graph, u)) {
+                    neighbors = new long[degree(graph, u)];
+                }
+                for (int e = graph.outOffsets[u]; e < graph.outOffsets[u + 1]; ++e) {
+                    found = visit(graph, graph.outTargets[e], visited, neighbors, found, neighborsByDegree);
+                }
+                for (int e = graph.inOffsets[u]; e < graph.inOffsets[u + 1]; ++e) {
+                    found = visit(graph, graph.inSources[e], visited, neighbors, found, neighborsByDegree);
+                }
+
+                // Packed (degree, id) keys sort by degree and then id. Without degrees they sort by id.
+                Arrays.sort(neighbors, 0, found);
+                for (int i = 0; i < found; ++i) {
+                    order[tail++] = (int) neighbors[i];
+                }
+            }
+        }
+        return order;
+    }
+
+    private static int visit(CsrGraph<?> graph, int v, boolean[] visited, long[] neighbors, int found, boolean byDegree) {
+        if (visited[v]) {
+            return found;
+        }
+        visited[v] = true;
+        neighbors[found] = byDegree ? (long) degree(graph, v) << 32 | v : v;
+        return found + 1;
+    }
+}
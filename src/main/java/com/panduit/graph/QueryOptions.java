@@ -0,0 +1,59 @@
+package com.panduit.graph;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Limits on how long a query may run: a timeout, a number of vertices it may settle, and a
+ * token to cancel it. A query that hits a limit stops and returns a QueryResult saying why,
+ * instead of its answer.
+ *
+ * Options are immutable; each with method returns a copy. NONE has no limits.
+ */
+public final class QueryOptions {
+    public static final QueryOptions NONE = new QueryOptions(0, Long.MAX_VALUE, null);
+
+    private final long timeoutNanos;
+    private final long maxNodesSettled;
+    private final CancellationToken cancellation;
+
+    private QueryOptions(long timeoutNanos, long maxNodesSettled, CancellationToken cancellation) {
+        this.timeoutNanos = timeoutNanos;
+        this.maxNodesSettled = maxNodesSettled;
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * @param timeout how long the query may take, counted from when it starts,
+     *                including waiting for the graph's lock
+     * @param unit unit of the timeout
+     */
+    public QueryOptions withTimeout(long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive, got " + timeout);
+        }
+        return new QueryOptions(unit.toNanos(timeout), maxNodesSettled, cancellation);
+    }
+
+    /**
+     * @param maxNodesSettled number of vertices the query may take off its queue or stack
+     */
+    public QueryOptions withMaxNodesSettled(long maxNodesSettled) {
+        if (maxNodesSettled < 0) {
+            throw new IllegalArgumentException("Budget must not be negative, got " + maxNodesSettled);
+        }
+        return new QueryOptions(timeoutNanos, maxNodesSettled, cancellation);
+    }
+
+    public QueryOptions withCancellation(CancellationToken cancellation) {
+        return new QueryOptions(timeoutNanos, maxNodesSettled, cancellation);
+    }
+
+    /**
+     * @return the limits of one run of a query, starting now
+     */
+    Budget start() {
+        return new Budget(timeoutNanos == 0 ? 0 : System.nanoTime() + timeoutNanos, timeoutNanos != 0,
+                maxNodesSettled, cancellation);
+    }
+}
@@ -0,0 +1,59 @@
+package com.panduit.graph;
+
+import java.util.Optional;
+
+
+/**
+ * Answer of a query run with QueryOptions, or why there is none
+ *
+ * @param <T> type of the answer
+ */
+public final class QueryResult<T> {
+
+    public enum Status {
+        COMPLETE,
+        TIMED_OUT,
+        BUDGET_EXHAUSTED,
+        CANCELLED
+    }
+
+    private final Status status;
+    private final T value;
+    private final long nodesSettled;
+
+    QueryResult(Status status, T value, long nodesSettled) {
+        this.status = status;
+        this.value = value;
+        this.nodesSettled = nodesSettled;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return true if the query ran to the end
+     */
+    public boolean isComplete() {
+        return status == Status.COMPLETE;
+    }
+
+    /**
+     * @return the answer, or empty if the query stopped before it was known
+     */
+    public Optional<T> getValue() {
+        return isComplete() ? Optional.ofNullable(value) : Optional.empty();
+    }
+
+    /**
+     * @return number of vertices the query settled, whether or not it completed
+     */
+    public long getNodesSettled() {
+        return nodesSettled;
+    }
+
+    @Override
+    public String toString() {
+        return isComplete() ? "QueryResult[" + value + "]" : "QueryResult[" + status + " after " + nodesSettled + " nodes]";
+    }
+}
@@ -0,0 +1,211 @@
+package com.panduit.graph;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+
+/**
+ * Answers "is there a directed path from u to v" without walking the graph in the common case.
+ *
+ * Built on the condensation of the graph, where every strongly connected component
+ * is collapsed into one vertex. Two vertices in the same component reach each other.
+ * Between components, the index keeps:
+ * - the topological order of the components. A path can only go from a lower to a higher one.
+ * - GRAIL interval labels from a few randomized depth first traversals. If v's interval is
+ *   not nested within u's interval in any of them, u cannot reach v.
+ * When neither rules the query out, a depth first search over the condensation settles it,
+ * skipping every component the labels rule out.
+ * @link https://doi.org/10.14778/1920841.1920879
+ *
+ * Instances are immutable snapshots. They do not reflect later changes to the graph.
+ *
+ * @param <Node>
+ */
+final class ReachabilityIndex<Node> {
+
+    // Number of randomized labelings. More labels rule out more queries
+    // at the cost of memory and build time.
+    private static final int LABELINGS = 3;
+
+    private final StronglyConnectedComponents<Node> components;
+
+    // Condensation adjacency, keyed by component id
+    private final int[][] successors;
+
+    // low[k][c] and rank[k][c] form the interval of component c in the k-th labeling
+    private final int[][] low;
+    private final int[][] rank;
+
+    private ReachabilityIndex(StronglyConnectedComponents<Node> components, int[][] successors, int[][] low, int[][] rank) {
+        this.components = components;
+        this.successors = successors;
+        this.low = low;
+        this.rank = rank;
+    }
+
+    /**
+     * Builds the index. The caller must keep the map from being modified while this runs.
+     *
+     * @param outgoing adjacency map of the graph
+     * @param components strongly connected components of the same graph
+     * @return the index
+     */
+    static <Node> ReachabilityIndex<Node> build(Map<Node, Map<Node, Edge>> outgoing, StronglyConnectedComponents<Node> components) {
+        final int count = components.getComponentCount();
+        final int[][] successors = condense(outgoing, components, count);
+
+        final int[][] low = new int[LABELINGS][];
+        final int[][] rank = new int[LABELINGS][];
+        final Random random = new Random(count);
+        for (int k = 0; k < LABELINGS; ++k) {
+            low[k] = new int[count];
+            rank[k] = new int[count];
+            label(successors, random, low[k], rank[k]);
+        }
+        return new ReachabilityIndex<>(components, successors, low, rank);
+    }
+
+    private static <Node> int[][] condense(Map<Node, Map<Node, Edge>> outgoing, StronglyConnectedComponents<Node> components, int count) {
+        final int[][] successors = new int[count][];
+        final Set<Integer> targets = new HashSet<>();
+        for (int c = 0; c < count; ++c) {
+            targets.clear();
+            for (final Node u : components.getMembers(c)) {
+                for (final Node v : outgoing.get(u).keySet()) {
+                    final int target = components.getComponent(v);
+                    if (target != c) {
+                        targets.add(target);
+                    }
+                }
+            }
+
+            final int[] list = new int[targets.size()];
+            int i = 0;
+            for (final int target : targets) {
+                list[i++] = target;
+            }
+            Arrays.sort(list);
+            successors[c] = list;
+        }
+        return successors;
+    }
+
+    /**
+     * One randomized post-order traversal of the condensation. Every component gets
+     * rank = its post-order number and low = the smallest rank among everything it reaches.
+     */
+    private static void label(int[][] successors, Random random, int[] low, int[] rank) {
+        final int count = successors.length;
+        final BitSet visited = new BitSet(count);
+
+        // Explicit stack of components and how many of their successors have been handled.
+        // Each component starts at a random successor so the traversals differ.
+        final int[] stack = new int[count];
+        final int[] handled = new int[count];
+        final int[] offset = new int[count];
+        int nextRank = 0;
+
+        final int first = count == 0 ? 0 : random.nextInt(count);
+        for (int i = 0; i < count; ++i) {
+            final int root = (first + i) % count;
+            if (visited.get(root)) {
+                continue;
+            }
+
+            int top = 0;
+            stack[0] = root;
+            handled[0] = 0;
+            offset[0] = randomOffset(successors[root], random);
+            visited.set(root);
+            low[root] = Integer.MAX_VALUE;
+
+            while (top >= 0) {
+                final int c = stack[top];
+                final int[] next = successors[c];
+                if (handled[top] < next.length) {
+                    final int s = next[(offset[top] + handled[top]++) % next.length];
+                    if (!visited.get(s)) {
+                        visited.set(s);
+                        low[s] = Integer.MAX_VALUE;
+                        ++top;
+                        stack[top] = s;
+                        handled[top] = 0;
+                        offset[top] = randomOffset(successors[s], random);
+                    }
+                    else {
+                        low[c] = Math.min(low[c], low[s]);
+                    }
+                    continue;
+                }
+
+                // All successors are done
+                rank[c] = nextRank++;
+                low[c] = Math.min(low[c], rank[c]);
+                --top;
+                if (top >= 0) {
+                    low[stack[top]] = Math.min(low[stack[top]], low[c]);
+                }
+            }
+        }
+    }
+
+    private static int randomOffset(int[] successors, Random random) {
+        return successors.length == 0 ? 0 : random.nextInt(successors.length);
+    }
+
+    /**
+     * @param u
+     * @param v
+     * @return true if there is a directed path from u to v. A vertex always reaches itself.
+     */
+    boolean isReachable(Node u, Node v) {
+        final int from = components.getComponent(u);
+        final int to = components.getComponent(v);
+        if (from < 0 || to < 0) {
+            return false;
+        }
+        if (from == to) {
+            return true;
+        }
+        if (!mayReach(from, to)) {
+            return false;
+        }
+
+        // Inconclusive. Search the condensation, pruning with the labels.
+        final Set<Integer> visited = new HashSet<>();
+        final Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(from);
+        visited.add(from);
+        while (!stack.isEmpty()) {
+            final int c = stack.pop();
+            for (final int s : successors[c]) {
+                if (s == to) {
+                    return true;
+                }
+                if (mayReach(s, to) && visited.add(s)) {
+                    stack.push(s);
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean mayReach(int from, int to) {
+        // Components are in topological order, so paths only go up
+        if (from > to) {
+            return false;
+        }
+        for (int k = 0; k < LABELINGS; ++k) {
+            if (low[k][to] < low[k][from] || rank[k][to] > rank[k][from]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
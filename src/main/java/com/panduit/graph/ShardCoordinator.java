@@ -0,0 +1,310 @@
+package com.panduit.graph;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+
+/**
+ * Finds shortest paths in a graph split into shards by GraphPartitioner, talking to the
+ * shards through a ShardTransport.
+ *
+ * Once, each shard is asked how far each of its entries (vertices reached by edges from
+ * other shards) is from each vertex of another shard it reaches. These distances form an
+ * overlay graph over the boundary vertices. A query then takes two rounds of requests sent
+ * to every shard at once: one for the distances from the source to its shard's boundary and
+ * from the boundary of the destination's shard to the destination, then, after Dijkstra over
+ * the overlay, one for the vertices along each leg of the path.
+ *
+ * The overlay must be rebuilt with rebuildOverlay if shards change.
+ */
+public final class ShardCoordinator {
+    private final ShardTransport transport;
+    private volatile Map<Integer, Hops> overlay;
+
+    /**
+     * @param transport reaches every shard
+     */
+    public ShardCoordinator(ShardTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Overlay edges out of one entry, all within the entry's shard
+     */
+    private static final class Hops {
+        final int shard;
+        final List<Integer> targets = new ArrayList<>();
+        final List<Double> distances = new ArrayList<>();
+
+        Hops(int shard) {
+            this.shard = shard;
+        }
+    }
+
+    /**
+     * Asks every shard for the distances between its boundary vertices
+     *
+     * @throws IOException if a shard cannot be reached
+     */
+    public void rebuildOverlay() throws IOException {
+        final byte[] request = new ShardMessage(ShardMessage.OVERLAY).encode();
+        final List<ShardMessage> responses = broadcast(request);
+
+        final Map<Integer, Hops> built = new HashMap<>();
+        for (int shard = 0; shard < responses.size(); ++shard) {
+            final ShardMessage response = responses.get(shard);
+            for (int i = 0; i < response.size; ++i) {
+                final int shardOfEntry = shard;
+                final Hops hops = built.computeIfAbsent(response.first[i], entry -> new Hops(shardOfEntry));
+                hops.targets.add(response.second[i]);
+                hops.distances.add(response.values[i]);
+            }
+        }
+        overlay = built;
+    }
+
+    /**
+     * @return number of overlay edges, once built
+     */
+    public long getOverlayEdgeCount() {
+        final Map<Integer, Hops> current = overlay;
+        long edges = 0;
+        if (current != null) {
+            for (final Hops hops : current.values()) {
+                edges += hops.targets.size();
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Builds the overlay first if needed
+     *
+     * @param src
+     * @param dest
+     * @return the shortest path, or an empty path if there is none or src or dest is in no shard
+     * @throws IOException if a shard cannot be reached
+     */
+    public List<Integer> findShortestPath(int src, int dest) throws IOException {
+        if (overlay == null) {
+            rebuildOverlay();
+        }
+        final Map<Integer, Hops> hopsByEntry = overlay;
+
+        // Round one: from the source to its shard's exits, and from the entries of the
+        // destination's shard to the destination
+        final ShardMessage from = new ShardMessage(ShardMessage.FROM);
+        from.add(src, dest, 0);
+        final ShardMessage to = new ShardMessage(ShardMessage.TO);
+        to.add(dest, 0, 0);
+        final List<CompletableFuture<byte[]>> sent = new ArrayList<>();
+        for (int shard = 0; shard < transport.getShardCount(); ++shard) {
+            sent.add(transport.send(shard, from.encode()));
+            sent.add(transport.send(shard, to.encode()));
+        }
+        final List<ShardMessage> answers = await(sent);
+
+        int srcShard = -1;
+        int destShard = -1;
+        double best = Double.POSITIVE_INFINITY;
+        final Map<Integer, Double> toDest = new HashMap<>();
+        final Map<Integer, Double> distance = new HashMap<>();
+        final Map<Integer, Integer> previous = new HashMap<>();
+        final Map<Integer, Integer> hopShard = new HashMap<>();
+        final PriorityQueue<QueueEntry> pq = new PriorityQueue<>();
+        for (int shard = 0; shard < transport.getShardCount(); ++shard) {
+            final ShardMessage fromAnswer = answers.get(2 * shard);
+            for (int i = 0; i < fromAnswer.size; ++i) {
+                final int node = fromAnswer.first[i];
+                final double d = fromAnswer.values[i];
+                switch (fromAnswer.second[i]) {
+                    case ShardMessage.SOURCE:
+                        srcShard = shard;
+                        break;
+                    case ShardMessage.DESTINATION:
+                        best = d;
+                        break;
+                    default:
+                        distance.put(node, d);
+                        previous.put(node, src);
+                        hopShard.put(node, shard);
+                        pq.add(new QueueEntry(node, d));
+                }
+            }
+
+            final ShardMessage toAnswer = answers.get(2 * shard + 1);
+            for (int i = 0; i < toAnswer.size; ++i) {
+                destShard = shard;
+                toDest.put(toAnswer.first[i], toAnswer.values[i]);
+            }
+        }
+        if (srcShard < 0) {
+            return Collections.emptyList();
+        }
+
+        // Dijkstra over the overlay, ending at dest through the entry it is closest from.
+        // A null entry means the path stays in the source's shard.
+        Integer lastEntry = null;
+        while (!pq.isEmpty()) {
+            final QueueEntry entry = pq.remove();
+            if (entry.distance >= best) {
+                break;
+            }
+            if (entry.distance > distance.get(entry.node)) {
+                continue;
+            }
+
+            final Double remaining = toDest.get(entry.node);
+            if (remaining != null && entry.distance + remaining < best) {
+                best = entry.distance + remaining;
+                lastEntry = entry.node;
+            }
+
+            final Hops hops = hopsByEntry.get(entry.node);
+            if (hops == null) {
+                continue;
+            }
+            for (int i = 0; i < hops.targets.size(); ++i) {
+                final int v = hops.targets.get(i);
+                final double alt = entry.distance + hops.distances.get(i);
+                final Double current = distance.get(v);
+                if (current == null || alt < current) {
+                    distance.put(v, alt);
+                    previous.put(v, entry.node);
+                    hopShard.put(v, hops.shard);
+                    pq.add(new QueueEntry(v, alt));
+                }
+            }
+        }
+        if (best == Double.POSITIVE_INFINITY) {
+            return Collections.emptyList();
+        }
+        if (src == dest) {
+            return Collections.singletonList(src);
+        }
+
+        // The legs of the path, last first, each within one shard
+        final List<int[]> legs = new ArrayList<>();
+        if (lastEntry == null) {
+            legs.add(new int[] {src, dest, srcShard});
+        }
+        else {
+            if (lastEntry != dest) {
+                legs.add(new int[] {lastEntry, dest, destShard});
+            }
+            for (int v = lastEntry; v != src; v = previous.get(v)) {
+                legs.add(new int[] {previous.get(v), v, hopShard.get(v)});
+            }
+        }
+        Collections.reverse(legs);
+        return expand(legs);
+    }
+
+    /**
+     * Round two: asks each shard for the vertices along its legs, all shards at once
+     */
+    private List<Integer> expand(List<int[]> legs) throws IOException {
+        final int shards = transport.getShardCount();
+        final ShardMessage[] requests = new ShardMessage[shards];
+        final List<List<Integer>> legsOfShard = new ArrayList<>();
+        for (int shard = 0; shard < shards; ++shard) {
+            legsOfShard.add(new ArrayList<>());
+        }
+        for (int i = 0; i < legs.size(); ++i) {
+            final int[] leg = legs.get(i);
+            if (requests[leg[2]] == null) {
+                requests[leg[2]] = new ShardMessage(ShardMessage.PATHS);
+            }
+            requests[leg[2]].add(leg[0], leg[1], 0);
+            legsOfShard.get(leg[2]).add(i);
+        }
+
+        final List<Integer> asked = new ArrayList<>();
+        final List<CompletableFuture<byte[]>> sent = new ArrayList<>();
+        for (int shard = 0; shard < shards; ++shard) {
+            if (requests[shard] != null) {
+                asked.add(shard);
+                sent.add(transport.send(shard, requests[shard].encode()));
+            }
+        }
+        final List<ShardMessage> answers = await(sent);
+
+        final List<List<Integer>> legPaths = new ArrayList<>();
+        for (int i = 0; i < legs.size(); ++i) {
+            legPaths.add(new ArrayList<>());
+        }
+        for (int k = 0; k < asked.size(); ++k) {
+            final List<Integer> legIndexes = legsOfShard.get(asked.get(k));
+            final ShardMessage answer = answers.get(k);
+            for (int i = 0; i < answer.size; ++i) {
+                legPaths.get(legIndexes.get(answer.first[i])).add(answer.second[i]);
+            }
+        }
+
+        // Each leg starts where the one before it ended
+        final List<Integer> path = new ArrayList<>();
+        for (final List<Integer> leg : legPaths) {
+            if (leg.isEmpty()) {
+                throw new IOException("A shard no longer has a path its overlay promised; rebuild the overlay");
+            }
+            path.addAll(path.isEmpty() ? leg : leg.subList(1, leg.size()));
+        }
+        return path;
+    }
+
+    private List<ShardMessage> broadcast(byte[] request) throws IOException {
+        final List<CompletableFuture<byte[]>> sent = new ArrayList<>();
+        for (int shard = 0; shard < transport.getShardCount(); ++shard) {
+            sent.add(transport.send(shard, request));
+        }
+        return await(sent);
+    }
+
+    private static List<ShardMessage> await(List<CompletableFuture<byte[]>> sent) throws IOException {
+        final List<ShardMessage> answers = new ArrayList<>(sent.size());
+        try {
+            for (final CompletableFuture<byte[]> future : sent) {
+                answers.add(ShardMessage.decode(future.get()));
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a shard");
+        }
+        catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new IOException("Shard request failed", cause);
+        }
+        return answers;
+    }
+
+    private static final class QueueEntry implements Comparable<QueueEntry> {
+        private final int node;
+        private final double distance;
+
+        private QueueEntry(int node, double distance) {
+            this.node = node;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(QueueEntry other) {
+            return Double.compare(distance, other.distance);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.panduit.graph;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+
+/**
+ * Request or answer between a ShardCoordinator and a GraphShard: a type and a batch of
+ * records of two ints and a double. What the fields mean depends on the type.
+ */
+final class ShardMessage {
+    // Requests
+    static final byte OVERLAY = 1;
+    static final byte FROM = 2;
+    static final byte TO = 3;
+    static final byte PATHS = 4;
+
+    // Answers
+    static final byte RESULT = 5;
+
+    // What a record in the answer to FROM is about
+    static final int SOURCE = 0;
+    static final int EXIT = 1;
+    static final int DESTINATION = 2;
+
+    private static final int RECORD_BYTES = 4 + 4 + 8;
+
+    final byte type;
+    int size = 0;
+    int[] first;
+    int[] second;
+    double[] values;
+
+    ShardMessage(byte type) {
+        this(type, 8);
+    }
+
+    private ShardMessage(byte type, int capacity) {
+        this.type = type;
+        first = new int[capacity];
+        second = new int[capacity];
+        values = new double[capacity];
+    }
+
+    void add(int a, int b, double value) {
+        if (size == first.length) {
+            final int grown = Math.max(8, size * 2);
+            first = Arrays.copyOf(first, grown);
+            second = Arrays.copyOf(second, grown);
+            values = Arrays.copyOf(values, grown);
+        }
+        first[size] = a;
+        second[size] = b;
+        values[size] = value;
+        ++size;
+    }
+
+    void addAll(ShardMessage other) {
+        for (int i = 0; i < other.size; ++i) {
+            add(other.first[i], other.second[i], other.values[i]);
+        }
+    }
+
+    byte[] encode() {
+        final ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + size * RECORD_BYTES);
+        buffer.put(type);
+        buffer.putInt(size);
+        for (int i = 0; i < size; ++i) {
+            buffer.putInt(first[i]);
+            buffer.putInt(second[i]);
+            buffer.putDouble(values[i]);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes are not a message
+     */
+    static ShardMessage decode(byte[] bytes) {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (bytes.length < 5) {
+            throw new IllegalArgumentException("Shard message of " + bytes.length + " bytes is too short");
+        }
+        final byte type = buffer.get();
+        final int size = buffer.getInt();
+        if (size < 0 || (long) size * RECORD_BYTES != buffer.remaining()) {
+            throw new IllegalArgumentException("Shard message of " + bytes.length + " bytes cannot hold " + size + " records");
+        }
+        final ShardMessage message = new ShardMessage(type, size);
+        for (int i = 0; i < size; ++i) {
+            message.add(buffer.getInt(), buffer.getInt(), buffer.getDouble());
+        }
+        return message;
+    }
+}
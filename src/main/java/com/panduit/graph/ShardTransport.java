@@ -0,0 +1,34 @@
+package com.panduit.graph;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * Carries requests from a ShardCoordinator to the shards of a partitioned graph, and their
+ * answers back. Requests and answers are opaque bytes, made and read by GraphShard, so a
+ * transport only has to move them.
+ *
+ * A transport may send to several shards at once; the coordinator sends to every shard it
+ * needs before waiting for any answer.
+ */
+public interface ShardTransport extends Closeable {
+
+    /**
+     * @return number of shards, numbered from 0
+     */
+    int getShardCount();
+
+    /**
+     * @param shard number of the shard to send to
+     * @param request made by the coordinator
+     * @return the bytes GraphShard.handle returned for the request, or an exception
+     * if it could not be delivered or failed
+     */
+    CompletableFuture<byte[]> send(int shard, byte[] request);
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,260 @@
+package com.panduit.graph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+
+/**
+ * Shortest paths from one source to every vertex, kept up to date by the graph as edges
+ * are added, removed or given new weights. Made by DirectedGraph.trackShortestPaths.
+ *
+ * Changes repair only the part of the tree they affect, after Ramalingam and Reps.
+ * A shorter edge relaxes outwards from its end, as far as distances go down. A longer or
+ * removed tree edge takes the subtree below it off the tree, gives each of those vertices
+ * the best distance it can get from the rest of the tree, and settles them with Dijkstra's
+ * algorithm. Edges outside the tree that get longer change nothing.
+ *
+ * Weights must not be negative; the graph refuses edges that are while a tree is tracked.
+ * Asking for a distance takes the graph's read lock and one lookup.
+ *
+ * @param <Node>
+ */
+public final class ShortestPathTree<Node> implements AutoCloseable {
+    private final DirectedGraph<Node> graph;
+    private final Node source;
+
+    // Adjacency maps and read lock of the graph
+    private final Map<Node, Map<Node, Edge>> outgoing;
+    private final Map<Node, Map<Node, Edge>> incoming;
+    private final Lock readLock;
+
+    // Every vertex the source reaches, with its distance and the vertex before it on the tree.
+    // The source maps to no parent.
+    private final Map<Node, Double> distance = new HashMap<>();
+    private final Map<Node, Node> parent = new HashMap<>();
+
+    /**
+     * Computes the tree. Called with the graph's write lock held.
+     */
+    ShortestPathTree(DirectedGraph<Node> graph, Node source, Map<Node, Map<Node, Edge>> outgoing,
+                     Map<Node, Map<Node, Edge>> incoming, Lock readLock) {
+        this.graph = graph;
+        this.source = source;
+        this.outgoing = outgoing;
+        this.incoming = incoming;
+        this.readLock = readLock;
+        nodeAdded(source);
+    }
+
+    public Node getSource() {
+        return source;
+    }
+
+    /**
+     * @param node
+     * @return length of the shortest path from the source to node, or infinity if there is none
+     */
+    public double getDistance(Node node) {
+        readLock.lock();
+        try {
+            final Double d = distance.get(node);
+            return d == null ? Double.POSITIVE_INFINITY : d;
+        }
+        finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * @param node
+     * @return true if there is a path from the source to node
+     */
+    public boolean isReachable(Node node) {
+        readLock.lock();
+        try {
+            return distance.containsKey(node);
+        }
+        finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * @param dest
+     * @return shortest path from the source to dest, or an empty path if there is none
+     */
+    public List<Node> getPath(Node dest) {
+        readLock.lock();
+        try {
+            if (!distance.containsKey(dest)) {
+                return Collections.emptyList();
+            }
+            final List<Node> path = new ArrayList<>();
+            for (Node node = dest; node != null; node = parent.get(node)) {
+                path.add(node);
+            }
+            Collections.reverse(path);
+            return path;
+        }
+        finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Stops keeping the tree up to date. Queries after this see the graph as it was.
+     */
+    @Override
+    public void close() {
+        graph.untrackShortestPaths(this);
+    }
+
+    /**
+     * Called with the write lock held, after the vertex was added
+     */
+    void nodeAdded(Node node) {
+        if (node.equals(source) && outgoing.containsKey(node)) {
+            distance.put(node, 0.0);
+            final PriorityQueue<QueueEntry<Node>> pq = new PriorityQueue<>();
+            pq.add(new QueueEntry<>(node, 0.0));
+            settle(pq);
+        }
+    }
+
+    /**
+     * Called with the write lock held, after the vertex and its edges were removed
+     */
+    void nodeRemoved(Node node) {
+        // Its edges went one at a time, so only the source can still be on the tree
+        distance.remove(node);
+        parent.remove(node);
+    }
+
+    /**
+     * Called with the write lock held, after the edge was added, removed or replaced
+     *
+     * @param src
+     * @param dest
+     * @param before the edge that was there, or null
+     * @param after the edge there now, or null
+     */
+    void edgeChanged(Node src, Node dest, Edge before, Edge after) {
+        final double oldWeight = before == null ? Double.POSITIVE_INFINITY : before.getWeight();
+        final double newWeight = after == null ? Double.POSITIVE_INFINITY : after.getWeight();
+        if (newWeight < oldWeight) {
+            shortened(src, dest, newWeight);
+        }
+        else if (newWeight > oldWeight && src.equals(parent.get(dest))) {
+            lengthened(dest);
+        }
+    }
+
+    private void shortened(Node src, Node dest, double weight) {
+        final Double d = distance.get(src);
+        if (d == null) {
+            return;
+        }
+        final double alt = d + weight;
+        final Double current = distance.get(dest);
+        if (current != null && alt >= current) {
+            return;
+        }
+        distance.put(dest, alt);
+        parent.put(dest, src);
+
+        final PriorityQueue<QueueEntry<Node>> pq = new PriorityQueue<>();
+        pq.add(new QueueEntry<>(dest, alt));
+        settle(pq);
+    }
+
+    /**
+     * The tree edge into top got longer or went away
+     */
+    private void lengthened(Node top) {
+        // Everything below top reached the source through that edge
+        final Set<Node> affected = new HashSet<>();
+        final Deque<Node> stack = new ArrayDeque<>();
+        affected.add(top);
+        stack.push(top);
+        while (!stack.isEmpty()) {
+            final Node node = stack.pop();
+            for (final Node child : outgoing.get(node).keySet()) {
+                if (node.equals(parent.get(child)) && affected.add(child)) {
+                    stack.push(child);
+                }
+            }
+        }
+        for (final Node node : affected) {
+            distance.remove(node);
+            parent.remove(node);
+        }
+
+        // Each affected vertex starts from its best edge out of the rest of the tree
+        final PriorityQueue<QueueEntry<Node>> pq = new PriorityQueue<>();
+        for (final Node node : affected) {
+            double best = Double.POSITIVE_INFINITY;
+            Node bestParent = null;
+            for (final Map.Entry<Node, Edge> in : incoming.get(node).entrySet()) {
+                final Double d = distance.get(in.getKey());
+                if (d != null && d + in.getValue().getWeight() < best) {
+                    best = d + in.getValue().getWeight();
+                    bestParent = in.getKey();
+                }
+            }
+            if (bestParent != null) {
+                distance.put(node, best);
+                parent.put(node, bestParent);
+                pq.add(new QueueEntry<>(node, best));
+            }
+        }
+
+        // Vertices outside the subtree kept their distances, so only affected ones improve
+        settle(pq);
+    }
+
+    /**
+     * Dijkstra's algorithm from the vertices in the queue, which already have their distances
+     */
+    private void settle(PriorityQueue<QueueEntry<Node>> pq) {
+        while (!pq.isEmpty()) {
+            final QueueEntry<Node> entry = pq.remove();
+            if (entry.distance > distance.get(entry.node)) {
+                continue;
+            }
+            for (final Map.Entry<Node, Edge> out : outgoing.get(entry.node).entrySet()) {
+                final Node next = out.getKey();
+                final double alt = entry.distance + out.getValue().getWeight();
+                final Double current = distance.get(next);
+                if (current == null ? alt < Double.POSITIVE_INFINITY : alt < current) {
+                    distance.put(next, alt);
+                    parent.put(next, entry.node);
+                    pq.add(new QueueEntry<>(next, alt));
+                }
+            }
+        }
+    }
+
+    private static final class QueueEntry<Node> implements Comparable<QueueEntry<Node>> {
+        private final Node node;
+        private final double distance;
+
+        private QueueEntry(Node node, double distance) {
+            this.node = node;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(QueueEntry<Node> other) {
+            return Double.compare(distance, other.distance);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.panduit.graph;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+
+/**
+ * Dijkstra's algorithm over the adjacency maps, restricted to the edges an EdgeFilter accepts.
+ * @link https://en.wikipedia.org/wiki/Dijkstra's_algorithm
+ *
+ * The caller is responsible for holding a lock that keeps the adjacency
+ * maps from being modified while this runs.
+ */
+final class ShortestPaths {
+
+    private ShortestPaths() {
+    }
+
+    /**
+     * Result of a search: the shortest path tree grown from the source
+     * until the destination was settled
+     *
+     * @param <Node>
+     */
+    static final class Tree<Node> {
+        // Each vertex reached maps to the vertex before it. The source maps to null.
+        final Map<Node, Node> prevMap = new HashMap<>();
+        final Map<Node, Double> distance = new HashMap<>();
+
+        // Number of vertices taken off the queue
+        long settled = 0;
+
+        /**
+         * @param dest
+         * @return path from the source to dest, or an empty path if dest was not reached
+         */
+        List<Node> pathTo(Node dest) {
+            return buildPath(prevMap, dest);
+        }
+    }
+
+    /**
+     * @param outgoing adjacency map of the graph
+     * @param src starting vertex. Must be in the graph.
+     * @param dest stop once this vertex is settled
+     * @param filter edges the search may follow
+     * @return the shortest path tree
+     */
+    static <Node> Tree<Node> find(Map<Node, Map<Node, Edge>> outgoing, Node src, Node dest, EdgeFilter<Node> filter) {
+        return find(outgoing, src, dest, filter, null);
+    }
+
+    /**
+     * @param budget stops the search when it runs out, or null for no limit
+     */
+    static <Node> Tree<Node> find(Map<Node, Map<Node, Edge>> outgoing, Node src, Node dest, EdgeFilter<Node> filter,
+                                  Budget budget) {
+        final Tree<Node> tree = new Tree<>();
+        tree.prevMap.put(src, null);
+        tree.distance.put(src, 0.0);
+
+        // Vertices can be queued more than once. Stale entries are skipped when they come up.
+        final PriorityQueue<QueueEntry<Node>> pq = new PriorityQueue<>();
+        pq.add(new QueueEntry<>(src, 0.0));
+        while (!pq.isEmpty()) {
+            final QueueEntry<Node> entry = pq.remove();
+            final Node u = entry.node;
+            if (entry.distance > tree.distance.get(u)) {
+                continue;
+            }
+            ++tree.settled;
+            if (budget != null && !budget.spend()) {
+                break;
+            }
+
+            // Done. Found the destination node.
+            if (u.equals(dest)) {
+                break;
+            }
+
+            // For every neighbor v of u
+            for (final Map.Entry<Node, Edge> neighbor : outgoing.get(u).entrySet()) {
+                final Node v = neighbor.getKey();
+                if (!filter.accept(u, v, neighbor.getValue())) {
+                    continue;
+                }
+
+                // Shorter distance found. Add to the path.
+                final double altDistance = entry.distance + neighbor.getValue().getWeight();
+                final Double current = tree.distance.get(v);
+                if (current == null || altDistance < current) {
+                    tree.distance.put(v, altDistance);
+                    tree.prevMap.put(v, u);
+                    pq.add(new QueueEntry<>(v, altDistance));
+                }
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * Construct the shortest path in reverse, starting with the destination node and
+     * working its way back to the starting node using the previous map (prevMap).
+     *
+     * @param prevMap each vertex on the path mapped to the vertex before it. The source maps to null.
+     * @param dest last vertex of the path
+     * @return the path, or an empty path if dest is not in prevMap
+     */
+    static <Node> List<Node> buildPath(Map<Node, Node> prevMap, Node dest) {
+        // Use a deque to reverse the order of the nodes.
+        final Deque<Node> deque = new LinkedList<>();
+        while (dest != null && prevMap.containsKey(dest)) {
+            deque.addFirst(dest);
+            dest = prevMap.get(dest);
+        }
+        return new ArrayList<>(deque);
+    }
+
+    private static final class QueueEntry<Node> implements Comparable<QueueEntry<Node>> {
+        private final Node node;
+        private final double distance;
+
+        private QueueEntry(Node node, double distance) {
+            this.node = node;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(QueueEntry<Node> other) {
+            return Double.compare(distance, other.distance);
+        }
+    }
+}
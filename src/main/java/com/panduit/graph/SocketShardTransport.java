@@ -0,0 +1,231 @@
+package com.panduit.graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+/**
+ * Transport to shards served over TCP, one connection per shard. Each message is sent as its
+ * length followed by its bytes. A connection carries one request at a time; requests to
+ * different shards run at the same time.
+ */
+public final class SocketShardTransport implements ShardTransport {
+    private final List<Connection> connections;
+    private final ExecutorService executor;
+
+    private SocketShardTransport(List<Connection> connections) {
+        this.connections = connections;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "shard-transport");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param shards address of each shard's Server, indexed by shard number
+     * @return transport connected to every shard
+     * @throws IOException if a shard cannot be reached
+     */
+    public static SocketShardTransport connect(List<InetSocketAddress> shards) throws IOException {
+        final List<Connection> connections = new ArrayList<>();
+        try {
+            for (final InetSocketAddress address : shards) {
+                connections.add(new Connection(new Socket(address.getAddress(), address.getPort())));
+            }
+        }
+        catch (IOException e) {
+            for (final Connection connection : connections) {
+                connection.close();
+            }
+            throw e;
+        }
+        return new SocketShardTransport(connections);
+    }
+
+    /**
+     * Serves a shard on a port of the loopback interface
+     *
+     * @param shard shard to serve
+     * @param port port to listen on, or 0 for any free port
+     * @return the running server
+     * @throws IOException if the port cannot be bound
+     */
+    public static Server serve(GraphShard shard, int port) throws IOException {
+        return new Server(shard, new ServerSocket(port, 50, InetAddress.getLoopbackAddress()));
+    }
+
+    @Override
+    public int getShardCount() {
+        return connections.size();
+    }
+
+    @Override
+    public CompletableFuture<byte[]> send(int shard, byte[] request) {
+        final Connection connection = connections.get(shard);
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return connection.call(request);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    @Override
+    public void close() throws IOException {
+        executor.shutdown();
+        for (final Connection connection : connections) {
+            connection.close();
+        }
+    }
+
+    private static void writeFrame(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.flush();
+    }
+
+    /**
+     * Reads a message, or the error the other side sent instead
+     */
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Shard failed: " + in.readUTF());
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static final class Connection implements Closeable {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        synchronized byte[] call(byte[] request) throws IOException {
+            writeFrame(out, request);
+            return readFrame(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    /**
+     * Serves one shard, answering each connection on a thread of its own
+     */
+    public static final class Server implements Closeable {
+        private final GraphShard shard;
+        private final ServerSocket serverSocket;
+        private final List<Socket> sockets = new ArrayList<>();
+
+        private Server(GraphShard shard, ServerSocket serverSocket) {
+            this.shard = shard;
+            this.serverSocket = serverSocket;
+            final Thread acceptor = new Thread(this::accept, "shard-" + shard.getShard() + "-server");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        /**
+         * @return where the shard is served
+         */
+        public InetSocketAddress getAddress() {
+            return new InetSocketAddress(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+        }
+
+        private void accept() {
+            while (!serverSocket.isClosed()) {
+                final Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                }
+                catch (IOException e) {
+                    // Closed
+                    return;
+                }
+                synchronized (sockets) {
+                    sockets.add(socket);
+                }
+                final Thread thread = new Thread(() -> serve(socket), "shard-" + shard.getShard() + "-connection");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+
+        private void serve(Socket socket) {
+            try (Socket connection = socket) {
+                connection.setTcpNoDelay(true);
+                final DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+                final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+                while (true) {
+                    final byte[] request;
+                    try {
+                        request = readFrame(in);
+                    }
+                    catch (EOFException e) {
+                        return;
+                    }
+
+                    final byte[] response;
+                    try {
+                        response = shard.handle(request);
+                    }
+                    catch (RuntimeException e) {
+                        out.writeInt(-1);
+                        out.writeUTF(String.valueOf(e.getMessage()));
+                        out.flush();
+                        continue;
+                    }
+                    writeFrame(out, response);
+                }
+            }
+            catch (IOException e) {
+                // The client went away
+            }
+            finally {
+                synchronized (sockets) {
+                    sockets.remove(socket);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+            synchronized (sockets) {
+                for (final Socket socket : sockets) {
+                    socket.close();
+                }
+                sockets.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.panduit.graph;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+
+/**
+ * Minimum spanning forest of a CSR snapshot, taking every edge as undirected, the way
+ * isConnected does. There is one tree per weakly connected component.
+ *
+ * Computed with Boruvka's algorithm, with every round spread over the common fork-join pool:
+ * each component picks its lightest edge to another component, components are merged along
+ * the picked edges by pointer jumping, and edges inside a component are dropped. Ties between
+ * weights go to the edge with the lower index, so the forest is the same on every run.
+ * @link https://en.wikipedia.org/wiki/Bor%C5%AFvka%27s_algorithm
+ *
+ * Self loops and edges weighted NaN are left out. Edges keep their direction in the result.
+ *
+ * @param <Node>
+ */
+public final class SpanningForest<Node> {
+    private static final int NONE = Integer.MAX_VALUE;
+
+    private final CsrGraph<Node> graph;
+
+    // Position of each forest edge in the snapshot's edge arrays, and the vertex it starts from
+    private final int[] edges;
+    private final int[] sources;
+
+    private SpanningForest(CsrGraph<Node> graph, int[] edges, int[] sources) {
+        this.graph = graph;
+        this.edges = edges;
+        this.sources = sources;
+    }
+
+    /**
+     * @param graph snapshot to span, e.g. from Graph.snapshot
+     * @return the minimum spanning forest
+     */
+    public static <Node> SpanningForest<Node> minimum(CsrGraph<Node> graph) {
+        final int n = graph.getNodeCount();
+        final int[] offsets = graph.outOffsets;
+        final int[] targets = graph.outTargets;
+        final double[] weights = graph.outWeights;
+
+        final int[] source = new int[targets.length];
+        IntStream.range(0, n).parallel().forEach(u -> Arrays.fill(source, offsets[u], offsets[u + 1], u));
+
+        // Component of each vertex, and the vertex the component is named after
+        final int[] component = new int[n];
+        Arrays.setAll(component, u -> u);
+        final int[] parent = component.clone();
+
+        // Edges between different components, and the components that still have some
+        int[] active = IntStream.range(0, targets.length).parallel()
+                .filter(e -> source[e] != targets[e] && !Double.isNaN(weights[e]))
+                .toArray();
+        int[] roots = IntStream.range(0, n).toArray();
+
+        final AtomicLongArray lightest = new AtomicLongArray(n);
+        final AtomicIntegerArray picked = new AtomicIntegerArray(n);
+        final int[] chosen = new int[n];
+        Arrays.fill(chosen, -1);
+
+        while (active.length > 0) {
+            final int[] edgesLeft = active;
+            final int[] rootsLeft = roots;
+            IntStream.of(rootsLeft).parallel().forEach(c -> {
+                lightest.set(c, Long.MAX_VALUE);
+                picked.set(c, NONE);
+            });
+
+            // The lightest weight out of each component, then the first edge with that weight
+            IntStream.of(edgesLeft).parallel().forEach(e -> {
+                final long key = sortable(weights[e]);
+                lower(lightest, component[source[e]], key);
+                lower(lightest, component[targets[e]], key);
+            });
+            IntStream.of(edgesLeft).parallel().forEach(e -> {
+                final long key = sortable(weights[e]);
+                final int cu = component[source[e]];
+                final int cv = component[targets[e]];
+                if (lightest.get(cu) == key) {
+                    lower(picked, cu, e);
+                }
+                if (lightest.get(cv) == key) {
+                    lower(picked, cv, e);
+                }
+            });
+
+            // Hook each component onto the one its edge leads to. With ties broken by index,
+            // the only cycles are pairs that picked the same edge; the lower one stays a root.
+            IntStream.of(rootsLeft).parallel().forEach(c -> {
+                final int e = picked.get(c);
+                if (e == NONE) {
+                    return;
+                }
+                final int cu = component[source[e]];
+                final int other = cu == c ? component[targets[e]] : cu;
+                if (picked.get(other) == e && c < other) {
+                    return;
+                }
+                parent[c] = other;
+                chosen[c] = e;
+            });
+
+            // Pointer jumping until every component points straight at its new root
+            boolean jumped = true;
+            while (jumped) {
+                jumped = IntStream.of(rootsLeft).parallel()
+                        .map(c -> {
+                            final int grandparent = parent[parent[c]];
+                            if (grandparent == parent[c]) {
+                                return 0;
+                            }
+                            parent[c] = grandparent;
+                            return 1;
+                        })
+                        .sum() > 0;
+            }
+
+            IntStream.range(0, n).parallel().forEach(u -> component[u] = parent[component[u]]);
+            roots = IntStream.of(rootsLeft).parallel().filter(c -> parent[c] == c).toArray();
+            active = IntStream.of(edgesLeft).parallel()
+                    .filter(e -> component[source[e]] != component[targets[e]])
+                    .toArray();
+        }
+
+        final int[] edges = IntStream.of(chosen).parallel().filter(e -> e >= 0).sorted().toArray();
+        final int[] sources = IntStream.of(edges).map(e -> source[e]).toArray();
+        return new SpanningForest<>(graph, edges, sources);
+    }
+
+    /**
+     * Maps a weight to a long that sorts the same way
+     */
+    private static long sortable(double weight) {
+        final long bits = Double.doubleToLongBits(weight);
+        return bits >= 0 ? bits : bits ^ Long.MAX_VALUE;
+    }
+
+    private static void lower(AtomicLongArray values, int i, long value) {
+        long current = values.get(i);
+        while (value < current && !values.compareAndSet(i, current, value)) {
+            current = values.get(i);
+        }
+    }
+
+    private static void lower(AtomicIntegerArray values, int i, int value) {
+        int current = values.get(i);
+        while (value < current && !values.compareAndSet(i, current, value)) {
+            current = values.get(i);
+        }
+    }
+
+    /**
+     * @return number of edges in the forest
+     */
+    public int getEdgeCount() {
+        return edges.length;
+    }
+
+    /**
+     * @return number of trees, counting each vertex without edges as one
+     */
+    public int getTreeCount() {
+        return graph.getNodeCount() - edges.length;
+    }
+
+    public Node getSrc(int i) {
+        return graph.getNode(sources[i]);
+    }
+
+    public Node getDest(int i) {
+        return graph.getNode(graph.outTargets[edges[i]]);
+    }
+
+    /**
+     * @param i index of a forest edge, from 0 to getEdgeCount() - 1
+     * @return the label and weight of the edge
+     */
+    public Edge getEdge(int i) {
+        return graph.outEdges[edges[i]];
+    }
+
+    public double getTotalWeight() {
+        double total = 0;
+        for (final int e : edges) {
+            total += graph.outWeights[e];
+        }
+        return total;
+    }
+
+    /**
+     * @return a graph with every vertex of the snapshot and the edges of the forest
+     */
+    public DirectedGraph<Node> toGraph() {
+        final DirectedGraph<Node> forest = new DirectedGraph<>();
+        for (int u = 0; u < graph.getNodeCount(); ++u) {
+            forest.addNode(graph.getNode(u));
+        }
+        for (int i = 0; i < edges.length; ++i) {
+            final Edge edge = getEdge(i);
+            forest.addEdge(getSrc(i), getDest(i), edge.getLabel(), edge.getWeight());
+        }
+        return forest;
+    }
+}
@@ -0,0 +1,205 @@
+package com.panduit.graph;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+
+/**
+ * Strongly connected components of a directed graph, along with the condensation
+ * DAG where every component is collapsed into a single vertex.
+ *
+ * Components are numbered 0..n-1 in topological order of the condensation:
+ * every edge between two components goes from a lower id to a higher id.
+ *
+ * Instances are immutable snapshots. They do not reflect later changes to the graph.
+ *
+ * @param <Node>
+ */
+public final class StronglyConnectedComponents<Node> {
+    private final Map<Node, Integer> component;
+    private final List<Set<Node>> members;
+    private final Graph<Integer> condensation;
+
+    private StronglyConnectedComponents(Map<Node, Integer> component, List<Set<Node>> members, Graph<Integer> condensation) {
+        this.component = component;
+        this.members = members;
+        this.condensation = condensation;
+    }
+
+    /**
+     * @return number of strongly connected components
+     */
+    public int getComponentCount() {
+        return members.size();
+    }
+
+    /**
+     * @param node
+     * @return id of the component 'node' belongs to, or -1 if node is not in the graph
+     */
+    public int getComponent(Node node) {
+        final Integer id = component.get(node);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param id component id
+     * @return the vertices that form the component
+     */
+    public Set<Node> getMembers(int id) {
+        return members.get(id);
+    }
+
+    /**
+     * @param u
+     * @param v
+     * @return true if u and v can reach each other along directed edges
+     */
+    public boolean isStronglyConnected(Node u, Node v) {
+        final Integer cu = component.get(u);
+        return cu != null && cu.equals(component.get(v));
+    }
+
+    /**
+     * The condensation DAG. Its vertices are the component ids and there is an edge
+     * between two components if any of their members are connected. The edge weight
+     * is the smallest weight among those member edges.
+     *
+     * The condensation is shared by everyone holding this result and must not be modified.
+     *
+     * @return the condensation DAG
+     */
+    public Graph<Integer> getCondensation() {
+        return condensation;
+    }
+
+    /**
+     * Finds the strongly connected components.
+     * @implNote Tarjan's algorithm with an explicit stack instead of recursion,
+     * so deep graphs do not overflow the call stack. The caller must keep the
+     * maps from being modified while this runs.
+     * @link https://en.wikipedia.org/wiki/Tarjan%27s_strongly_connected_components_algorithm
+     *
+     * @param outgoing adjacency map of the graph
+     * @return components of the graph
+     */
+    static <Node> StronglyConnectedComponents<Node> compute(Map<Node, Map<Node, Edge>> outgoing) {
+        final Map<Node, Integer> index = new HashMap<>();
+        final Map<Node, Integer> lowLink = new HashMap<>();
+        final Set<Node> onStack = new HashSet<>();
+        final Deque<Node> stack = new ArrayDeque<>();
+
+        // Tarjan completes components in reverse topological order
+        final List<Set<Node>> completed = new ArrayList<>();
+
+        // Stands in for the recursive calls: the vertex being visited and the neighbors left to look at
+        final Deque<Map.Entry<Node, Iterator<Node>>> callStack = new ArrayDeque<>();
+
+        for (final Node root : outgoing.keySet()) {
+            if (index.containsKey(root)) {
+                continue;
+            }
+
+            visit(root, index, lowLink, onStack, stack, outgoing, callStack);
+            while (!callStack.isEmpty()) {
+                final Map.Entry<Node, Iterator<Node>> frame = callStack.peek();
+                final Node v = frame.getKey();
+                final Iterator<Node> neighbors = frame.getValue();
+
+                if (neighbors.hasNext()) {
+                    final Node w = neighbors.next();
+                    if (!index.containsKey(w)) {
+                        visit(w, index, lowLink, onStack, stack, outgoing, callStack);
+                    }
+                    else if (onStack.contains(w)) {
+                        lowLink.put(v, Math.min(lowLink.get(v), index.get(w)));
+                    }
+                    continue;
+                }
+
+                // All neighbors of v are done
+                callStack.pop();
+                if (lowLink.get(v).equals(index.get(v))) {
+                    final Set<Node> members = new HashSet<>();
+                    Node w;
+                    do {
+                        w = stack.pop();
+                        onStack.remove(w);
+                        members.add(w);
+                    } while (!w.equals(v));
+                    completed.add(Collections.unmodifiableSet(members));
+                }
+
+                if (!callStack.isEmpty()) {
+                    final Node parent = callStack.peek().getKey();
+                    lowLink.put(parent, Math.min(lowLink.get(parent), lowLink.get(v)));
+                }
+            }
+        }
+
+        // Number the components in topological order
+        final int count = completed.size();
+        final List<Set<Node>> members = new ArrayList<>(count);
+        final Map<Node, Integer> component = new HashMap<>(index.size() * 2);
+        for (int id = 0; id < count; ++id) {
+            final Set<Node> group = completed.get(count - 1 - id);
+            members.add(group);
+            for (final Node node : group) {
+                component.put(node, id);
+            }
+        }
+
+        return new StronglyConnectedComponents<>(component, Collections.unmodifiableList(members),
+                condense(outgoing, component, count));
+    }
+
+    private static <Node> void visit(Node node,
+                                     Map<Node, Integer> index,
+                                     Map<Node, Integer> lowLink,
+                                     Set<Node> onStack,
+                                     Deque<Node> stack,
+                                     Map<Node, Map<Node, Edge>> outgoing,
+                                     Deque<Map.Entry<Node, Iterator<Node>>> callStack) {
+        final int order = index.size();
+        index.put(node, order);
+        lowLink.put(node, order);
+        stack.push(node);
+        onStack.add(node);
+        callStack.push(new AbstractMap.SimpleImmutableEntry<>(node, outgoing.get(node).keySet().iterator()));
+    }
+
+    private static <Node> Graph<Integer> condense(Map<Node, Map<Node, Edge>> outgoing, Map<Node, Integer> component, int count) {
+        final DirectedGraph<Integer> dag = new DirectedGraph<>();
+        for (int id = 0; id < count; ++id) {
+            dag.addNode(id);
+        }
+
+        for (final Map.Entry<Node, Map<Node, Edge>> vertex : outgoing.entrySet()) {
+            final int from = component.get(vertex.getKey());
+            for (final Map.Entry<Node, Edge> neighbor : vertex.getValue().entrySet()) {
+                final int to = component.get(neighbor.getKey());
+                if (from == to) {
+                    continue;
+                }
+
+                // Keep the cheapest edge between two components
+                final double weight = neighbor.getValue().getWeight();
+                final Optional<Edge> existing = dag.getEdge(from, to);
+                if (!existing.isPresent() || weight < existing.get().getWeight()) {
+                    dag.addEdge(from, to, neighbor.getValue().getLabel(), weight);
+                }
+            }
+        }
+        return dag;
+    }
+}
@@ -0,0 +1,374 @@
+package com.panduit.graph;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+
+/**
+ * Parses edges out of a buffer of text lines, straight from the bytes.
+ *
+ * Each line is "src dst [label [weight]]". Lines with a tab are split at tabs, and their labels
+ * may hold spaces and backslash escapes; other lines are split at runs of spaces. In CSV the
+ * fields are split at commas, and labels may be double quoted. A line with a single vertex adds
+ * it without edges. Blank lines and lines starting with '#' or '%' are skipped, and so is a CSV
+ * header: a first line that does not start with a number. Weights default to 1.
+ *
+ * Vertices and weights are parsed without creating Strings. Labels that repeat are looked up
+ * in a small cache instead of being decoded again.
+ */
+final class TextEdgeParser {
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private static final int LABEL_CACHE_SIZE = 256;
+
+    private final ByteBuffer buffer;
+    private final long fileOffset;
+    private final boolean csv;
+    private final EdgeBlock block;
+
+    // Label bytes after unescaping
+    private byte[] scratch = new byte[64];
+    private final byte[][] cachedBytes = new byte[LABEL_CACHE_SIZE][];
+    private final String[] cachedLabels = new String[LABEL_CACHE_SIZE];
+
+    // Only the first line with content in a CSV file may be a header
+    private boolean header;
+
+    // Where the field being parsed ends, and where the next one starts or -1 if there is none
+    private int fieldEnd;
+    private int nextField;
+
+    private TextEdgeParser(ByteBuffer buffer, long fileOffset, boolean csv) {
+        this.buffer = buffer;
+        this.fileOffset = fileOffset;
+        this.csv = csv;
+        this.header = csv && fileOffset == 0;
+        this.block = new EdgeBlock(buffer.limit() / 16);
+    }
+
+    /**
+     * @param buffer whole lines of text
+     * @param fileOffset where the buffer starts in the file, for error messages
+     * @param csv true for comma separated fields
+     * @return the edges and vertices in the buffer
+     * @throws UncheckedIOException if a line is not an edge
+     */
+    static EdgeBlock parse(ByteBuffer buffer, long fileOffset, boolean csv) {
+        final TextEdgeParser parser = new TextEdgeParser(buffer, fileOffset, csv);
+        final int end = buffer.limit();
+        int position = 0;
+        while (position < end) {
+            int lineEnd = position;
+            boolean tabs = false;
+            byte b;
+            while (lineEnd < end && (b = buffer.get(lineEnd)) != '\n') {
+                tabs |= b == '\t';
+                ++lineEnd;
+            }
+            final int next = lineEnd + 1;
+            if (lineEnd > position && buffer.get(lineEnd - 1) == '\r') {
+                --lineEnd;
+            }
+            parser.parseLine(position, lineEnd, csv ? (byte) ',' : tabs ? (byte) '\t' : (byte) ' ');
+            position = next;
+        }
+        return parser.block;
+    }
+
+    private void parseLine(int start, int end, byte separator) {
+        int position = start;
+        while (position < end && isSpace(buffer.get(position))) {
+            ++position;
+        }
+        if (position == end || buffer.get(position) == '#' || buffer.get(position) == '%') {
+            return;
+        }
+        if (header) {
+            header = false;
+            final byte first = buffer.get(position);
+            if ((first < '0' || first > '9') && first != '-' && first != '+') {
+                return;
+            }
+        }
+
+        findField(position, end, separator);
+        final int src = parseInt(position, fieldEnd, start);
+        if (nextField < 0) {
+            block.addNode(src);
+            return;
+        }
+
+        position = nextField;
+        findField(position, end, separator);
+        final int dest = parseInt(position, fieldEnd, start);
+
+        String label = "";
+        double weight = 1.0;
+        if (nextField >= 0) {
+            position = nextField;
+            if (csv && buffer.get(position) == '"') {
+                label = parseQuoted(position, end, start);
+            }
+            else {
+                findField(position, end, separator);
+                label = parseLabel(position, fieldEnd, separator == '\t');
+            }
+            if (nextField >= 0) {
+                position = nextField;
+                findField(position, end, separator);
+                weight = parseDouble(position, fieldEnd, start);
+            }
+        }
+        block.add(src, dest, new Edge(label, weight));
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    private void findField(int start, int end, byte separator) {
+        int position = start;
+        while (position < end && buffer.get(position) != separator) {
+            ++position;
+        }
+        fieldEnd = position;
+        if (position == end) {
+            nextField = -1;
+            return;
+        }
+
+        // Runs of spaces are one separator
+        ++position;
+        if (separator == ' ') {
+            while (position < end && buffer.get(position) == ' ') {
+                ++position;
+            }
+            if (position == end) {
+                nextField = -1;
+                return;
+            }
+        }
+        nextField = position;
+    }
+
+    private int parseInt(int start, int end, int line) {
+        int position = start;
+        int last = end;
+        while (position < last && isSpace(buffer.get(position))) {
+            ++position;
+        }
+        while (last > position && isSpace(buffer.get(last - 1))) {
+            --last;
+        }
+
+        boolean negative = false;
+        if (position < last && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+            negative = buffer.get(position) == '-';
+            ++position;
+        }
+        if (position == last) {
+            throw badLine(line, "missing vertex");
+        }
+
+        long value = 0;
+        for (; position < last; ++position) {
+            final int digit = buffer.get(position) - '0';
+            if (digit < 0 || digit > 9) {
+                throw badLine(line, "vertex is not an integer");
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw badLine(line, "vertex out of range");
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw badLine(line, "vertex out of range");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses decimal numbers with up to 18 significant digits and a small exponent exactly,
+     * using one correctly rounded multiplication or division. Anything else goes through
+     * Double.parseDouble.
+     */
+    private double parseDouble(int start, int end, int line) {
+        int position = start;
+        int last = end;
+        while (position < last && isSpace(buffer.get(position))) {
+            ++position;
+        }
+        while (last > position && isSpace(buffer.get(last - 1))) {
+            --last;
+        }
+        final int first = position;
+
+        boolean negative = false;
+        if (position < last && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+            negative = buffer.get(position) == '-';
+            ++position;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+        boolean simple = true;
+        for (; position < last; ++position) {
+            final byte b = buffer.get(position);
+            if (b >= '0' && b <= '9') {
+                seenDigit = true;
+                if (mantissa == 0 && b == '0') {
+                    // Leading zeros do not count as significant digits
+                }
+                else if (++digits > 18) {
+                    simple = false;
+                    break;
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (seenPoint) {
+                    --exponent;
+                }
+            }
+            else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            }
+            else {
+                break;
+            }
+        }
+
+        if (simple && position < last && seenDigit && (buffer.get(position) == 'e' || buffer.get(position) == 'E')) {
+            ++position;
+            boolean negativeExponent = false;
+            if (position < last && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+                negativeExponent = buffer.get(position) == '-';
+                ++position;
+            }
+            int explicit = 0;
+            final int exponentStart = position;
+            for (; position < last && buffer.get(position) >= '0' && buffer.get(position) <= '9' && explicit < 1000; ++position) {
+                explicit = explicit * 10 + (buffer.get(position) - '0');
+            }
+            simple = position > exponentStart;
+            exponent += negativeExponent ? -explicit : explicit;
+        }
+
+        if (simple && seenDigit && position == last && mantissa < 1L << 53 && Math.abs(exponent) < POWERS_OF_TEN.length) {
+            final double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+            return negative ? -value : value;
+        }
+
+        final byte[] text = new byte[last - first];
+        for (int i = 0; i < text.length; ++i) {
+            text[i] = buffer.get(first + i);
+        }
+        try {
+            return Double.parseDouble(new String(text, StandardCharsets.ISO_8859_1));
+        }
+        catch (NumberFormatException e) {
+            throw badLine(line, "weight is not a number");
+        }
+    }
+
+    private String parseLabel(int start, int end, boolean escaped) {
+        int length = 0;
+        ensureScratch(end - start);
+        for (int position = start; position < end; ++position) {
+            byte b = buffer.get(position);
+            if (escaped && b == '\\' && position + 1 < end) {
+                b = buffer.get(++position);
+                switch (b) {
+                    case 't':
+                        b = '\t';
+                        break;
+                    case 'n':
+                        b = '\n';
+                        break;
+                    case 'r':
+                        b = '\r';
+                        break;
+                    default:
+                        break;
+                }
+            }
+            scratch[length++] = b;
+        }
+        return label(length);
+    }
+
+    /**
+     * Reads a double quoted CSV field, where "" stands for one quote
+     */
+    private String parseQuoted(int start, int end, int line) {
+        int length = 0;
+        ensureScratch(end - start);
+        int position = start + 1;
+        while (true) {
+            if (position >= end) {
+                throw badLine(line, "unterminated quote");
+            }
+            final byte b = buffer.get(position++);
+            if (b == '"') {
+                if (position < end && buffer.get(position) == '"') {
+                    ++position;
+                }
+                else {
+                    break;
+                }
+            }
+            scratch[length++] = b;
+        }
+
+        // Whatever follows the closing quote up to the next comma is ignored
+        findField(position, end, (byte) ',');
+        return label(length);
+    }
+
+    private void ensureScratch(int length) {
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+    }
+
+    /**
+     * @return the label in the first bytes of scratch, from the cache if it was seen recently
+     */
+    private String label(int length) {
+        if (length == 0) {
+            return "";
+        }
+
+        int hash = length;
+        for (int i = 0; i < length; ++i) {
+            hash = 31 * hash + scratch[i];
+        }
+        final int slot = (hash ^ (hash >>> 16)) & (LABEL_CACHE_SIZE - 1);
+        final byte[] cached = cachedBytes[slot];
+        if (cached != null && cached.length == length) {
+            boolean same = true;
+            for (int i = 0; i < length && same; ++i) {
+                same = cached[i] == scratch[i];
+            }
+            if (same) {
+                return cachedLabels[slot];
+            }
+        }
+
+        final String label = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        cachedBytes[slot] = Arrays.copyOf(scratch, length);
+        cachedLabels[slot] = label;
+        return label;
+    }
+
+    private UncheckedIOException badLine(int line, String reason) {
+        return new UncheckedIOException(new IOException("Line at byte " + (fileOffset + line) + " is not an edge: " + reason));
+    }
+}
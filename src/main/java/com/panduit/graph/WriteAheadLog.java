@@ -0,0 +1,321 @@
+package com.panduit.graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Append-only log of graph changes, split into numbered segment files.
+ *
+ * Each record is one byte for the kind of change followed by a length-delimited
+ * GraphProtos.Edge. Vertex changes use the 'from' field only.
+ *
+ * Appending only copies the record into a buffer. A background thread flushes and
+ * fsyncs the buffer, and every append made while an fsync is running is covered by
+ * the next one (group commit). Callers wait for their record with awaitDurable.
+ */
+final class WriteAheadLog implements Closeable {
+    static final int ADD_NODE = 1;
+    static final int REMOVE_NODE = 2;
+    static final int ADD_EDGE = 3;
+    static final int REMOVE_EDGE = 4;
+
+    // First record of a checkpoint: the segment replay continues from after the checkpoint
+    static final int SEGMENT = 5;
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private long segment;
+    private FileOutputStream file;
+    private OutputStream out;
+
+    // Records are numbered in the order they are appended
+    private long appended = 0;
+    private long durable = 0;
+    private IOException failure;
+    private boolean closed = false;
+
+    private final Thread flusher;
+
+    /**
+     * Starts a new segment after the existing ones. Existing segments are never appended
+     * to, since their last record may have been cut short by a crash.
+     *
+     * @param directory where the segments live
+     * @throws IOException
+     */
+    WriteAheadLog(Path directory) throws IOException {
+        this.directory = directory;
+        final List<Long> existing = segments(directory);
+        this.segment = existing.isEmpty() ? 0 : existing.get(existing.size() - 1) + 1;
+        openSegment();
+
+        flusher = new Thread(this::flushLoop, "graph-wal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    private void openSegment() throws IOException {
+        file = new FileOutputStream(segmentPath(directory, segment).toFile());
+        out = new BufferedOutputStream(file, 1 << 16);
+
+        // Records synced to the file are lost with it if its directory entry is not on disk
+        syncDirectory(directory);
+    }
+
+    /**
+     * Makes the files created, renamed or deleted in a directory survive a crash
+     *
+     * @param directory
+     * @throws IOException
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        final FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        }
+        catch (IOException e) {
+            // Some platforms, like Windows, cannot open a directory to sync it
+            return;
+        }
+        try (FileChannel open = channel) {
+            open.force(true);
+        }
+    }
+
+    /**
+     * Adds a record to the log. It is not durable until awaitDurable returns for it.
+     *
+     * @return number of the record
+     * @throws IOException if the log has failed or is closed
+     */
+    synchronized long append(int type, GraphProtos.Edge record) throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        if (closed) {
+            throw new IOException("Write-ahead log is closed");
+        }
+
+        out.write(type);
+        record.writeDelimitedTo(out);
+        ++appended;
+        notifyAll();
+        return appended;
+    }
+
+    /**
+     * Blocks until the record, and every record before it, is on disk
+     *
+     * @param record number returned by append
+     * @throws IOException if writing the log failed
+     */
+    synchronized void awaitDurable(long record) throws IOException {
+        while (durable < record && failure == null) {
+            try {
+                wait();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for the write-ahead log");
+            }
+        }
+        if (durable < record) {
+            throw failure;
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            final long target;
+            final FileOutputStream syncing;
+            synchronized (this) {
+                while (durable == appended && !closed) {
+                    try {
+                        wait();
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (durable == appended) {
+                    return;
+                }
+
+                target = appended;
+                syncing = file;
+                try {
+                    out.flush();
+                }
+                catch (IOException e) {
+                    fail(e);
+                    return;
+                }
+            }
+
+            // Appends carry on into the buffer while the disk catches up
+            try {
+                syncing.getChannel().force(false);
+            }
+            catch (IOException e) {
+                synchronized (this) {
+                    // The segment may have been rotated and closed, which syncs it anyway
+                    if (syncing == file) {
+                        fail(e);
+                        return;
+                    }
+                }
+            }
+
+            synchronized (this) {
+                durable = Math.max(durable, target);
+                notifyAll();
+            }
+        }
+    }
+
+    private void fail(IOException e) {
+        failure = e;
+        notifyAll();
+    }
+
+    /**
+     * Syncs and closes the current segment and starts a new one. Records appended
+     * after this go to the new segment.
+     *
+     * @return number of the new segment
+     * @throws IOException
+     */
+    synchronized long rotate() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        out.flush();
+        file.getChannel().force(false);
+        file.close();
+        durable = appended;
+        notifyAll();
+
+        ++segment;
+        openSegment();
+        return segment;
+    }
+
+    /**
+     * Flushes outstanding records, stops the flusher and closes the current segment
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            file.close();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Deletes the segments numbered below the given one
+     *
+     * @param segment first segment to keep
+     * @throws IOException
+     */
+    void deleteBefore(long segment) throws IOException {
+        for (final long number : segments(directory)) {
+            if (number < segment) {
+                Files.deleteIfExists(segmentPath(directory, number));
+            }
+        }
+    }
+
+    /**
+     * @param directory
+     * @return numbers of the segments in the directory, in ascending order
+     * @throws IOException
+     */
+    static List<Long> segments(Path directory) throws IOException {
+        final List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (final Path path : files) {
+                final String name = path.getFileName().toString();
+                numbers.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    static Path segmentPath(Path directory, long segment) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Receives the records of a log file during replay
+     */
+    @FunctionalInterface
+    interface RecordHandler {
+        void handle(int type, GraphProtos.Edge record);
+    }
+
+    /**
+     * Reads every complete record of a log file. A record cut short at the end of the
+     * file, which is what a crash in the middle of a write leaves behind, ends the replay.
+     *
+     * @param path log file
+     * @param handler receives the records in order
+     * @throws IOException if the file cannot be read
+     */
+    static void replay(Path path, RecordHandler handler) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(path.toFile()), 1 << 16)) {
+            while (true) {
+                final int type = in.read();
+                if (type < 0) {
+                    return;
+                }
+
+                final GraphProtos.Edge record;
+                try {
+                    record = GraphProtos.Edge.parseDelimitedFrom(in);
+                }
+                catch (IOException e) {
+                    // Torn write at the end of the log
+                    return;
+                }
+                if (record == null) {
+                    return;
+                }
+                handler.handle(type, record);
+            }
+        }
+    }
+}
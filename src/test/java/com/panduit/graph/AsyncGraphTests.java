@@ -0,0 +1,180 @@
+package com.panduit.graph;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+public class AsyncGraphTests {
+    private Graph<Integer> graph;
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void beforeTest() {
+        graph = new DirectedGraph<>();
+        graph.addEdge(1, 2, "1 -> 2", 1.0);
+        graph.addEdge(2, 3, "2 -> 3", 1.0);
+        graph.addEdge(1, 3, "1 -> 3", 5.0);
+        graph.addNode(4);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterMethod
+    public void afterTest() {
+        executor.shutdownNow();
+    }
+
+    @Test(timeOut = 20000)
+    public void testQueries() {
+        try (AsyncGraph<Integer> async = new AsyncGraph<>(graph)) {
+            assertEquals(async.findShortestPath(1, 3).join(), ImmutableList.of(1, 2, 3));
+            assertEquals(async.findShortestPath(1, 3, edge -> edge.getWeight() > 2).join(), ImmutableList.of(1, 3));
+            assertTrue(async.isConnected(3, 1).join());
+            assertFalse(async.isReachable(3, 1).join());
+            assertEquals(async.areConnected(Arrays.asList(
+                    new AbstractMap.SimpleEntry<>(1, 3), new AbstractMap.SimpleEntry<>(1, 4))).join(), Arrays.asList(true, false));
+            assertEquals(async.findShortestPaths(Arrays.asList(
+                    new AbstractMap.SimpleEntry<>(1, 2), new AbstractMap.SimpleEntry<>(2, 3))).join(),
+                    Arrays.asList(ImmutableList.of(1, 2), ImmutableList.of(2, 3)));
+            assertEquals((int) async.submit(g -> g.getNodes().size()).join(), 4);
+        }
+    }
+
+    @Test(timeOut = 20000)
+    public void testIdenticalWaitingQueriesShareOneComputation() throws InterruptedException {
+        final AtomicInteger searches = new AtomicInteger();
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Graph<Integer> counting = new DirectedGraph<Integer>() {
+            @Override
+            public List<Integer> findShortestPath(Integer src, Integer dest) {
+                searches.incrementAndGet();
+                return super.findShortestPath(src, dest);
+            }
+        };
+        counting.addEdge(1, 2, "1 -> 2", 1.0);
+
+        final AsyncGraph<Integer> async = new AsyncGraph<>(counting, executor, 1, 100);
+
+        // Hold the only turn so the next queries wait
+        final CompletableFuture<Integer> blocker = async.submit(g -> {
+            blocked.countDown();
+            try {
+                release.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 0;
+        });
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        final CompletableFuture<List<Integer>> first = async.findShortestPath(1, 2);
+        final CompletableFuture<List<Integer>> second = async.findShortestPath(1, 2);
+        final CompletableFuture<List<Integer>> other = async.findShortestPath(2, 1);
+
+        // Cancelling one caller's copy leaves the shared query running
+        second.cancel(false);
+        release.countDown();
+        blocker.join();
+        assertEquals(first.join(), ImmutableList.of(1, 2));
+        assertTrue(other.join().isEmpty());
+        assertEquals(searches.get(), 2);
+
+        // Once done, the same query runs again and sees changes
+        counting.addEdge(2, 1, "2 -> 1", 1.0);
+        assertEquals(async.findShortestPath(2, 1).join(), ImmutableList.of(2, 1));
+        assertEquals(searches.get(), 3);
+    }
+
+    @Test(timeOut = 20000)
+    public void testWaitingQueriesHoldNoThread() throws InterruptedException {
+        final AtomicInteger handedOver = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AsyncGraph<Integer> async = new AsyncGraph<>(graph, task -> {
+            handedOver.incrementAndGet();
+            executor.execute(task);
+        }, 2, 100);
+
+        final List<CompletableFuture<Integer>> queries = new ArrayList<>();
+        for (int i = 0; i < 2; ++i) {
+            queries.add(async.submit(g -> {
+                started.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 1;
+            }));
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 50; ++i) {
+            queries.add(async.submit(g -> g.getNodes().size()));
+        }
+        assertEquals(async.getWaitingCount(), 50);
+        assertEquals(handedOver.get(), 2);
+
+        release.countDown();
+        for (final CompletableFuture<Integer> query : queries) {
+            assertTrue(query.join() > 0);
+        }
+        assertEquals(handedOver.get(), 52);
+        assertEquals(async.getWaitingCount(), 0);
+    }
+
+    @Test(timeOut = 20000)
+    public void testRejectsWhenTooManyWait() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AsyncGraph<Integer> async = new AsyncGraph<>(graph, executor, 1, 1);
+        final CompletableFuture<Boolean> running = async.submit(g -> {
+            started.countDown();
+            try {
+                release.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        final CompletableFuture<Boolean> waiting = async.isConnected(1, 2);
+
+        try {
+            async.isReachable(1, 3).get(5, TimeUnit.SECONDS);
+            fail();
+        }
+        catch (ExecutionException | TimeoutException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+
+        release.countDown();
+        assertTrue(running.join());
+        assertTrue(waiting.join());
+        assertEquals(async.getWaitingCount(), 0);
+        assertTrue(async.isReachable(1, 3).join());
+    }
+}
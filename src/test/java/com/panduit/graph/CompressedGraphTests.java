@@ -0,0 +1,139 @@
+package com.panduit.graph;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Random;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.Test;
+
+
+public class CompressedGraphTests {
+
+    @Test
+    public void testSameAnswersAsSource() {
+        final DirectedGraph<Integer> source = new DirectedGraph<>();
+        final Random random = new Random(3);
+        for (int i = 0; i < 3000; ++i) {
+            final int u = random.nextInt(500);
+            source.addEdge(u, Math.max(0, u + random.nextInt(40) - 20), "w" + i % 3, i % 3 + 1);
+        }
+        // Hub with enough neighbors to use several skip pointers
+        for (int v = 0; v < 500; v += 3) {
+            source.addEdge(250, v, "hub", 0.5);
+        }
+        source.addNode(1000);
+
+        final CompressedGraph graph = CompressedGraph.of(source);
+        assertEquals(graph.getNodes(), source.getNodes());
+        assertEquals(graph.snapshot().getEdgeCount(), source.snapshot().getEdgeCount());
+        for (int u = -1; u < 502; ++u) {
+            assertEquals(graph.containsNode(u), source.containsNode(u));
+            for (int v = -1; v < 502; ++v) {
+                assertEquals(graph.containsEdge(u, v), source.containsEdge(u, v), u + " -> " + v);
+            }
+        }
+        for (Integer u : source.getNodes()) {
+            assertEquals(graph.getOutgoingEdges(u).keySet(), source.getOutgoingEdges(u).keySet());
+            assertEquals(graph.getIncomingEdges(u).keySet(), source.getIncomingEdges(u).keySet());
+            for (Integer v : source.getOutgoingEdges(u).keySet()) {
+                assertEquals(graph.getEdge(u, v).get().getLabel(), source.getEdge(u, v).get().getLabel());
+                assertEquals(graph.getEdge(u, v).get().getWeight(), source.getEdge(u, v).get().getWeight());
+            }
+        }
+
+        assertEquals(graph.findShortestPath(3, 480), source.findShortestPath(3, 480));
+        assertEquals(graph.bfs(0, 3), source.bfs(0, 3));
+        assertEquals(graph.getStronglyConnectedComponents().getComponentCount(),
+                source.getStronglyConnectedComponents().getComponentCount());
+        assertEquals(graph.isReachable(499, 0), source.isReachable(499, 0));
+        assertFalse(graph.isConnected(0, 1000));
+    }
+
+    @Test
+    public void testFewBytesPerEdge() {
+        // Each vertex points to nearby vertices and every edge looks the same
+        final DirectedGraph<Integer> source = new DirectedGraph<>();
+        final Random random = new Random(5);
+        final int n = 20000;
+        for (int u = 0; u < n; ++u) {
+            for (int k = 0; k < 10; ++k) {
+                source.addEdge(u, Math.min(n - 1, u + 1 + random.nextInt(64)), "", 1.0);
+            }
+        }
+
+        final CompressedGraph graph = CompressedGraph.of(source);
+        final double perEdge = (double) graph.getEncodedBytes() / graph.snapshot().getEdgeCount();
+        assertTrue(perEdge < 5, "bytes per edge: " + perEdge);
+        // Every edge weighs the same, so compare lengths rather than which of the tied paths is found
+        assertEquals(graph.findShortestPath(0, n - 1).size(), source.findShortestPath(0, n - 1).size());
+    }
+
+    @Test
+    public void testDistinctWeightsInColumn() {
+        final DirectedGraph<Integer> source = new DirectedGraph<>();
+        final Random random = new Random(39);
+        final int n = 5000;
+        for (int u = 0; u < n; ++u) {
+            for (int k = 0; k < 4; ++k) {
+                source.addEdge(u, random.nextInt(n), "l" + k % 2, random.nextDouble());
+            }
+        }
+
+        final CompressedGraph graph = CompressedGraph.of(source);
+        for (Integer u : source.getNodes()) {
+            for (Integer v : source.getOutgoingEdges(u).keySet()) {
+                assertEquals(graph.getEdge(u, v).get().getWeight(), source.getEdge(u, v).get().getWeight());
+                assertEquals(graph.getEdge(u, v).get().getLabel(), source.getEdge(u, v).get().getLabel());
+                assertEquals(graph.getIncomingEdges(v).get(u).getWeight(), source.getEdge(u, v).get().getWeight());
+            }
+        }
+        assertEquals(graph.findShortestPath(0, n - 1), source.findShortestPath(0, n - 1));
+
+        // Both directions keep a column of doubles, and it is counted
+        final long edges = graph.snapshot().getEdgeCount();
+        assertTrue(graph.getEncodedBytes() > 16 * edges);
+        assertTrue(graph.getEncodedBytes() < 32 * edges);
+    }
+
+    @Test
+    public void testUnlabeledEdges() {
+        final DirectedGraph<Integer> source = new DirectedGraph<>();
+        source.addEdge(1, 2, null, 1.0);
+        source.addEdge(2, 3, "2 -> 3", 2.0);
+
+        final CompressedGraph graph = CompressedGraph.of(source);
+        assertEquals(graph.getEdge(1, 2).get().getLabel(), "");
+        assertEquals(graph.getEdge(2, 3).get().getLabel(), "2 -> 3");
+        assertEquals(graph.findShortestPath(1, 3), ImmutableList.of(1, 2, 3));
+        assertTrue(graph.getEncodedBytes() > 0);
+    }
+
+    @Test
+    public void testReadOnly() {
+        final DirectedGraph<Integer> source = new DirectedGraph<>();
+        source.addEdge(1, 2, "1 -> 2", 1.0);
+        source.addEdge(2, 3, "2 -> 3", 1.0);
+        final CompressedGraph graph = CompressedGraph.of(source);
+
+        assertEquals(graph.reverse().findShortestPath(3, 1), ImmutableList.of(3, 2, 1));
+        assertEquals(graph.getNodes(), ImmutableSet.of(1, 2, 3));
+        try {
+            graph.addEdge(3, 1, "3 -> 1", 1.0);
+            assertTrue(false);
+        }
+        catch (UnsupportedOperationException e) {
+            assertFalse(graph.containsEdge(3, 1));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativeIdsRejected() {
+        final DirectedGraph<Integer> source = new DirectedGraph<>();
+        source.addEdge(-1, 2, "", 1.0);
+        CompressedGraph.of(source);
+    }
+}
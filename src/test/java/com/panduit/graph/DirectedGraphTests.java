@@ -2,14 +2,29 @@ package com.panduit.graph;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -310,6 +325,19 @@ public class DirectedGraphTests {
         System.out.println(graph.toString());
     }
 
+    @Test
+    public void testDagPathsWalkOnlyBetweenEnds() {
+        buildDAG();
+        assertEquals(graph.findShortestPath(6, 2), ImmutableList.of(6, 5, 7, 2));
+        assertEquals(graph.findLongestPath(6, 2), ImmutableList.of(6, 5, 7, 2));
+        assertEquals(graph.findShortestPath(6, 6), ImmutableList.of(6));
+
+        // dest comes before src in the order, or is not reached at all
+        assertTrue(graph.findShortestPath(2, 6).isEmpty());
+        assertTrue(graph.findShortestPath(3, 7).isEmpty());
+        assertTrue(graph.findLongestPath(8, 2).isEmpty());
+    }
+
     @Test
     public void testFindShortestPath() {
         buildGraphForShortestPath();
@@ -325,15 +353,452 @@ public class DirectedGraphTests {
     public void testGraphSerialization() throws IOException {
         buildGraphForShortestPath();
 
-        final String fileName = "graph.data";
+        // A temporary file, so the test leaves nothing in the working directory
+        final Path file = Files.createTempFile("graph", ".data");
+        try {
+            final String fileName = file.toString();
+
+            // Write to file
+            DirectedGraph.write(graph, fileName);
+
+            // Read from file
+            Graph<Integer> g = DirectedGraph.read(fileName);
+
+            // Verify graph
+            assertEquals(g.findShortestPath(1, 6), ImmutableList.of(1, 3, 5, 4, 6));
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testRemoveNodeRemovesIncomingReferences() {
+        buildBasicGraph();
+        graph.removeNode(1);
+
+        // Node 1 pointed to node 2, so node 2 should no longer list it
+        assertTrue(graph.getIncomingEdges(2).isEmpty());
+        assertTrue(graph.getOutgoingEdges(3).isEmpty());
+    }
+
+    @Test
+    public void testBfs() {
+        buildGraphForShortestPath();
+        List<Set<Integer>> levels = graph.bfs(1, Integer.MAX_VALUE);
+        assertEquals(levels, ImmutableList.of(
+                ImmutableSet.of(1),
+                ImmutableSet.of(2, 3),
+                ImmutableSet.of(4, 5),
+                ImmutableSet.of(6)));
+    }
+
+    @Test
+    public void testBfsMaxDepth() {
+        buildGraphForShortestPath();
+        assertEquals(graph.bfs(1, 0), ImmutableList.of(ImmutableSet.of(1)));
+        assertEquals(graph.bfs(1, 1), ImmutableList.of(ImmutableSet.of(1), ImmutableSet.of(2, 3)));
+
+        // Follows edge direction only
+        assertEquals(graph.bfs(6, Integer.MAX_VALUE), ImmutableList.of(ImmutableSet.of(6)));
+
+        // Unknown vertex
+        assertTrue(graph.bfs(42, 3).isEmpty());
+    }
+
+    @Test
+    public void testBfsVisitor() {
+        buildDAG();
+        final Map<Integer, Integer> depths = new HashMap<>();
+        graph.bfs(6, Integer.MAX_VALUE, depths::put);
+        assertEquals(depths, ImmutableMap.of(6, 0, 5, 1, 7, 2, 2, 3));
+    }
+
+    @Test(timeOut = 10000)
+    public void testBfsOnViews() {
+        // A long chain: searching it bottom-up would scan every vertex at every level
+        final int n = 20000;
+        final DirectedGraph<Integer> chain = new DirectedGraph<>();
+        for (int i = 0; i < n; ++i) {
+            chain.addEdge(i, i + 1, "", 1.0);
+        }
+
+        final List<Set<Integer>> reversed = chain.reverse().bfs(n, Integer.MAX_VALUE);
+        assertEquals(reversed.size(), n + 1);
+        assertEquals(reversed.get(n), ImmutableSet.of(0));
+
+        final List<Set<Integer>> undirected = chain.undirected().bfs(n / 2, Integer.MAX_VALUE);
+        assertEquals(undirected.size(), n / 2 + 1);
+        assertEquals(undirected.get(n / 2), ImmutableSet.of(0, n));
+
+        final Set<Integer> half = new HashSet<>();
+        for (int i = 0; i <= n / 2; ++i) {
+            half.add(i);
+        }
+        final List<Set<Integer>> induced = chain.inducedSubgraph(half).bfs(0, Integer.MAX_VALUE);
+        assertEquals(induced.size(), n / 2 + 1);
+    }
+
+    @Test
+    public void testBfsLargeGraph() {
+        // Large enough for the bottom-up and parallel steps to kick in
+        final int n = 20000;
+        final Random random = new Random(7);
+        final List<List<Integer>> adjacency = new ArrayList<>();
+        for (int i = 0; i < n; ++i) {
+            adjacency.add(new ArrayList<>());
+            graph.addNode(i);
+        }
+        for (int i = 0; i < n * 8; ++i) {
+            final int u = random.nextInt(n);
+            final int v = random.nextInt(n);
+            adjacency.get(u).add(v);
+            graph.addEdge(u, v, "", 1.0);
+        }
+
+        // Reference: plain queue based BFS
+        final int[] expected = new int[n];
+        Arrays.fill(expected, -1);
+        final ArrayDeque<Integer> queue = new ArrayDeque<>();
+        expected[0] = 0;
+        queue.add(0);
+        while (!queue.isEmpty()) {
+            final int u = queue.remove();
+            for (final int v : adjacency.get(u)) {
+                if (expected[v] < 0) {
+                    expected[v] = expected[u] + 1;
+                    queue.add(v);
+                }
+            }
+        }
+
+        final int[] actual = new int[n];
+        Arrays.fill(actual, -1);
+        graph.bfs(0, Integer.MAX_VALUE, (node, depth) -> actual[node] = depth);
+        assertEquals(actual, expected);
+    }
+
+    @Test
+    public void testStronglyConnectedComponents() {
+        buildComplexGraph();
+        graph.addEdge(3, 4, "3 -> 4", 1.0);
+        graph.addEdge(4, 5, "4 -> 5", 1.0);
+        graph.addEdge(5, 4, "5 -> 4", 1.0);
+
+        StronglyConnectedComponents<Integer> scc = graph.getStronglyConnectedComponents();
+        assertEquals(scc.getComponentCount(), 2);
+        assertTrue(scc.isStronglyConnected(1, 3));
+        assertTrue(scc.isStronglyConnected(4, 5));
+        assertFalse(scc.isStronglyConnected(3, 4));
+        assertEquals(scc.getMembers(scc.getComponent(4)), ImmutableSet.of(4, 5));
+        assertEquals(scc.getComponent(42), -1);
+
+        // Components are numbered in topological order of the condensation
+        Graph<Integer> dag = scc.getCondensation();
+        assertEquals(dag.getNodes(), ImmutableSet.of(0, 1));
+        assertTrue(dag.containsEdge(scc.getComponent(1), scc.getComponent(4)));
+        assertTrue(scc.getComponent(1) < scc.getComponent(4));
+    }
+
+    @Test
+    public void testStronglyConnectedComponentsCachedUntilChange() {
+        buildDAG();
+        StronglyConnectedComponents<Integer> scc = graph.getStronglyConnectedComponents();
+        assertEquals(scc.getComponentCount(), 9);
+        assertSame(graph.getStronglyConnectedComponents(), scc);
+
+        // Closing a cycle merges components
+        graph.addEdge(2, 3, "2 -> 3", 1.0);
+        StronglyConnectedComponents<Integer> updated = graph.getStronglyConnectedComponents();
+        assertNotSame(updated, scc);
+        assertEquals(updated.getComponentCount(), 7);
+        assertTrue(updated.isStronglyConnected(2, 3));
+        assertTrue(updated.isStronglyConnected(3, 4));
+    }
 
-        // Write to file
-        DirectedGraph.write(graph, fileName);
+    @Test
+    public void testStronglyConnectedComponentsDeepGraph() {
+        // A single long cycle would overflow a recursive implementation
+        final int n = 200000;
+        for (int i = 0; i < n; ++i) {
+            graph.addEdge(i, (i + 1) % n, "", 1.0);
+        }
+        assertEquals(graph.getStronglyConnectedComponents().getComponentCount(), 1);
+    }
 
-        // Read from file
-        Graph<Integer> g = DirectedGraph.read(fileName);
+    @Test
+    public void testIsReachable() {
+        buildDAG();
+        assertTrue(graph.isReachable(1, 7));
+        assertTrue(graph.isReachable(6, 2));
+        assertTrue(graph.isReachable(3, 2));
+        assertTrue(graph.isReachable(8, 9));
+        assertTrue(graph.isReachable(4, 4));
+
+        // Connected, but not along the direction of the edges
+        assertFalse(graph.isReachable(7, 1));
+        assertFalse(graph.isReachable(2, 6));
+        assertFalse(graph.isReachable(1, 5));
+        assertFalse(graph.isReachable(1, 8));
+        assertFalse(graph.isReachable(1, 42));
+
+        // Index is rebuilt after a change
+        graph.addEdge(2, 6, "2 -> 6", 1.0);
+        assertFalse(graph.isReachable(7, 1));
+        assertTrue(graph.isReachable(2, 5));
+        assertTrue(graph.isReachable(7, 6));
+    }
 
-        // Verify graph
-        assertEquals(g.findShortestPath(1, 6), ImmutableList.of(1, 3, 5, 4, 6));
+    @Test
+    public void testIsReachableMatchesBfs() {
+        final int n = 300;
+        final Random random = new Random(11);
+        for (int i = 0; i < n; ++i) {
+            graph.addNode(i);
+        }
+        for (int i = 0; i < n * 2; ++i) {
+            graph.addEdge(random.nextInt(n), random.nextInt(n), "", 1.0);
+        }
+
+        for (int u = 0; u < n; u += 7) {
+            final Set<Integer> reached = new HashSet<>();
+            graph.bfs(u, Integer.MAX_VALUE, (node, depth) -> reached.add(node));
+            for (int v = 0; v < n; ++v) {
+                assertEquals(graph.isReachable(u, v), reached.contains(v), u + " -> " + v);
+            }
+        }
+    }
+
+    @Test
+    public void testTopologicalOrder() {
+        buildDAG();
+        List<Integer> order = graph.topologicalOrder().get();
+        assertEquals(order.size(), 9);
+        for (Integer u : order) {
+            for (Integer v : graph.getOutgoingEdges(u).keySet()) {
+                assertTrue(order.indexOf(u) < order.indexOf(v), u + " -> " + v);
+            }
+        }
+
+        // A cycle has no topological order
+        graph.addEdge(2, 6, "2 -> 6", 1.0);
+        assertFalse(graph.topologicalOrder().isPresent());
+        graph.removeEdge(2, 6);
+        assertTrue(graph.topologicalOrder().isPresent());
+    }
+
+    @Test
+    public void testFindLongestPath() {
+        buildGraphForShortestPath();
+        assertEquals(graph.findLongestPath(1, 6), ImmutableList.of(1, 2, 3, 5, 4, 6));
+        assertEquals(graph.findLongestPath(1, 3), ImmutableList.of(1, 2, 3));
+        assertEquals(graph.findLongestPath(6, 1), ImmutableList.of());
+
+        // Not defined with a cycle
+        graph.addEdge(6, 1, "6 -> 1", 1.0);
+        assertEquals(graph.findLongestPath(1, 6), ImmutableList.of());
+    }
+
+    @Test
+    public void testFindShortestPathWithCycle() {
+        buildGraphForShortestPath();
+        graph.addEdge(6, 1, "6 -> 1", 1.0);
+        assertEquals(graph.findShortestPath(1, 6), ImmutableList.of(1, 3, 5, 4, 6));
+        assertEquals(graph.findShortestPath(6, 3), ImmutableList.of(6, 1, 3));
+    }
+
+    @Test
+    public void testShortestPathCache() {
+        DirectedGraph<Integer> cached = new DirectedGraph<>();
+        cached.enableShortestPathCache(2);
+        graph = cached;
+        buildGraphForShortestPath();
+
+        assertEquals(graph.findShortestPath(1, 6), ImmutableList.of(1, 3, 5, 4, 6));
+        assertEquals(graph.findShortestPath(1, 6), ImmutableList.of(1, 3, 5, 4, 6));
+        assertEquals(cached.getShortestPathCacheStats().hitCount(), 1);
+        assertEquals(cached.getShortestPathCacheStats().missCount(), 1);
+
+        // Callers get their own copy
+        graph.findShortestPath(1, 6).clear();
+        assertEquals(graph.findShortestPath(1, 6), ImmutableList.of(1, 3, 5, 4, 6));
+
+        // A change to the graph invalidates the cached path
+        graph.addEdge(1, 4, "1 -> 4", 1.0);
+        assertEquals(graph.findShortestPath(1, 6), ImmutableList.of(1, 4, 6));
+
+        // Least recently used pairs are evicted beyond the maximum size
+        graph.findShortestPath(1, 5);
+        graph.findShortestPath(2, 6);
+        assertEquals(cached.getShortestPathCacheStats().evictionCount(), 1);
+    }
+
+    @Test
+    public void testMetrics() throws InterruptedException {
+        DirectedGraph<Integer> metered = new DirectedGraph<>();
+        LongAdderGraphMetrics metrics = new LongAdderGraphMetrics();
+        metered.setMetrics(metrics);
+        graph = metered;
+        buildGraphForShortestPath();
+        graph.addEdge(6, 1, "6 -> 1", 1.0);
+
+        graph.findShortestPath(1, 6);
+        graph.isConnected(1, 6);
+        graph.getOutgoingEdges(1);
+
+        assertEquals(metrics.getCount(GraphMetrics.Operation.ADD_EDGE), 8);
+        assertEquals(metrics.getCount(GraphMetrics.Operation.FIND_SHORTEST_PATH), 1);
+        assertEquals(metrics.getCount(GraphMetrics.Operation.IS_CONNECTED), 1);
+
+        // Only the outermost call is timed
+        assertEquals(metrics.getCount(GraphMetrics.Operation.ADD_NODE), 0);
+        assertEquals(metrics.getCount(GraphMetrics.Operation.TOPOLOGICAL_ORDER), 0);
+        assertTrue(metrics.getLatencyPercentile(GraphMetrics.Operation.ADD_EDGE, 99) > 0);
+        assertTrue(metrics.getNodesSettled() > 0);
+        assertTrue(metrics.getNodesVisited() > 0);
+        assertEquals(metrics.getEdgesCopied(), 2);
+
+        // A writer blocked behind a reader counts as contention
+        final Thread writer = new Thread(() -> graph.addEdge(7, 8, "7 -> 8", 1.0));
+        graph.bfs(1, 0, (node, depth) -> {
+            writer.start();
+            while (writer.getState() != Thread.State.WAITING) {
+                Thread.yield();
+            }
+        });
+        writer.join();
+        assertEquals(metrics.getLockContentions(true), 1);
+        assertTrue(metrics.getLockWaitNanos(true) > 0);
+
+        graph.removeNode(8);
+        assertEquals(metrics.getCount(GraphMetrics.Operation.REMOVE_NODE), 1);
+        assertEquals(metrics.getCount(GraphMetrics.Operation.REMOVE_EDGE), 0);
+
+        // Back to recording nothing
+        metered.setMetrics(GraphMetrics.NOOP);
+        graph.findShortestPath(1, 6);
+        assertEquals(metrics.getCount(GraphMetrics.Operation.FIND_SHORTEST_PATH), 1);
+    }
+
+    @Test
+    public void testFindKShortestPaths() {
+        buildGraphForShortestPath();
+        graph.addEdge(6, 1, "6 -> 1", 1.0);
+
+        List<List<Integer>> paths = graph.findKShortestPaths(1, 6, 10).collect(Collectors.toList());
+        assertEquals(paths, ImmutableList.of(
+                ImmutableList.of(1, 3, 5, 4, 6),
+                ImmutableList.of(1, 2, 4, 6),
+                ImmutableList.of(1, 2, 3, 5, 4, 6)));
+
+        // Only as many as asked for
+        assertEquals(graph.findKShortestPaths(1, 6, 2).count(), 2);
+        assertEquals(graph.findKShortestPaths(6, 6, 3).collect(Collectors.toList()),
+                ImmutableList.of(ImmutableList.of(6)));
+        assertEquals(graph.findKShortestPaths(1, 42, 3).count(), 0);
+    }
+
+    @Test(expectedExceptions = ConcurrentModificationException.class)
+    public void testFindKShortestPathsGraphChanged() {
+        buildGraphForShortestPath();
+        Iterator<List<Integer>> paths = graph.findKShortestPaths(1, 6, 3).iterator();
+        paths.next();
+        graph.addEdge(1, 6, "1 -> 6", 100.0);
+        paths.next();
+    }
+
+    @Test
+    public void testFindShortestPathWithPredicate() {
+        buildGraphForShortestPath();
+
+        // Avoid the edge 3 -> 5
+        assertEquals(graph.findShortestPath(1, 6, edge -> !edge.getLabel().equals("label5")),
+                ImmutableList.of(1, 2, 4, 6));
+
+        // Only light edges. There is no way around 4 -> 6.
+        assertEquals(graph.findShortestPath(1, 6, edge -> edge.getWeight() <= 10), ImmutableList.of());
+        assertEquals(graph.findShortestPath(1, 4, edge -> edge.getWeight() <= 10), ImmutableList.of(1, 3, 5, 4));
+
+        // Same with a cycle, which goes through Dijkstra
+        graph.addEdge(6, 1, "6 -> 1", 1.0);
+        assertEquals(graph.findShortestPath(1, 6, edge -> !edge.getLabel().equals("label5")),
+                ImmutableList.of(1, 2, 4, 6));
+    }
+
+    @Test
+    public void testIsConnectedWithPredicate() {
+        buildDAG();
+        assertTrue(graph.isConnected(6, 1, edge -> true));
+
+        // 1 only connects through 1 -> 7, which weighs 9
+        assertFalse(graph.isConnected(6, 1, edge -> edge.getWeight() < 9));
+        assertTrue(graph.isConnected(6, 2, edge -> edge.getWeight() < 9));
+        assertFalse(graph.isConnected(8, 9, edge -> !edge.getLabel().equals("8 -> 9")));
+    }
+
+    @Test
+    public void testReverseView() {
+        buildGraphForShortestPath();
+        Graph<Integer> reversed = graph.reverse();
+
+        assertTrue(reversed.containsEdge(6, 4));
+        assertFalse(reversed.containsEdge(4, 6));
+        assertEquals(reversed.getOutgoingEdges(3).keySet(), ImmutableSet.of(1, 2));
+        assertEquals(reversed.findShortestPath(6, 1), ImmutableList.of(6, 4, 5, 3, 1));
+        assertTrue(reversed.isReachable(6, 1));
+        assertFalse(reversed.isReachable(1, 6));
+
+        // Reflects later changes
+        graph.addEdge(6, 7, "6 -> 7", 1.0);
+        assertTrue(reversed.containsEdge(7, 6));
+        assertTrue(reversed.isReachable(7, 1));
+        assertEquals(graph.reverse().reverse().findShortestPath(1, 7), ImmutableList.of(1, 3, 5, 4, 6, 7));
+    }
+
+    @Test
+    public void testInducedSubgraphView() {
+        buildGraphForShortestPath();
+        Set<Integer> nodes = new HashSet<>(ImmutableSet.of(1, 2, 4, 6));
+        Graph<Integer> subgraph = graph.inducedSubgraph(nodes);
+
+        assertEquals(subgraph.getNodes(), nodes);
+        assertFalse(subgraph.containsNode(3));
+        assertFalse(subgraph.containsEdge(1, 3));
+        assertEquals(subgraph.getOutgoingEdges(2).keySet(), ImmutableSet.of(4));
+        assertEquals(subgraph.findShortestPath(1, 6), ImmutableList.of(1, 2, 4, 6));
+        assertEquals(subgraph.bfs(1, Integer.MAX_VALUE).size(), 4);
+        assertEquals(subgraph.snapshot().getEdgeCount(), 3);
+
+        // The set is copied, so cached results stay right
+        nodes.add(3);
+        assertFalse(subgraph.containsEdge(1, 3));
+        assertEquals(subgraph.findShortestPath(1, 6), ImmutableList.of(1, 2, 4, 6));
+
+        // Changes to the graph still show
+        graph.removeNode(6);
+        assertEquals(subgraph.getNodes(), ImmutableSet.of(1, 2, 4));
+        assertEquals(subgraph.snapshot().getNodeCount(), 3);
+        assertTrue(subgraph.findShortestPath(1, 6).isEmpty());
+    }
+
+    @Test
+    public void testUndirectedView() {
+        buildDAG();
+        Graph<Integer> undirected = graph.undirected();
+
+        assertTrue(undirected.containsEdge(7, 1));
+        assertTrue(undirected.containsEdge(1, 7));
+        assertEquals(undirected.getOutgoingEdges(7).keySet(), ImmutableSet.of(1, 2, 5));
+        assertEquals(undirected.getIncomingEdges(7).keySet(), ImmutableSet.of(1, 2, 5));
+        assertTrue(undirected.isReachable(6, 3));
+        assertFalse(undirected.isReachable(6, 8));
+        assertEquals(undirected.getStronglyConnectedComponents().getComponentCount(), 2);
+        assertFalse(undirected.topologicalOrder().isPresent());
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testViewsAreReadOnly() {
+        buildBasicGraph();
+        graph.reverse().addEdge(1, 4, "1 -> 4", 1.0);
     }
 }
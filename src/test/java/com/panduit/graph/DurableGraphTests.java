@@ -0,0 +1,163 @@
+package com.panduit.graph;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+public class DurableGraphTests {
+    private Path directory;
+
+    @BeforeMethod
+    public void beforeTest() throws IOException {
+        directory = Files.createTempDirectory("durable-graph");
+    }
+
+    @AfterMethod
+    public void afterTest() throws IOException {
+        for (Path file : Files.newDirectoryStream(directory)) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testLogReplayedOnOpen() throws IOException {
+        try (DurableGraph graph = DurableGraph.open(directory)) {
+            graph.addEdge(1, 2, "1 -> 2", 4.0);
+            graph.addEdge(2, 3, null, 1.0);
+            graph.addEdge(1, 3, "1 -> 3", 9.0);
+            graph.addNode(7);
+            graph.removeEdge(1, 3);
+        }
+
+        try (DurableGraph graph = DurableGraph.open(directory)) {
+            assertEquals(graph.getNodes(), ImmutableSet.of(1, 2, 3, 7));
+            assertFalse(graph.containsEdge(1, 3));
+            assertEquals(graph.getEdge(1, 2).get().getLabel(), "1 -> 2");
+            assertEquals(graph.getEdge(1, 2).get().getWeight(), 4.0);
+            assertEquals(graph.findShortestPath(1, 3), ImmutableList.of(1, 2, 3));
+
+            // A second session appends to a new segment
+            graph.removeNode(2);
+        }
+
+        try (DurableGraph graph = DurableGraph.open(directory)) {
+            assertEquals(graph.getNodes(), ImmutableSet.of(1, 3, 7));
+            assertTrue(graph.getOutgoingEdges(1).isEmpty());
+        }
+    }
+
+    @Test
+    public void testRefusedChangeIsNotApplied() throws IOException {
+        DurableGraph graph = DurableGraph.open(directory);
+        graph.addEdge(1, 2, "1 -> 2", 4.0);
+        graph.close();
+
+        // The log is closed, so nothing more can be made durable
+        try {
+            graph.addEdge(3, 4, "3 -> 4", 1.0);
+            fail("Expected the log to refuse the change");
+        }
+        catch (UncheckedIOException e) {
+            assertFalse(graph.containsNode(3));
+        }
+        try {
+            graph.removeNode(1);
+            fail("Expected the log to refuse the change");
+        }
+        catch (UncheckedIOException e) {
+            assertTrue(graph.containsEdge(1, 2));
+        }
+    }
+
+    @Test
+    public void testCheckpointAndLogTail() throws IOException {
+        try (DurableGraph graph = DurableGraph.open(directory)) {
+            for (int i = 0; i < 100; ++i) {
+                graph.addEdge(i, i + 1, "e" + i, i);
+            }
+            graph.addNode(1000);
+            graph.checkpoint();
+
+            // Only the segment written after the checkpoint is left
+            assertEquals(WriteAheadLog.segments(directory).size(), 1);
+
+            graph.removeEdge(50, 51);
+            graph.addEdge(100, 0, "back", 1.0);
+        }
+
+        try (DurableGraph graph = DurableGraph.open(directory)) {
+            assertEquals(graph.getNodes().size(), 102);
+            assertTrue(graph.containsNode(1000));
+            assertFalse(graph.containsEdge(50, 51));
+            assertEquals(graph.getEdge(100, 0).get().getLabel(), "back");
+            assertEquals(graph.getEdge(10, 11).get().getWeight(), 10.0);
+            assertEquals(graph.findShortestPath(100, 50).size(), 52);
+        }
+    }
+
+    @Test
+    public void testTornWriteIgnored() throws IOException {
+        try (DurableGraph graph = DurableGraph.open(directory)) {
+            graph.addEdge(1, 2, "kept", 1.0);
+            graph.addEdge(2, 3, "torn", 1.0);
+        }
+
+        // Cut the last record short, as a crash in the middle of the write would
+        final Path segment = WriteAheadLog.segmentPath(directory, WriteAheadLog.segments(directory).get(0));
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        try (DurableGraph graph = DurableGraph.open(directory)) {
+            assertTrue(graph.containsEdge(1, 2));
+            assertFalse(graph.containsEdge(2, 3));
+        }
+    }
+
+    @Test
+    public void testConcurrentWritersAllDurable() throws Exception {
+        final ExecutorService pool = Executors.newFixedThreadPool(8);
+        try (DurableGraph graph = DurableGraph.open(directory, 5)) {
+            final List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 8; ++t) {
+                final int thread = t;
+                writers.add(pool.submit(() -> {
+                    for (int i = 0; i < 200; ++i) {
+                        graph.addEdge(thread * 1000 + i, thread * 1000 + i + 1, "", 1.0);
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        try (DurableGraph graph = DurableGraph.open(directory)) {
+            assertEquals(graph.getNodes().size(), 8 * 201);
+            assertTrue(graph.isConnected(7000, 7200));
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.panduit.graph;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+public class GraphAnalyticsTests {
+    private static final double DELTA = 1e-6;
+
+    private Graph<Integer> graph;
+
+    @BeforeMethod
+    public void beforeTest() {
+        graph = new DirectedGraph<Integer>();
+    }
+
+    @Test
+    public void testSnapshot() {
+        graph.addEdge(1, 2, "1 -> 2", 3.0);
+        graph.addEdge(1, 3, "1 -> 3", 4.0);
+        graph.addEdge(3, 1, "3 -> 1", 5.0);
+        graph.addNode(4);
+
+        CsrGraph<Integer> csr = graph.snapshot();
+        assertEquals(csr.getNodeCount(), 4);
+        assertEquals(csr.getEdgeCount(), 3);
+        assertEquals(csr.getOutDegree(csr.getId(1)), 2);
+        assertEquals(csr.getInDegree(csr.getId(1)), 1);
+        assertEquals(csr.getInDegree(csr.getId(4)), 0);
+        assertEquals(csr.getId(42), -1);
+        for (int id = 0; id < csr.getNodeCount(); ++id) {
+            assertEquals(csr.getId(csr.getNode(id)), id);
+        }
+    }
+
+    @Test
+    public void testPageRankCycle() {
+        // Every vertex in a cycle has the same rank
+        graph.addEdge(1, 2, "", 1.0);
+        graph.addEdge(2, 3, "", 1.0);
+        graph.addEdge(3, 1, "", 1.0);
+
+        CsrGraph<Integer> csr = graph.snapshot();
+        Map<Integer, Double> ranks = csr.toMap(GraphAnalytics.pageRank(csr));
+        for (double rank : ranks.values()) {
+            assertEquals(rank, 1.0 / 3, DELTA);
+        }
+    }
+
+    @Test
+    public void testPageRankStar() {
+        // Everyone points to 0. Vertex 0 has no outgoing edges.
+        for (int i = 1; i <= 4; ++i) {
+            graph.addEdge(i, 0, "", 1.0);
+        }
+
+        CsrGraph<Integer> csr = graph.snapshot();
+        double[] ranks = GraphAnalytics.pageRank(csr);
+        double total = 0;
+        for (int id = 0; id < ranks.length; ++id) {
+            total += ranks[id];
+            if (csr.getNode(id) != 0) {
+                assertTrue(ranks[csr.getId(0)] > ranks[id]);
+            }
+        }
+        assertEquals(total, 1.0, DELTA);
+    }
+
+    @Test
+    public void testPersonalizedPageRank() {
+        graph.addEdge(1, 2, "", 1.0);
+        graph.addEdge(2, 1, "", 1.0);
+        graph.addEdge(3, 4, "", 1.0);
+        graph.addEdge(4, 3, "", 1.0);
+
+        // Jumps only land on 1, so 3 and 4 are never visited
+        CsrGraph<Integer> csr = graph.snapshot();
+        Map<Integer, Double> ranks = csr.toMap(GraphAnalytics.personalizedPageRank(csr, ImmutableMap.of(1, 1.0),
+                GraphAnalytics.DEFAULT_DAMPING, GraphAnalytics.DEFAULT_TOLERANCE, GraphAnalytics.DEFAULT_MAX_ITERATIONS));
+        assertEquals(ranks.get(3), 0.0, DELTA);
+        assertEquals(ranks.get(4), 0.0, DELTA);
+        assertEquals(ranks.get(1) + ranks.get(2), 1.0, DELTA);
+        assertTrue(ranks.get(1) > ranks.get(2));
+    }
+
+    @Test
+    public void testDegreeCentrality() {
+        graph.addEdge(1, 2, "", 1.0);
+        graph.addEdge(1, 3, "", 1.0);
+        graph.addEdge(2, 3, "", 1.0);
+
+        CsrGraph<Integer> csr = graph.snapshot();
+        Map<Integer, Double> in = csr.toMap(GraphAnalytics.inDegreeCentrality(csr));
+        Map<Integer, Double> out = csr.toMap(GraphAnalytics.outDegreeCentrality(csr));
+        assertEquals(in, ImmutableMap.of(1, 0.0, 2, 0.5, 3, 1.0));
+        assertEquals(out, ImmutableMap.of(1, 1.0, 2, 0.5, 3, 0.0));
+    }
+
+    @Test
+    public void testBetweennessCentrality() {
+        // 1 -> 2 -> 3 plus a more expensive shortcut 1 -> 3
+        graph.addEdge(1, 2, "", 1.0);
+        graph.addEdge(2, 3, "", 1.0);
+        graph.addEdge(1, 3, "", 5.0);
+
+        // Two equally short paths from 4 to 6
+        graph.addEdge(4, 5, "", 1.0);
+        graph.addEdge(5, 6, "", 1.0);
+        graph.addEdge(4, 7, "", 1.0);
+        graph.addEdge(7, 6, "", 1.0);
+
+        CsrGraph<Integer> csr = graph.snapshot();
+        Map<Integer, Double> betweenness = csr.toMap(GraphAnalytics.betweennessCentrality(csr));
+        assertEquals(betweenness.get(2), 1.0, DELTA);
+        assertEquals(betweenness.get(5), 0.5, DELTA);
+        assertEquals(betweenness.get(7), 0.5, DELTA);
+        assertEquals(betweenness.get(1), 0.0, DELTA);
+        assertEquals(betweenness.get(6), 0.0, DELTA);
+    }
+
+    @Test
+    public void testBetweennessWithZeroWeightCycle() {
+        // 1 and 2 are zero apart both ways, and 3 loops back to itself
+        graph.addEdge(1, 2, "", 0.0);
+        graph.addEdge(2, 1, "", 0.0);
+        graph.addEdge(2, 3, "", 1.0);
+        graph.addEdge(3, 3, "", 0.0);
+
+        CsrGraph<Integer> csr = graph.snapshot();
+        Map<Integer, Double> betweenness = csr.toMap(GraphAnalytics.betweennessCentrality(csr));
+        assertEquals(betweenness, ImmutableMap.of(1, 0.0, 2, 1.0, 3, 0.0));
+    }
+
+    @Test
+    public void testReorderKeepsGraph() {
+        final Random random = new Random(11);
+        for (int i = 0; i < 400; ++i) {
+            graph.addEdge(random.nextInt(100), random.nextInt(100), "e" + i, random.nextInt(10));
+        }
+        graph.addNode(1000);
+
+        CsrGraph<Integer> csr = graph.snapshot();
+        Map<Integer, Double> pageRank = csr.toMap(GraphAnalytics.pageRank(csr));
+        for (NodeOrdering ordering : NodeOrdering.values()) {
+            CsrGraph<Integer> reordered = csr.reorder(ordering);
+            assertEquals(reordered.getNodeCount(), csr.getNodeCount());
+            assertEquals(reordered.getEdgeCount(), csr.getEdgeCount());
+            for (int id = 0; id < reordered.getNodeCount(); ++id) {
+                final Integer u = reordered.getNode(id);
+                assertEquals(reordered.getId(u), id);
+                assertEquals(reordered.getOutDegree(id), csr.getOutDegree(csr.getId(u)));
+                assertEquals(reordered.getInDegree(id), csr.getInDegree(csr.getId(u)));
+                for (int e = reordered.outOffsets[id]; e < reordered.outOffsets[id + 1]; ++e) {
+                    final Integer v = reordered.getNode(reordered.outTargets[e]);
+                    assertEquals(reordered.outEdges[e], graph.getEdge(u, v).get());
+                    assertTrue(e == reordered.outOffsets[id] || reordered.outTargets[e - 1] < reordered.outTargets[e]);
+                }
+            }
+
+            Map<Integer, Double> reorderedRank = reordered.toMap(GraphAnalytics.pageRank(reordered));
+            for (Integer u : graph.getNodes()) {
+                assertEquals(reorderedRank.get(u), pageRank.get(u), DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void testReverseCuthillMcKeeBandwidth() {
+        // Grid with its vertices numbered at random
+        final int side = 30;
+        final List<Integer> labels = new ArrayList<>();
+        for (int i = 0; i < side * side; ++i) {
+            labels.add(i);
+        }
+        Collections.shuffle(labels, new Random(2));
+        for (int r = 0; r < side; ++r) {
+            for (int c = 0; c < side; ++c) {
+                if (c + 1 < side) {
+                    graph.addEdge(labels.get(r * side + c), labels.get(r * side + c + 1), "", 1.0);
+                }
+                if (r + 1 < side) {
+                    graph.addEdge(labels.get(r * side + c), labels.get((r + 1) * side + c), "", 1.0);
+                }
+            }
+        }
+
+        CsrGraph<Integer> csr = graph.snapshot();
+        CsrGraph<Integer> reordered = csr.reorder(NodeOrdering.REVERSE_CUTHILL_MCKEE);
+        assertTrue(bandwidth(csr) > 10 * side);
+        assertTrue(bandwidth(reordered) <= 2 * side);
+
+        // Compressing the reordered snapshot keeps its ids, which map back through the snapshot
+        CompressedGraph compressed = CompressedGraph.of(reordered);
+        List<Integer> path = compressed.findShortestPath(reordered.getId(labels.get(0)), reordered.getId(labels.get(side * side - 1)));
+        assertEquals(path.size(), 2 * side - 1);
+        assertEquals(reordered.getNode(path.get(0)), labels.get(0));
+    }
+
+    @Test
+    public void testTriangles() {
+        // Two triangles sharing the edge 1 - 2, one of its edges joined both ways, and a tail
+        graph.addEdge(1, 2, "", 1.0);
+        graph.addEdge(2, 1, "", 1.0);
+        graph.addEdge(2, 3, "", 1.0);
+        graph.addEdge(3, 1, "", 1.0);
+        graph.addEdge(4, 1, "", 1.0);
+        graph.addEdge(2, 4, "", 1.0);
+        graph.addEdge(4, 5, "", 1.0);
+        graph.addEdge(5, 5, "", 1.0);
+
+        CsrGraph<Integer> csr = graph.snapshot();
+        assertEquals(GraphAnalytics.triangleCount(csr), 2);
+        long[] triangles = GraphAnalytics.triangleCounts(csr);
+        assertEquals(triangles[csr.getId(1)], 2);
+        assertEquals(triangles[csr.getId(3)], 1);
+        assertEquals(triangles[csr.getId(5)], 0);
+
+        Map<Integer, Double> coefficients = csr.toMap(GraphAnalytics.clusteringCoefficients(csr));
+        assertEquals(coefficients.get(1), 2.0 / 3, DELTA);
+        assertEquals(coefficients.get(3), 1.0, DELTA);
+        assertEquals(coefficients.get(4), 1.0 / 3, DELTA);
+        assertEquals(coefficients.get(5), 0.0, DELTA);
+    }
+
+    @Test
+    public void testTrianglesMatchTripleLoop() {
+        final int n = 150;
+        Random random = new Random(50);
+        for (int i = 0; i < 2000; ++i) {
+            graph.addEdge(random.nextInt(n), random.nextInt(n), "", 1.0);
+        }
+        CsrGraph<Integer> csr = graph.snapshot();
+        long[] triangles = GraphAnalytics.triangleCounts(csr);
+
+        long total = 0;
+        for (int u = 0; u < csr.getNodeCount(); ++u) {
+            long expected = 0;
+            for (int v = 0; v < csr.getNodeCount(); ++v) {
+                for (int w = v + 1; w < csr.getNodeCount(); ++w) {
+                    if (adjacent(u, v) && adjacent(u, w) && adjacent(v, w)) {
+                        ++expected;
+                    }
+                }
+            }
+            assertEquals(triangles[csr.getId(u)], expected);
+            total += expected;
+        }
+        assertEquals(GraphAnalytics.triangleCount(csr), total / 3);
+    }
+
+    private boolean adjacent(int u, int v) {
+        return u != v && (graph.containsEdge(u, v) || graph.containsEdge(v, u));
+    }
+
+    private static int bandwidth(CsrGraph<?> csr) {
+        int bandwidth = 0;
+        for (int u = 0; u < csr.getNodeCount(); ++u) {
+            for (int e = csr.outOffsets[u]; e < csr.outOffsets[u + 1]; ++e) {
+                bandwidth = Math.max(bandwidth, Math.abs(csr.outTargets[e] - u));
+            }
+        }
+        return bandwidth;
+    }
+}
@@ -0,0 +1,126 @@
+package com.panduit.graph;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+public class GraphEventBusTests {
+    private DirectedGraph<Integer> graph;
+
+    @BeforeMethod
+    public void beforeTest() {
+        graph = new DirectedGraph<>();
+    }
+
+    @Test
+    public void testEventsInCommitOrder() {
+        graph.addEdge(1, 2, "before", 1.0);
+
+        final List<GraphEvent<Integer>> received = Collections.synchronizedList(new ArrayList<>());
+        GraphEventBus<Integer>.Subscription subscription = graph.subscribe(received::addAll);
+
+        graph.addEdge(2, 3, "2 -> 3", 5.0);
+        graph.removeEdge(1, 2);
+        graph.removeNode(3);
+        subscription.close();
+
+        List<String> described = new ArrayList<>();
+        for (GraphEvent<Integer> event : received) {
+            described.add(event.toString());
+        }
+        assertEquals(described, ImmutableList.of(
+                "1 ADD_NODE 3",
+                "2 ADD_EDGE 2 -> 3",
+                "3 REMOVE_EDGE 1 -> 2",
+                "4 REMOVE_EDGE 2 -> 3",
+                "5 REMOVE_NODE 3"));
+        assertEquals(received.get(1).getEdge().getLabel(), "2 -> 3");
+        assertEquals(received.get(1).getEdge().getWeight(), 5.0);
+        assertNull(received.get(4).getDest());
+        assertEquals(subscription.getLastDelivered(), 5);
+    }
+
+    @Test
+    public void testNothingPublishedWithoutSubscribers() {
+        GraphEventBus<Integer>.Subscription subscription = graph.subscribe(events -> { });
+        graph.addNode(1);
+        subscription.close();
+        assertEquals(subscription.getLastDelivered(), 1);
+
+        // Unwatched changes take no sequence numbers
+        for (int i = 0; i < 10; ++i) {
+            graph.addEdge(i, i + 1, "", 1.0);
+        }
+
+        final List<GraphEvent<Integer>> received = Collections.synchronizedList(new ArrayList<>());
+        subscription = graph.subscribe(received::addAll);
+        graph.removeNode(1);
+        subscription.close();
+        assertEquals(subscription.getLastDelivered(), 4);
+        assertEquals(received.get(0).toString(), "2 REMOVE_EDGE 0 -> 1");
+    }
+
+    @Test
+    public void testReplicaFollowsGraph() {
+        // Replay the events on a second graph. More events than the ring holds.
+        final DirectedGraph<Integer> replica = new DirectedGraph<>();
+        GraphEventBus<Integer>.Subscription subscription = graph.subscribe(events -> {
+            for (GraphEvent<Integer> event : events) {
+                switch (event.getType()) {
+                    case ADD_NODE:
+                        replica.addNode(event.getSrc());
+                        break;
+                    case REMOVE_NODE:
+                        replica.removeNode(event.getSrc());
+                        break;
+                    case ADD_EDGE:
+                        replica.addEdge(event.getSrc(), event.getDest(), event.getEdge().getLabel(), event.getEdge().getWeight());
+                        break;
+                    case REMOVE_EDGE:
+                        replica.removeEdge(event.getSrc(), event.getDest());
+                        break;
+                }
+            }
+        });
+
+        for (int i = 0; i < 100000; ++i) {
+            graph.addEdge(i % 1000, (i * 7) % 1000, "", i);
+            if (i % 3 == 0) {
+                graph.removeEdge((i / 2) % 1000, i % 1000);
+            }
+        }
+        graph.removeNode(5);
+        subscription.close();
+
+        assertEquals(replica.getNodes(), graph.getNodes());
+        for (Integer node : graph.getNodes()) {
+            assertEquals(replica.getOutgoingEdges(node).keySet(), graph.getOutgoingEdges(node).keySet());
+        }
+        assertFalse(replica.containsNode(5));
+    }
+
+    @Test
+    public void testListenerDoesNotHoldWriteLock() throws InterruptedException {
+        // The listener reads the graph while a writer keeps going
+        final CountDownLatch delivered = new CountDownLatch(1);
+        GraphEventBus<Integer>.Subscription subscription = graph.subscribe(events -> {
+            graph.containsNode(1);
+            delivered.countDown();
+        });
+        graph.addNode(1);
+        delivered.await();
+        subscription.close();
+        assertTrue(graph.containsNode(1));
+    }
+}
@@ -0,0 +1,108 @@
+package com.panduit.graph;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+public class GraphFormatTests {
+    private Graph<Integer> graph;
+
+    @BeforeMethod
+    public void beforeTest() {
+        graph = new DirectedGraph<>();
+    }
+
+    @Test
+    public void testDot() {
+        graph.addEdge(1, 2, "label1", 4);
+        graph.addEdge(2, 3, "say \"hi\"", -0.25);
+
+        final String dot = graph.printDotFormat();
+        assertTrue(dot.startsWith("digraph G {\nrankdir=LR;\nnode [shape = circle];\n"));
+        assertTrue(dot.contains("1 -> 2 [ label = \"label1 (weight = 4.0)\"];\n"));
+        assertTrue(dot.contains("2 -> 3 [ label = \"say \\\"hi\\\" (weight = -0.3)\"];\n"));
+        assertTrue(dot.endsWith("}\n"));
+        assertEquals(graph.toString(), dot);
+    }
+
+    @Test
+    public void testOneDecimalMatchesStringFormat() throws IOException {
+        final Random random = new Random(1);
+        final double[] special = {0, -0.0, 0.05, 0.15, 1.15, 2.25, -0.04, 0.95, 9.95, 1e14 + 0.05, 1e20,
+                Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE};
+        for (int i = 0; i < 100000 + special.length; ++i) {
+            final double value = i < special.length ? special[i]
+                    : i % 2 == 0 ? random.nextInt(20000) / 100.0 - 100 : (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12));
+            final StringBuilder sb = new StringBuilder();
+            GraphFormat.appendOneDecimal(sb, value);
+            assertEquals(sb.toString(), String.format(Locale.ROOT, "%.1f", value), "value " + value);
+        }
+    }
+
+    @Test
+    public void testGraphMlAndEdgeList() throws IOException {
+        graph.addEdge(1, 2, "a < b & \"c\"", 1.5);
+        graph.addEdge(2, 1, "tab\there\\", 3);
+        graph.addNode(9);
+
+        final StringBuilder graphMl = new StringBuilder();
+        graph.export(GraphFormat.GRAPHML, graphMl);
+        assertTrue(graphMl.toString().contains("<node id=\"9\"/>"));
+        assertTrue(graphMl.toString().contains(
+                "<edge source=\"1\" target=\"2\"><data key=\"label\">a &lt; b &amp; &quot;c&quot;</data><data key=\"weight\">1.5</data></edge>"));
+        assertTrue(graphMl.toString().endsWith("  </graph>\n</graphml>\n"));
+
+        final StringBuilder edgeList = new StringBuilder();
+        graph.export(GraphFormat.EDGE_LIST, edgeList);
+        assertTrue(edgeList.toString().contains("2\t1\ttab\\there\\\\\t3.0\n"));
+        assertTrue(edgeList.toString().contains("\n9\n") || edgeList.toString().startsWith("9\n"));
+    }
+
+    @Test
+    public void testSnapshotToChannel() throws IOException {
+        // Enough to fill the channel buffer several times, with labels that are not ASCII
+        for (int i = 0; i < 20000; ++i) {
+            graph.addEdge(i, i + 1, "e\u00e9\ud83d\ude00" + i, i);
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final CsrGraph<Integer> snapshot = graph.snapshot();
+        snapshot.export(GraphFormat.DOT, Channels.newChannel(bytes));
+
+        final StringBuilder expected = new StringBuilder();
+        snapshot.export(GraphFormat.DOT, expected);
+        assertEquals(new String(bytes.toByteArray(), StandardCharsets.UTF_8), expected.toString());
+
+        // The graph itself streams to a channel the same way
+        bytes.reset();
+        graph.writeDot(Channels.newChannel(bytes));
+        assertEquals(new String(bytes.toByteArray(), StandardCharsets.UTF_8), graph.printDotFormat());
+    }
+
+    @Test
+    public void testChannelEndsText() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ChannelAppendable out = new ChannelAppendable(Channels.newChannel(bytes));
+
+        // A pair split by a flush is kept whole
+        out.append("a\ud83d");
+        out.flush();
+        assertEquals(bytes.size(), 1);
+        out.append("\ude00b");
+
+        // A half pair at the very end is not dropped
+        out.append('\ud83d');
+        out.close();
+        assertEquals(new String(bytes.toByteArray(), StandardCharsets.UTF_8), "a\ud83d\ude00b?");
+    }
+}
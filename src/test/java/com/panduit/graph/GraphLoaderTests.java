@@ -0,0 +1,173 @@
+package com.panduit.graph;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+public class GraphLoaderTests {
+    private Path directory;
+
+    @BeforeMethod
+    public void beforeTest() throws IOException {
+        directory = Files.createTempDirectory("graph-loader");
+    }
+
+    @AfterMethod
+    public void afterTest() throws IOException {
+        for (Path file : Files.newDirectoryStream(directory)) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testLoadMatchesRead() throws IOException {
+        // Big enough to be split into several blocks
+        final Graph<Integer> graph = new DirectedGraph<>();
+        final Random random = new Random(7);
+        for (int i = 0; i < 150000; ++i) {
+            graph.addEdge(random.nextInt(20000), random.nextInt(20000), "e" + i, random.nextInt(100));
+        }
+        final Path file = directory.resolve("graph.data");
+        DirectedGraph.write(graph, file.toString());
+        assertTrue(Files.size(file) > 2 * GraphLoader.BLOCK_BYTES);
+
+        final Graph<Integer> loaded = GraphLoader.load(file);
+        final Graph<Integer> read = DirectedGraph.read(file.toString());
+        assertEquals(loaded.getNodes(), read.getNodes());
+        assertEquals(loaded.snapshot().getEdgeCount(), read.snapshot().getEdgeCount());
+        for (Integer u : read.getNodes()) {
+            assertEquals(loaded.getOutgoingEdges(u).keySet(), read.getOutgoingEdges(u).keySet());
+            assertEquals(loaded.getIncomingEdges(u).keySet(), read.getIncomingEdges(u).keySet());
+            for (Integer v : read.getOutgoingEdges(u).keySet()) {
+                assertEquals(loaded.getEdge(u, v).get().getLabel(), read.getEdge(u, v).get().getLabel());
+            }
+        }
+        assertEquals(loaded.findShortestPath(1, 2), read.findShortestPath(1, 2));
+    }
+
+    @Test
+    public void testLoadShards() throws IOException {
+        final Graph<Integer> first = new DirectedGraph<>();
+        first.addEdge(1, 2, "1 -> 2", 1.0);
+        first.addEdge(2, 3, "old", 1.0);
+        DirectedGraph.write(first, directory.resolve("shard-0").toString());
+
+        final Graph<Integer> second = new DirectedGraph<>();
+        second.addEdge(3, 4, "3 -> 4", 1.0);
+        second.addEdge(2, 3, "new", 5.0);
+        DirectedGraph.write(second, directory.resolve("shard-1").toString());
+
+        final DirectedGraph<Integer> graph = GraphLoader.loadShards(directory);
+        assertEquals(graph.getNodes().size(), 4);
+        assertEquals(graph.getEdge(2, 3).get().getLabel(), "new");
+        assertEquals(graph.getIncomingEdges(3).get(2).getWeight(), 5.0);
+        assertEquals(graph.findShortestPath(1, 4), ImmutableList.of(1, 2, 3, 4));
+
+        // The loaded graph is an ordinary graph
+        graph.removeEdge(1, 2);
+        graph.addEdge(4, 1, "4 -> 1", 1.0);
+        assertFalse(graph.containsEdge(1, 2));
+        assertEquals(graph.snapshot().getEdgeCount(), 3);
+    }
+
+    @Test
+    public void testLoadEdgeListMatchesExport() throws IOException {
+        // Big enough to be mapped in several chunks, with labels that need escaping
+        final Graph<Integer> graph = new DirectedGraph<>();
+        final Random random = new Random(11);
+        for (int i = 0; i < 100000; ++i) {
+            final String label = i % 3 == 0 ? "same label" : "tab\t\\ " + i + "\u00e9";
+            graph.addEdge(random.nextInt(20000) - 100, random.nextInt(20000), label, random.nextDouble() * 1000);
+        }
+        graph.addNode(-5);
+        final Path file = directory.resolve("graph.tsv");
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            graph.export(GraphFormat.EDGE_LIST, out);
+        }
+        assertTrue(Files.size(file) > 2 * GraphLoader.MIN_TEXT_CHUNK);
+
+        final Graph<Integer> loaded = GraphLoader.loadEdgeList(file);
+        assertEquals(loaded.getNodes(), graph.getNodes());
+        assertEquals(loaded.snapshot().getEdgeCount(), graph.snapshot().getEdgeCount());
+        for (Integer u : graph.getNodes()) {
+            for (Integer v : graph.getOutgoingEdges(u).keySet()) {
+                assertEquals(loaded.getEdge(u, v).get().getLabel(), graph.getEdge(u, v).get().getLabel());
+                assertEquals(loaded.getEdge(u, v).get().getWeight(), graph.getEdge(u, v).get().getWeight());
+            }
+        }
+    }
+
+    @Test
+    public void testLoadSpaceSeparatedDump() throws IOException {
+        final Path file = directory.resolve("dump.txt");
+        Files.write(file, ("# src dst label weight\r\n"
+                + "1 2 road 2.5\r\n"
+                + "  2   3 rail 1e2\n"
+                + "\n"
+                + "3 1\n"
+                + "% comment\n"
+                + "4\n"
+                + "5 6 ferry -0.125").getBytes(StandardCharsets.UTF_8));
+
+        final DirectedGraph<Integer> graph = GraphLoader.loadEdgeList(file);
+        assertEquals(graph.getNodes().size(), 6);
+        assertEquals(graph.getEdge(1, 2).get().getLabel(), "road");
+        assertEquals(graph.getEdge(1, 2).get().getWeight(), 2.5);
+        assertEquals(graph.getEdge(2, 3).get().getWeight(), 100.0);
+        assertEquals(graph.getEdge(3, 1).get().getLabel(), "");
+        assertEquals(graph.getEdge(3, 1).get().getWeight(), 1.0);
+        assertEquals(graph.getEdge(5, 6).get().getWeight(), -0.125);
+        assertTrue(graph.getOutgoingEdges(4).isEmpty());
+    }
+
+    @Test
+    public void testLoadCsv() throws IOException {
+        final Path file = directory.resolve("edges.csv");
+        Files.write(file, ("source,target,label,weight\n"
+                + "1,2,plain,3\n"
+                + "2,3,\"a, \"\"quoted\"\" label\",0.1\n"
+                + "3 , 4 ,,7\n").getBytes(StandardCharsets.UTF_8));
+
+        final DirectedGraph<Integer> graph = GraphLoader.loadCsv(file);
+        assertEquals(graph.snapshot().getEdgeCount(), 3);
+        assertEquals(graph.getEdge(1, 2).get().getLabel(), "plain");
+        assertEquals(graph.getEdge(2, 3).get().getLabel(), "a, \"quoted\" label");
+        assertEquals(graph.getEdge(2, 3).get().getWeight(), 0.1);
+        assertEquals(graph.getEdge(3, 4).get().getLabel(), "");
+        assertEquals(graph.getEdge(3, 4).get().getWeight(), 7.0);
+    }
+
+    @Test
+    public void testLoadedGraphAnswersNull() throws IOException {
+        final Path file = directory.resolve("null.txt");
+        Files.write(file, "1 2\n2 3\n".getBytes(StandardCharsets.UTF_8));
+
+        // Lookups of null behave as on a graph built edge by edge
+        final DirectedGraph<Integer> graph = GraphLoader.loadEdgeList(file);
+        assertFalse(graph.containsNode(null));
+        assertFalse(graph.containsEdge(null, 2));
+        assertTrue(graph.findShortestPath(null, 3).isEmpty());
+        assertEquals(graph.findShortestPath(1, 3), ImmutableList.of(1, 2, 3));
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testLoadEdgeListRejectsBadLine() throws IOException {
+        final Path file = directory.resolve("bad.txt");
+        Files.write(file, "1 2\nx y\n".getBytes(StandardCharsets.UTF_8));
+        GraphLoader.loadEdgeList(file);
+    }
+}
@@ -0,0 +1,114 @@
+package com.panduit.graph;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+public class GraphPartitionerTests {
+    private Path directory;
+
+    @BeforeMethod
+    public void beforeTest() throws IOException {
+        directory = Files.createTempDirectory("graph-partitioner");
+    }
+
+    @AfterMethod
+    public void afterTest() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    /**
+     * Dense clusters joined by a few edges
+     */
+    private static Graph<Integer> clusters(int count, int size) {
+        final Graph<Integer> graph = new DirectedGraph<>();
+        final Random random = new Random(3);
+        for (int c = 0; c < count; ++c) {
+            for (int i = 0; i < size * 4; ++i) {
+                graph.addEdge(c * size + random.nextInt(size), c * size + random.nextInt(size), "in", 1.0);
+            }
+            graph.addEdge(c * size, ((c + 1) % count) * size, "between", 1.0);
+        }
+        return graph;
+    }
+
+    private static <Node> long cut(Graph<Node> graph, Map<Node, Integer> assignment) {
+        long cut = 0;
+        for (Node u : graph.getNodes()) {
+            for (Node v : graph.getOutgoingEdges(u).keySet()) {
+                if (!assignment.get(u).equals(assignment.get(v))) {
+                    ++cut;
+                }
+            }
+        }
+        return cut;
+    }
+
+    @Test
+    public void testPartitionFindsClusters() {
+        final Graph<Integer> graph = clusters(8, 500);
+        final Map<Integer, Integer> assignment = GraphPartitioner.partition(graph, 4);
+        assertEquals(assignment.keySet(), graph.getNodes());
+
+        final int[] sizes = new int[4];
+        for (int shard : assignment.values()) {
+            ++sizes[shard];
+        }
+        for (int size : sizes) {
+            assertTrue(size <= Math.ceil(1.1 * graph.getNodes().size() / 4), "shard of " + size);
+        }
+
+        // Far fewer edges cut than the three quarters a random split would cut
+        final long edges = graph.snapshot().getEdgeCount();
+        assertTrue(cut(graph, assignment) < edges / 10, "cut " + cut(graph, assignment) + " of " + edges);
+    }
+
+    @Test
+    public void testWriteShards() throws IOException {
+        final Graph<Integer> graph = clusters(4, 200);
+        graph.addEdge(1, 799, "across", 2.0);
+        final Map<Integer, Integer> assignment = GraphPartitioner.writeShards(graph, 3, directory);
+
+        // Loading every shard gives back the graph
+        final Graph<Integer> loaded = GraphLoader.loadShards(directory);
+        assertEquals(loaded.getNodes(), graph.getNodes());
+        assertEquals(loaded.snapshot().getEdgeCount(), graph.snapshot().getEdgeCount());
+        assertEquals(loaded.getEdge(1, 799).get().getLabel(), "across");
+
+        for (int shard = 0; shard < 3; ++shard) {
+            final Graph<Integer> local = GraphPartitioner.loadShard(directory, shard);
+            final Map<Integer, Integer> boundary = GraphPartitioner.readBoundary(directory, shard);
+            for (Integer u : local.getNodes()) {
+                for (Integer v : local.getOutgoingEdges(u).keySet()) {
+                    assertEquals((int) assignment.get(u), shard);
+                    if (assignment.get(v) != shard) {
+                        assertEquals(boundary.get(v), assignment.get(v));
+                    }
+                }
+            }
+            for (Map.Entry<Integer, Integer> entry : boundary.entrySet()) {
+                assertEquals(entry.getValue(), assignment.get(entry.getKey()));
+            }
+        }
+
+        // Both ends of an edge between shards are on the boundary of the source's shard
+        if (!assignment.get(1).equals(assignment.get(799))) {
+            assertEquals(GraphPartitioner.readBoundary(directory, assignment.get(1)).get(799), assignment.get(799));
+            assertEquals(GraphPartitioner.readBoundary(directory, assignment.get(799)).get(799), assignment.get(799));
+        }
+    }
+}
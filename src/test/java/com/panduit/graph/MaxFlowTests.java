@@ -0,0 +1,98 @@
+package com.panduit.graph;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.AbstractMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+
+public class MaxFlowTests {
+
+    @Test
+    public void testTextbookNetwork() {
+        final DirectedGraph<String> graph = new DirectedGraph<>();
+        graph.addEdge("s", "v1", "", 16);
+        graph.addEdge("s", "v2", "", 13);
+        graph.addEdge("v2", "v1", "", 4);
+        graph.addEdge("v1", "v3", "", 12);
+        graph.addEdge("v3", "v2", "", 9);
+        graph.addEdge("v2", "v4", "", 14);
+        graph.addEdge("v4", "v3", "", 7);
+        graph.addEdge("v3", "t", "", 20);
+        graph.addEdge("v4", "t", "", 4);
+
+        final MaxFlow<String> flow = MaxFlow.compute(graph.snapshot(), "s", "t");
+        assertEquals(flow.getFlow(), 23.0);
+        assertTrue(flow.isOnSourceSide("v4"));
+        assertFalse(flow.isOnSourceSide("v3"));
+
+        final Set<Map.Entry<String, String>> cut = new HashSet<>(flow.getCutEdges());
+        final Set<Map.Entry<String, String>> expected = new HashSet<>();
+        expected.add(new AbstractMap.SimpleImmutableEntry<>("v1", "v3"));
+        expected.add(new AbstractMap.SimpleImmutableEntry<>("v4", "v3"));
+        expected.add(new AbstractMap.SimpleImmutableEntry<>("v4", "t"));
+        assertEquals(cut, expected);
+        assertEquals(flow.getFlow("v1", "v3"), 12.0);
+        assertEquals(flow.getFlow("s", "t"), 0.0);
+    }
+
+    @Test
+    public void testDegenerateQueries() {
+        final DirectedGraph<Integer> graph = new DirectedGraph<>();
+        graph.addEdge(1, 2, "", 5);
+        graph.addEdge(2, 3, "", Double.POSITIVE_INFINITY);
+        graph.addNode(4);
+
+        assertEquals(MaxFlow.compute(graph.snapshot(), 1, 1).getFlow(), 0.0);
+        assertEquals(MaxFlow.compute(graph.snapshot(), 1, 99).getFlow(), 0.0);
+        assertEquals(MaxFlow.compute(graph.snapshot(), 1, 4).getFlow(), 0.0);
+        assertTrue(MaxFlow.compute(graph.snapshot(), 1, 4).getCutEdges().isEmpty());
+        assertEquals(MaxFlow.compute(graph.snapshot(), 3, 1).getFlow(), 0.0);
+        assertEquals(MaxFlow.compute(graph.snapshot(), 1, 3).getFlow(), 5.0);
+        assertEquals(MaxFlow.compute(graph.snapshot(), 2, 3).getFlow(), Double.POSITIVE_INFINITY);
+    }
+
+    @Test
+    public void testFlowIsFeasibleAndMatchesCut() {
+        final int n = 500;
+        final Random random = new Random(49);
+        final DirectedGraph<Integer> graph = new DirectedGraph<>();
+        for (int i = 0; i < 8 * n; ++i) {
+            graph.addEdge(random.nextInt(n), random.nextInt(n), "", random.nextInt(100));
+        }
+        final CsrGraph<Integer> csr = graph.snapshot();
+        final MaxFlow<Integer> flow = MaxFlow.compute(csr, 0, 1);
+        assertTrue(flow.getFlow() > 0);
+
+        // A feasible flow as large as a cut is a maximum flow
+        final double[] net = new double[n];
+        for (int u = 0; u < csr.getNodeCount(); ++u) {
+            for (int e = csr.outOffsets[u]; e < csr.outOffsets[u + 1]; ++e) {
+                final int v = csr.outTargets[e];
+                final double f = flow.getFlow(csr.getNode(u), csr.getNode(v));
+                assertTrue(f >= 0 && f <= csr.outWeights[e]);
+                net[csr.getNode(u)] -= f;
+                net[csr.getNode(v)] += f;
+            }
+        }
+        for (int node = 2; node < n; ++node) {
+            assertEquals(net[node], 0.0);
+        }
+        assertEquals(net[1], flow.getFlow());
+
+        double cut = 0;
+        for (final Map.Entry<Integer, Integer> edge : flow.getCutEdges()) {
+            assertTrue(flow.isOnSourceSide(edge.getKey()));
+            assertFalse(flow.isOnSourceSide(edge.getValue()));
+            cut += graph.getOutgoingEdges(edge.getKey()).get(edge.getValue()).getWeight();
+        }
+        assertEquals(cut, flow.getFlow());
+    }
+}
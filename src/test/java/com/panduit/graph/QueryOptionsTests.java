@@ -0,0 +1,110 @@
+package com.panduit.graph;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+public class QueryOptionsTests {
+    private static final int LENGTH = 10000;
+
+    private Graph<Integer> graph;
+
+    @BeforeMethod
+    public void beforeTest() {
+        // A long cycle, so paths are found with Dijkstra
+        graph = new DirectedGraph<>();
+        for (int i = 0; i < LENGTH; ++i) {
+            graph.addEdge(i, (i + 1) % LENGTH, "next", 1.0);
+        }
+        graph.addNode(-1);
+    }
+
+    @Test
+    public void testCompletesWithinLimits() {
+        final QueryOptions options = QueryOptions.NONE
+                .withTimeout(1, TimeUnit.MINUTES)
+                .withMaxNodesSettled(LENGTH)
+                .withCancellation(new CancellationToken());
+
+        final QueryResult<List<Integer>> path = graph.findShortestPath(0, LENGTH - 1, options);
+        assertTrue(path.isComplete());
+        assertEquals(path.getValue().get(), graph.findShortestPath(0, LENGTH - 1));
+        assertEquals(path.getNodesSettled(), LENGTH);
+
+        assertEquals(graph.isConnected(0, LENGTH / 2, options).getValue().get(), Boolean.TRUE);
+        assertEquals(graph.isConnected(0, -1, options).getValue().get(), Boolean.FALSE);
+        assertTrue(graph.findShortestPath(0, -1, QueryOptions.NONE).getValue().get().isEmpty());
+    }
+
+    @Test
+    public void testBudgetExhausted() {
+        final QueryOptions options = QueryOptions.NONE.withMaxNodesSettled(100);
+
+        final QueryResult<List<Integer>> path = graph.findShortestPath(0, LENGTH - 1, options);
+        assertEquals(path.getStatus(), QueryResult.Status.BUDGET_EXHAUSTED);
+        assertFalse(path.getValue().isPresent());
+        assertEquals(path.getNodesSettled(), 100);
+
+        // Unknown is not the same as not connected
+        final QueryResult<Boolean> connected = graph.isConnected(0, LENGTH / 2, options);
+        assertEquals(connected.getStatus(), QueryResult.Status.BUDGET_EXHAUSTED);
+        assertFalse(connected.getValue().isPresent());
+
+        // Near enough to finish within the budget
+        assertEquals(graph.findShortestPath(0, 50, options).getValue().get().size(), 51);
+    }
+
+    @Test
+    public void testCancelledAndTimedOut() {
+        final CancellationToken token = new CancellationToken();
+        token.cancel();
+        assertEquals(graph.findShortestPath(0, LENGTH - 1, QueryOptions.NONE.withCancellation(token)).getStatus(),
+                QueryResult.Status.CANCELLED);
+        assertEquals(graph.isConnected(0, LENGTH - 1, QueryOptions.NONE.withCancellation(token)).getStatus(),
+                QueryResult.Status.CANCELLED);
+
+        assertEquals(graph.findShortestPath(0, LENGTH - 1, QueryOptions.NONE.withTimeout(1, TimeUnit.NANOSECONDS)).getStatus(),
+                QueryResult.Status.TIMED_OUT);
+    }
+
+    @Test
+    public void testAcyclicGraph() {
+        final Graph<Integer> chain = new DirectedGraph<>();
+        for (int i = 0; i < 1000; ++i) {
+            chain.addEdge(i, i + 1, "next", -1.0);
+        }
+        assertEquals(chain.findShortestPath(0, 1000, QueryOptions.NONE.withMaxNodesSettled(10)).getStatus(),
+                QueryResult.Status.BUDGET_EXHAUSTED);
+        assertEquals(chain.findShortestPath(0, 1000, QueryOptions.NONE).getValue().get().size(), 1001);
+    }
+
+    @Test
+    public void testAcyclicScanIsBudgeted() {
+        // Between 0 and 1000 in any topological order lies a chain no path from 0 goes through
+        final Graph<Integer> dag = new DirectedGraph<>();
+        for (int i = 2000; i < 2999; ++i) {
+            dag.addEdge(i, i + 1, "next", 1.0);
+        }
+        dag.addEdge(2999, 1000, "last", 1.0);
+        dag.addEdge(0, 2999, "jump", 1.0);
+        final QueryOptions options = QueryOptions.NONE.withMaxNodesSettled(100);
+
+        // Without a cached order the search does not sort the graph first
+        final QueryResult<List<Integer>> path = dag.findShortestPath(0, 1000, options);
+        assertEquals(path.getValue().get(), Arrays.asList(0, 2999, 1000));
+        assertTrue(path.getNodesSettled() <= 3);
+
+        // With one, walking the order spends the vertices skipped over
+        assertTrue(dag.topologicalOrder().isPresent());
+        assertEquals(dag.findShortestPath(0, 1000, options).getStatus(), QueryResult.Status.BUDGET_EXHAUSTED);
+        assertEquals(dag.findShortestPath(0, 1000, QueryOptions.NONE).getValue().get(), Arrays.asList(0, 2999, 1000));
+    }
+}
@@ -0,0 +1,126 @@
+package com.panduit.graph;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+public class ShardCoordinatorTests {
+    private static final int SHARDS = 3;
+
+    private Path directory;
+    private Graph<Integer> graph;
+    private List<GraphShard> shards;
+
+    @BeforeMethod
+    public void beforeTest() throws IOException {
+        directory = Files.createTempDirectory("shard-coordinator");
+        graph = new DirectedGraph<>();
+        final Random random = new Random(5);
+        for (int i = 0; i < 3000; ++i) {
+            final int u = random.nextInt(600);
+            // Mostly edges between nearby vertices, so the shards have few edges between them
+            final int v = random.nextInt(10) == 0 ? random.nextInt(600) : Math.floorMod(u + random.nextInt(11) - 5, 600);
+            graph.addEdge(u, v, u + " -> " + v, 1 + random.nextInt(20));
+        }
+        graph.addEdge(1000, 1001, "apart", 1.0);
+
+        GraphPartitioner.writeShards(graph, SHARDS, directory);
+        shards = new ArrayList<>();
+        for (int shard = 0; shard < SHARDS; ++shard) {
+            shards.add(GraphShard.load(directory, shard));
+        }
+    }
+
+    @AfterMethod
+    public void afterTest() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    private double length(List<Integer> path) {
+        double length = 0;
+        for (int i = 1; i < path.size(); ++i) {
+            assertTrue(graph.containsEdge(path.get(i - 1), path.get(i)), "no edge in " + path);
+            length += graph.getEdge(path.get(i - 1), path.get(i)).get().getWeight();
+        }
+        return length;
+    }
+
+    private void assertMatchesGraph(ShardCoordinator coordinator, int src, int dest) throws IOException {
+        final List<Integer> expected = graph.findShortestPath(src, dest);
+        final List<Integer> actual = coordinator.findShortestPath(src, dest);
+        assertEquals(actual.isEmpty(), expected.isEmpty(), src + " -> " + dest);
+        if (!expected.isEmpty()) {
+            assertEquals((int) actual.get(0), src);
+            assertEquals((int) actual.get(actual.size() - 1), dest);
+            assertEquals(length(actual), length(expected), 1e-9, src + " -> " + dest);
+        }
+    }
+
+    @Test
+    public void testMatchesSingleGraph() throws IOException {
+        final ShardCoordinator coordinator = new ShardCoordinator(new InMemoryShardTransport(shards));
+        coordinator.rebuildOverlay();
+        assertTrue(coordinator.getOverlayEdgeCount() > 0);
+
+        final Random random = new Random(9);
+        for (int i = 0; i < 300; ++i) {
+            assertMatchesGraph(coordinator, random.nextInt(600), random.nextInt(600));
+        }
+        assertEquals(coordinator.findShortestPath(7, 7).size(), 1);
+        assertEquals(coordinator.findShortestPath(1000, 1001).size(), 2);
+        assertTrue(coordinator.findShortestPath(1, 1001).isEmpty());
+        assertTrue(coordinator.findShortestPath(5000, 1).isEmpty());
+    }
+
+    @Test
+    public void testSocketTransport() throws IOException {
+        final List<SocketShardTransport.Server> servers = new ArrayList<>();
+        final List<InetSocketAddress> addresses = new ArrayList<>();
+        for (GraphShard shard : shards) {
+            final SocketShardTransport.Server server = SocketShardTransport.serve(shard, 0);
+            servers.add(server);
+            addresses.add(server.getAddress());
+        }
+
+        try (SocketShardTransport transport = SocketShardTransport.connect(addresses)) {
+            final ShardCoordinator coordinator = new ShardCoordinator(transport);
+            final Random random = new Random(13);
+            for (int i = 0; i < 50; ++i) {
+                assertMatchesGraph(coordinator, random.nextInt(600), random.nextInt(600));
+            }
+
+            // A shard's failure comes back as an exception
+            try {
+                transport.send(0, new byte[] {42}).join();
+                fail();
+            }
+            catch (CompletionException e) {
+                assertTrue(e.getCause() instanceof UncheckedIOException);
+            }
+        }
+        finally {
+            for (SocketShardTransport.Server server : servers) {
+                server.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.panduit.graph;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+
+public class ShortestPathTreeTests {
+
+    @Test
+    public void testRepairsOnChanges() {
+        final DirectedGraph<Integer> graph = new DirectedGraph<>();
+        graph.addEdge(0, 1, "a", 1.0);
+        graph.addEdge(1, 2, "b", 1.0);
+        graph.addEdge(0, 2, "c", 5.0);
+        graph.addEdge(2, 3, "d", 1.0);
+
+        try (ShortestPathTree<Integer> tree = graph.trackShortestPaths(0)) {
+            assertEquals(tree.getDistance(3), 3.0);
+            assertEquals(tree.getPath(3), Arrays.asList(0, 1, 2, 3));
+
+            // A longer tree edge moves the subtree to the other path
+            graph.addEdge(1, 2, "b", 10.0);
+            assertEquals(tree.getDistance(3), 6.0);
+            assertEquals(tree.getPath(3), Arrays.asList(0, 2, 3));
+
+            // A shorter edge pulls it back
+            graph.addEdge(1, 2, "b", 0.5);
+            assertEquals(tree.getDistance(3), 2.5);
+
+            graph.removeEdge(2, 3);
+            assertFalse(tree.isReachable(3));
+            assertEquals(tree.getDistance(3), Double.POSITIVE_INFINITY);
+            assertTrue(tree.getPath(3).isEmpty());
+
+            graph.addEdge(1, 3, "e", 4.0);
+            assertEquals(tree.getPath(3), Arrays.asList(0, 1, 3));
+
+            graph.removeNode(1);
+            assertEquals(tree.getDistance(2), 5.0);
+            assertFalse(tree.isReachable(3));
+
+            // The source can come and go
+            graph.removeNode(0);
+            assertFalse(tree.isReachable(0));
+            assertFalse(tree.isReachable(2));
+            graph.addEdge(0, 3, "f", 2.0);
+            assertEquals(tree.getDistance(0), 0.0);
+            assertEquals(tree.getDistance(3), 2.0);
+        }
+    }
+
+    @Test
+    public void testRejectsNegativeWeights() {
+        final DirectedGraph<Integer> graph = new DirectedGraph<>();
+        graph.addEdge(0, 1, "a", 1.0);
+
+        try (ShortestPathTree<Integer> tree = graph.trackShortestPaths(0)) {
+            try {
+                graph.addEdge(1, 2, "b", -1.0);
+                fail();
+            }
+            catch (IllegalArgumentException e) {
+                assertFalse(graph.containsNode(2));
+            }
+            try {
+                graph.addEdge(0, 1, "a", Double.NaN);
+                fail();
+            }
+            catch (IllegalArgumentException e) {
+                assertEquals(graph.getEdge(0, 1).get().getWeight(), 1.0);
+            }
+            assertEquals(tree.getDistance(1), 1.0);
+        }
+
+        // Untracked graphs take any weight, but cannot be tracked while they have one
+        assertTrue(graph.addEdge(1, 2, "b", -1.0));
+        try {
+            graph.trackShortestPaths(0);
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            graph.removeEdge(1, 2);
+        }
+        try (ShortestPathTree<Integer> tree = graph.trackShortestPaths(0)) {
+            assertEquals(tree.getDistance(1), 1.0);
+        }
+    }
+
+    @Test
+    public void testMatchesSearchAfterRandomChanges() {
+        final int n = 200;
+        final Random random = new Random(47);
+        final DirectedGraph<Integer> graph = new DirectedGraph<>();
+        for (int i = 0; i < 4 * n; ++i) {
+            graph.addEdge(random.nextInt(n), random.nextInt(n), "", 1 + random.nextInt(10));
+        }
+
+        final ShortestPathTree<Integer> tree = graph.trackShortestPaths(0);
+        final ShortestPathTree<Integer> closed = graph.trackShortestPaths(1);
+        closed.close();
+        final double before = closed.getDistance(5);
+
+        for (int change = 0; change < 2000; ++change) {
+            final int u = random.nextInt(n);
+            final int v = random.nextInt(n);
+            if (random.nextInt(3) == 0) {
+                graph.removeEdge(u, v);
+            }
+            else {
+                graph.addEdge(u, v, "", random.nextInt(10));
+            }
+
+            if (change % 100 == 0) {
+                for (int node = 0; node < n; ++node) {
+                    final List<Integer> path = graph.findShortestPath(0, node);
+                    assertEquals(tree.getDistance(node), length(graph, path), "to " + node);
+                    assertEquals(length(graph, tree.getPath(node)), length(graph, path), "to " + node);
+                }
+            }
+        }
+        assertEquals(closed.getDistance(5), before);
+    }
+
+    private static double length(DirectedGraph<Integer> graph, List<Integer> path) {
+        if (path.isEmpty()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double length = 0;
+        for (int i = 1; i < path.size(); ++i) {
+            length += graph.getOutgoingEdges(path.get(i - 1)).get(path.get(i)).getWeight();
+        }
+        return length;
+    }
+}
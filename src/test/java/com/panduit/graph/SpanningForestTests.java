@@ -0,0 +1,98 @@
+package com.panduit.graph;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+
+public class SpanningForestTests {
+
+    @Test
+    public void testSmallForest() {
+        final DirectedGraph<String> graph = new DirectedGraph<>();
+        graph.addEdge("a", "b", "ab", 4.0);
+        graph.addEdge("b", "c", "bc", 1.0);
+        // Direction does not matter
+        graph.addEdge("c", "a", "ca", 2.0);
+        graph.addEdge("c", "d", "cd", 7.0);
+        graph.addEdge("d", "d", "loop", 0.0);
+        graph.addEdge("x", "y", "xy", 3.0);
+        graph.addNode("z");
+
+        final SpanningForest<String> forest = SpanningForest.minimum(graph.snapshot());
+        assertEquals(forest.getEdgeCount(), 4);
+        assertEquals(forest.getTreeCount(), 3);
+        assertEquals(forest.getTotalWeight(), 13.0);
+
+        final Map<String, Double> labels = new HashMap<>();
+        for (int i = 0; i < forest.getEdgeCount(); ++i) {
+            labels.put(forest.getEdge(i).getLabel(), forest.getEdge(i).getWeight());
+        }
+        assertFalse(labels.containsKey("ab"));
+        assertEquals(labels.get("ca"), 2.0);
+
+        final DirectedGraph<String> tree = forest.toGraph();
+        assertEquals(tree.getNodes(), graph.getNodes());
+        assertTrue(tree.containsEdge("c", "a"));
+        assertTrue(tree.isConnected("a", "d"));
+        assertFalse(tree.isConnected("a", "x"));
+    }
+
+    @Test
+    public void testMatchesKruskal() {
+        final int n = 2000;
+        final Random random = new Random(48);
+        final DirectedGraph<Integer> graph = new DirectedGraph<>();
+        for (int i = 0; i < 6 * n; ++i) {
+            // Few distinct weights, so ties are common
+            graph.addEdge(random.nextInt(n), random.nextInt(n), "", random.nextInt(20));
+        }
+
+        final SpanningForest<Integer> forest = SpanningForest.minimum(graph.snapshot());
+        final CsrGraph<Integer> csr = graph.snapshot();
+
+        // Kruskal, one edge at a time
+        final List<int[]> edges = new ArrayList<>();
+        for (int u = 0; u < csr.getNodeCount(); ++u) {
+            for (int e = csr.outOffsets[u]; e < csr.outOffsets[u + 1]; ++e) {
+                edges.add(new int[] {u, csr.outTargets[e], e});
+            }
+        }
+        edges.sort((x, y) -> Double.compare(csr.outWeights[x[2]], csr.outWeights[y[2]]));
+        final int[] parent = new int[csr.getNodeCount()];
+        for (int u = 0; u < parent.length; ++u) {
+            parent[u] = u;
+        }
+        double total = 0;
+        int count = 0;
+        for (final int[] edge : edges) {
+            final int a = find(parent, edge[0]);
+            final int b = find(parent, edge[1]);
+            if (a != b) {
+                parent[a] = b;
+                total += csr.outWeights[edge[2]];
+                ++count;
+            }
+        }
+
+        assertEquals(forest.getEdgeCount(), count);
+        assertEquals(forest.getTotalWeight(), total);
+        assertEquals(SpanningForest.minimum(csr).getTotalWeight(), total);
+    }
+
+    private static int find(int[] parent, int u) {
+        while (parent[u] != u) {
+            parent[u] = parent[parent[u]];
+            u = parent[u];
+        }
+        return u;
+    }
+}